@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.delegate;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered choice with and without first character dispatch
+ *
+ * <p>The input is a list of JSON-like values; each value is matched by a
+ * choice between six alternatives, most of which can be ruled out by the first
+ * character of the value.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FirstOfBenchmark
+{
+    @Param({ "dispatching", "sequential" })
+    public String matcher;
+
+    @Param({ "100", "1000" })
+    public int values;
+
+    private ParseRunner<Object> runner;
+    private String input;
+
+    static class ValuesParser
+        extends BaseParser<Object>
+    {
+        private final boolean sequential;
+
+        ValuesParser(final Boolean sequential)
+        {
+            this.sequential = sequential;
+        }
+
+        public Rule values()
+        {
+            return sequence(join(value()).using(',').min(0), EOI);
+        }
+
+        Rule value()
+        {
+            return choice(
+                sequence("null", push("null")),
+                sequence("true", push(Boolean.TRUE)),
+                sequence("false", push(Boolean.FALSE)),
+                sequence('"', zeroOrMore(noneOf("\"")), '"', push(match())),
+                sequence('[', join(value()).using(',').min(0), ']'),
+                sequence(optional('-'), oneOrMore(digit()), push(match()))
+            );
+        }
+
+        Rule choice(final Object... rules)
+        {
+            return sequential ? new FirstOfMatcher(toRules(rules))
+                : firstOf(rules);
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        final ValuesParser parser = Grappa.createParser(ValuesParser.class,
+            "sequential".equals(matcher));
+        runner = new ListeningParseRunner<>(parser.values());
+        input = Strings.repeat("-12,\"foo\",[true,null],false,42,", values)
+            + "0";
+    }
+
+    @Benchmark
+    public ParsingResult<Object> parse()
+    {
+        final ParsingResult<Object> result = runner.run(input);
+        if (!result.isSuccess())
+            throw new IllegalStateException("parsing failed");
+        return result;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.repeat;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repetitions of single character rules: scanning versus generic matcher
+ *
+ * <p>The input is a series of lines of identifiers and numbers separated by
+ * whitespace; all runs of characters are matched by repeating a single
+ * character rule.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepeatBenchmark
+{
+    @Param({ "scanning", "generic" })
+    public String matcher;
+
+    @Param({ "100", "1000" })
+    public int lines;
+
+    private ParseRunner<Object> runner;
+    private String input;
+
+    static class RepeatParser
+        extends BaseParser<Object>
+    {
+        private final boolean generic;
+
+        RepeatParser(final Boolean generic)
+        {
+            this.generic = generic;
+        }
+
+        public Rule lines()
+        {
+            return sequence(zeroOrMore(line()), EOI);
+        }
+
+        Rule line()
+        {
+            return sequence(
+                optionalRun(anyOf(" \t")),
+                oneOrMore(token(), optionalRun(anyOf(" \t"))),
+                '\n'
+            );
+        }
+
+        Rule token()
+        {
+            return firstOf(
+                sequence(charRange('a', 'z'), optionalRun(identifierChar())),
+                run(digit())
+            );
+        }
+
+        Rule identifierChar()
+        {
+            return anyOf("abcdefghijklmnopqrstuvwxyz0123456789_");
+        }
+
+        Rule run(final Rule rule)
+        {
+            return generic ? new BoundedDownRepeatMatcher(rule, 1)
+                : oneOrMore(rule);
+        }
+
+        Rule optionalRun(final Rule rule)
+        {
+            return generic ? new BoundedDownRepeatMatcher(rule, 0)
+                : zeroOrMore(rule);
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        final RepeatParser parser = Grappa.createParser(RepeatParser.class,
+            "generic".equals(matcher));
+        runner = new ListeningParseRunner<>(parser.lines());
+        input = Strings.repeat("    some_identifier 12345\tanother_one_42   "
+            + "x 9876543210\n", lines);
+    }
+
+    @Benchmark
+    public ParsingResult<Object> parse()
+    {
+        final ParsingResult<Object> result = runner.run(input);
+        if (!result.isSuccess())
+            throw new IllegalStateException("parsing failed");
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fge.grappa.matchers.trie;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup time of trie representations
+ *
+ * <p>The input is a series of space separated words, half of which are words
+ * of the trie and half of which are random words (which may or may not share a
+ * prefix with words of the trie); each benchmark operation is one search at
+ * the start of one of these words.</p>
+ *
+ * @see TrieFootprint
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieBenchmark
+{
+    private static final int LOOKUPS = 1024;
+
+    @Param({ "nodes", "compact" })
+    public String representation;
+
+    @Param({ "1000", "10000", "100000" })
+    public int words;
+
+    private Trie trie;
+    private InputBuffer buffer;
+    private final int[] offsets = new int[LOOKUPS];
+
+    @Setup
+    public void setup()
+    {
+        final String[] list = TrieBenchmarks.words(words);
+        trie = TrieBenchmarks.create(representation, list);
+
+        final Random random = new Random(words);
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            offsets[i] = sb.length();
+            sb.append(i % 2 == 0 ? list[random.nextInt(words)]
+                : TrieBenchmarks.randomWord(random)).append(' ');
+        }
+
+        buffer = new CharSequenceInputBuffer(sb);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int search()
+    {
+        int ret = 0;
+        for (final int offset: offsets)
+            ret += trie.search(buffer, offset, false);
+        return ret;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int searchIgnoreCase()
+    {
+        int ret = 0;
+        for (final int offset: offsets)
+            ret += trie.search(buffer, offset, true);
+        return ret;
+    }
+}
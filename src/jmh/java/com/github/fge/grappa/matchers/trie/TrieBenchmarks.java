@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fge.grappa.matchers.trie;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Word sets and tries for the trie benchmarks
+ */
+final class TrieBenchmarks
+{
+    private static final long SEED = 42L;
+
+    private TrieBenchmarks()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Generate a set of distinct lowercase words
+     *
+     * @param nrWords the number of words
+     * @return the words, always the same for a given number of words
+     */
+    static String[] words(final int nrWords)
+    {
+        final Random random = new Random(SEED);
+        final Set<String> words = new LinkedHashSet<>(nrWords);
+
+        while (words.size() < nrWords)
+            words.add(randomWord(random));
+
+        return words.toArray(new String[nrWords]);
+    }
+
+    /**
+     * Generate a random lowercase word of 4 to 12 characters
+     *
+     * @param random the random number generator
+     * @return a word
+     */
+    static String randomWord(final Random random)
+    {
+        final int length = 4 + random.nextInt(9);
+        final StringBuilder sb = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++)
+            sb.append((char) ('a' + random.nextInt(26)));
+
+        return sb.toString();
+    }
+
+    /**
+     * Build a trie
+     *
+     * @param representation "nodes" or "compact"
+     * @param words the words
+     * @return the trie
+     */
+    static Trie create(final String representation, final String[] words)
+    {
+        final TrieBuilder builder = Trie.newBuilder();
+
+        switch (representation) {
+            case "nodes":
+                break;
+            case "compact":
+                builder.compact();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown representation "
+                    + representation);
+        }
+
+        for (final String word: words)
+            builder.addWord(word);
+
+        return builder.build();
+    }
+}
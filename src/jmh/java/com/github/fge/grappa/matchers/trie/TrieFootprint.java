@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.fge.grappa.matchers.trie;
+
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Memory footprint of trie representations
+ *
+ * <p>This is not a JMH benchmark; it prints the retained size, in bytes, of
+ * tries built with each representation from the same word sets as {@link
+ * TrieBenchmark}. Run with:</p>
+ *
+ * <pre>
+ *     gradle jmhFootprint
+ * </pre>
+ */
+public final class TrieFootprint
+{
+    private static final int[] WORD_COUNTS = { 1000, 10000, 100000 };
+    private static final String[] REPRESENTATIONS = { "nodes", "compact" };
+
+    private TrieFootprint()
+    {
+        throw new Error("nice try!");
+    }
+
+    public static void main(final String... args)
+    {
+        String[] words;
+        Trie trie;
+
+        System.out.printf("%-10s %8s %12s%n", "trie", "words", "bytes");
+
+        for (final int count: WORD_COUNTS) {
+            words = TrieBenchmarks.words(count);
+            for (final String representation: REPRESENTATIONS) {
+                trie = TrieBenchmarks.create(representation, words);
+                System.out.printf("%-10s %8d %12d%n", representation, count,
+                    GraphLayout.parseInstance(trie).totalSize());
+            }
+        }
+    }
+}
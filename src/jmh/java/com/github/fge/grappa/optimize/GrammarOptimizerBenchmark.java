@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.optimize;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Original versus optimized rule graph
+ *
+ * <p>The input is a list of statements written in a small, C-like language;
+ * keywords and operators are written as {@code firstOf()}s of rules, and
+ * several rules use nested sequences and {@code firstOf()}s, as grammars
+ * usually do.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrammarOptimizerBenchmark
+{
+    @Param({ "original", "optimized" })
+    public String grammar;
+
+    @Param({ "100", "1000" })
+    public int statements;
+
+    private ParseRunner<Object> runner;
+    private String input;
+
+    static class StatementsParser
+        extends BaseParser<Object>
+    {
+        public Rule statements()
+        {
+            return sequence(spacing(), zeroOrMore(statement()), EOI);
+        }
+
+        Rule statement()
+        {
+            return sequence(firstOf(
+                sequence(keyword(), spacing(), '(', spacing(), expression(),
+                    ')', spacing()),
+                sequence(identifier(), spacing(), sequence('=', spacing()),
+                    expression())
+            ), ';', spacing());
+        }
+
+        Rule expression()
+        {
+            return sequence(term(), zeroOrMore(operator(), spacing(), term()));
+        }
+
+        Rule term()
+        {
+            return sequence(firstOf(number(), identifier()), spacing());
+        }
+
+        Rule keyword()
+        {
+            return firstOf(kwIf(), kwWhile(), kwReturn(), kwSwitch());
+        }
+
+        Rule kwIf()
+        {
+            return string("if");
+        }
+
+        Rule kwWhile()
+        {
+            return string("while");
+        }
+
+        Rule kwReturn()
+        {
+            return string("return");
+        }
+
+        Rule kwSwitch()
+        {
+            return string("switch");
+        }
+
+        Rule operator()
+        {
+            return firstOf(sequence('<', '='), sequence('>', '='),
+                sequence('=', '='), sequence('!', '='), firstOf('+', '-'),
+                firstOf('*', '/'), '<', '>');
+        }
+
+        Rule identifier()
+        {
+            return sequence(firstOf(charRange('a', 'z'), charRange('A', 'Z'),
+                '_'), zeroOrMore(firstOf(charRange('a', 'z'),
+                charRange('A', 'Z'), '_', charRange('0', '9'))));
+        }
+
+        Rule number()
+        {
+            return sequence(optional('-'), oneOrMore(digit()));
+        }
+
+        Rule spacing()
+        {
+            return zeroOrMore(firstOf(' ', '\t', '\r', '\n'));
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        final StatementsParser parser
+            = Grappa.createParser(StatementsParser.class);
+        final Rule rule = "optimized".equals(grammar)
+            ? Grappa.optimize(parser.statements()).getRule()
+            : parser.statements();
+        runner = new ListeningParseRunner<>(rule);
+        input = Strings.repeat("while (count <= limit_2 * 10);\n"
+            + "total = total + count - -3;\nif (x != y);\n", statements);
+    }
+
+    @Benchmark
+    public ParsingResult<Object> parse()
+    {
+        final ParsingResult<Object> result = runner.run(input);
+        if (!result.isSuccess())
+            throw new IllegalStateException("parsing failed");
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.IndexRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the parallel parse runner with the number of threads
+ *
+ * <p>The input is a list of CSV records; the "sequential" runner is a {@link
+ * RecordParseRunner} whose handler collects the values of all records, the
+ * other ones are {@link ParallelParseRunner}s with a pool of the given
+ * parallelism.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelParseRunnerBenchmark
+{
+    @Param({ "sequential", "1", "2", "4", "8" })
+    public String threads;
+
+    @Param({ "100000" })
+    public int records;
+
+    private ForkJoinPool pool;
+    private ParseRunner<String> runner;
+    private InputBuffer buffer;
+
+    // Values of the sequential runner; the parallel runners collect them too
+    private final List<String> collected = new ArrayList<>();
+
+    static class CsvParser
+        extends BaseParser<String>
+    {
+        Rule line()
+        {
+            return sequence(field(), zeroOrMore(',', field()), '\n');
+        }
+
+        Rule field()
+        {
+            return firstOf(
+                sequence('"', zeroOrMore(noneOf("\"")), push(match()), '"'),
+                sequence(zeroOrMore(noneOf(",\n")), push(match()))
+            );
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        final CsvParser parser = Grappa.createParser(CsvParser.class);
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < records; i++)
+            sb.append(i).append(",\"some, quoted text\",")
+                .append(i * 31).append(",plain text\n");
+
+        buffer = new CharSequenceInputBuffer(sb.toString());
+
+        if ("sequential".equals(threads)) {
+            runner = new RecordParseRunner<>(parser.line(),
+                new RecordHandler<String>()
+                {
+                    @Override
+                    public void handleRecord(
+                        final ValueStack<String> values,
+                        final IndexRange range)
+                    {
+                        for (final String value: values)
+                            collected.add(value);
+                    }
+                });
+            return;
+        }
+
+        pool = new ForkJoinPool(Integer.parseInt(threads));
+        runner = new ParallelParseRunner<>(parser.line(), '\n', pool);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    @Benchmark
+    public ParsingResult<String> parse()
+    {
+        collected.clear();
+        final ParsingResult<String> result = runner.run(buffer);
+        if (!result.isSuccess())
+            throw new IllegalStateException("parsing failed");
+        return result;
+    }
+}
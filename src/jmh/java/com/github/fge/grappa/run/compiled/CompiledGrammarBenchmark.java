@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.compiled;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.CompiledParseRunner;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interpreted versus compiled matchers
+ *
+ * <p>The input is a list of JSON-like values; values are pushed onto the stack
+ * by actions, but the tokens themselves (numbers, strings, keywords, white
+ * space) are context free and can be compiled.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledGrammarBenchmark
+{
+    @Param({ "interpreted", "compiled" })
+    public String runnerType;
+
+    @Param({ "100", "1000" })
+    public int values;
+
+    private ParseRunner<Object> runner;
+    private String input;
+
+    static class ValuesParser
+        extends BaseParser<Object>
+    {
+        public Rule values()
+        {
+            return sequence(spacing(), join(value()).using(separator()).min(0),
+                spacing(), EOI);
+        }
+
+        Rule value()
+        {
+            return firstOf(
+                sequence(keyword(), push(match())),
+                sequence(string(), push(match())),
+                sequence(number(), push(match())),
+                sequence('[', spacing(), join(value()).using(separator())
+                    .min(0), spacing(), ']')
+            );
+        }
+
+        Rule separator()
+        {
+            return sequence(spacing(), ',', spacing());
+        }
+
+        Rule keyword()
+        {
+            return sequence(firstOf("null", "true", "false"),
+                testNot(charRange('a', 'z')));
+        }
+
+        Rule string()
+        {
+            return sequence('"',
+                zeroOrMore(firstOf(sequence('\\', ANY), noneOf("\"\\"))), '"');
+        }
+
+        Rule number()
+        {
+            return sequence(optional('-'),
+                firstOf('0', sequence(charRange('1', '9'), zeroOrMore(digit()))),
+                optional('.', oneOrMore(digit())));
+        }
+
+        Rule spacing()
+        {
+            return zeroOrMore(anyOf(" \t\r\n"));
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        final ValuesParser parser = Grappa.createParser(ValuesParser.class);
+        runner = "compiled".equals(runnerType)
+            ? new CompiledParseRunner<>(parser.values())
+            : new ListeningParseRunner<>(parser.values());
+        input = Strings.repeat("-12.5, \"f\\\"oo\", [true, null],\n"
+            + "false, 42, ", values) + '0';
+    }
+
+    @Benchmark
+    public ParsingResult<Object> parse()
+    {
+        final ParsingResult<Object> result = runner.run(input);
+        if (!result.isSuccess())
+            throw new IllegalStateException("parsing failed");
+        return result;
+    }
+}
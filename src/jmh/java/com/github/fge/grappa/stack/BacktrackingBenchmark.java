@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value stack implementations under heavy backtracking
+ *
+ * <p>Each record of the input is matched by the last of three alternatives,
+ * all of which push values onto the stack before failing. Since values of
+ * previous records remain on the stack, the stack grows with the input.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BacktrackingBenchmark
+{
+    @Param({ "default", "array", "journal", "persistent" })
+    public String implementation;
+
+    @Param({ "100", "1000" })
+    public int records;
+
+    private ParseRunner<Object> runner;
+    private String input;
+
+    static class BacktrackingParser
+        extends BaseParser<Object>
+    {
+        public Rule records()
+        {
+            return sequence(oneOrMore(record()), EOI);
+        }
+
+        Rule record()
+        {
+            return firstOf(
+                sequence(pair(), ';', push("semicolon")),
+                sequence(pair(), ',', push("comma")),
+                sequence(pair(), '\n', push("newline"))
+            );
+        }
+
+        Rule pair()
+        {
+            return sequence(word(), push(match()), '=', word(), push(match()));
+        }
+
+        Rule word()
+        {
+            return oneOrMore(charRange('a', 'z'));
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        final BacktrackingParser parser
+            = Grappa.createParser(BacktrackingParser.class);
+        runner = new ListeningParseRunner<>(parser.records(),
+            new Supplier<ValueStack<Object>>()
+            {
+                @Override
+                public ValueStack<Object> get()
+                {
+                    return ValueStackBenchmarks.create(implementation);
+                }
+            });
+        input = Strings.repeat("key=value\n", records);
+    }
+
+    @Benchmark
+    public ParsingResult<Object> parse()
+    {
+        final ParsingResult<Object> result = runner.run(input);
+        if (!result.isSuccess())
+            throw new IllegalStateException("parsing failed");
+        return result;
+    }
+}
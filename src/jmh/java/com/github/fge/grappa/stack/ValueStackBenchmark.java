@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push/pop/swap costs of the different {@link ValueStack} implementations
+ *
+ * <p>Each benchmark creates a new stack, fills it to the given depth, then
+ * works on it. A new stack is used each time since the journal of a {@link
+ * JournalingValueStack} is only trimmed by restores.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueStackBenchmark
+{
+    private static final Object VALUE = new Object();
+
+    @Param({ "default", "array", "journal", "persistent" })
+    public String implementation;
+
+    @Param({ "16", "256", "4096" })
+    public int depth;
+
+    @Benchmark
+    public void pushThenPopAll(final Blackhole blackhole)
+    {
+        final ValueStack<Object> stack
+            = ValueStackBenchmarks.create(implementation);
+
+        for (int i = 0; i < depth; i++)
+            stack.push(VALUE);
+        while (!stack.isEmpty())
+            blackhole.consume(stack.pop());
+    }
+
+    @Benchmark
+    public void pushDupPeekPokePop(final Blackhole blackhole)
+    {
+        final ValueStack<Object> stack
+            = ValueStackBenchmarks.create(implementation);
+
+        for (int i = 0; i < depth; i++) {
+            stack.push(VALUE);
+            stack.dup();
+            blackhole.consume(stack.peek());
+            stack.poke(VALUE);
+            stack.pop();
+        }
+        blackhole.consume(stack);
+    }
+
+    /*
+     * What a sequence matcher does: snapshot, push a value, and restore the
+     * snapshot on failure
+     */
+    @Benchmark
+    public ValueStack<Object> snapshotPushRestore()
+    {
+        final ValueStack<Object> stack
+            = ValueStackBenchmarks.create(implementation);
+
+        for (int i = 0; i < depth; i++)
+            stack.push(VALUE);
+        Object snapshot;
+        for (int i = 0; i < depth; i++) {
+            snapshot = stack.takeSnapshot();
+            stack.push(VALUE);
+            stack.restoreSnapshot(snapshot);
+        }
+        return stack;
+    }
+
+    @Benchmark
+    public ValueStack<Object> swapTopPairs()
+    {
+        final ValueStack<Object> stack
+            = ValueStackBenchmarks.create(implementation);
+
+        for (int i = 0; i < depth; i++)
+            stack.push(VALUE);
+        for (int i = 0; i < depth; i++)
+            stack.swap();
+        return stack;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+/**
+ * Value stack factory shared by all stack benchmarks
+ */
+final class ValueStackBenchmarks
+{
+    private ValueStackBenchmarks()
+    {
+        throw new Error("nice try!");
+    }
+
+    static ValueStack<Object> create(final String implementation)
+    {
+        switch (implementation) {
+            case "default":
+                return new DefaultValueStack<>();
+            case "array":
+                return new ArrayValueStack<>();
+            case "journal":
+                return new JournalingValueStack<>();
+            case "persistent":
+                return new PersistentValueStack<>();
+            default:
+                throw new IllegalArgumentException("unknown value stack "
+                    + "implementation " + implementation);
+        }
+    }
+}
@@ -17,13 +17,34 @@
 package com.github.fge.grappa;
 
 import com.github.fge.grappa.exceptions.InvalidGrammarException;
+import com.github.fge.grappa.misc.RuleGraphFreezer;
+import com.github.fge.grappa.optimize.GrammarOptimizer;
+import com.github.fge.grappa.optimize.OptimizationReport;
 import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.context.ContextAware;
+import com.github.fge.grappa.support.Var;
+import com.github.fge.grappa.transform.ParserClassCache;
+import com.github.fge.grappa.transform.ParserClassWriter;
 import com.github.fge.grappa.transform.ParserTransformer;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.lang.reflect.Constructor;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Main class providing the high-level entry point into the parboiled library.
@@ -52,6 +73,11 @@ public final class Grappa
      * milliseconds for large grammars. However, this cost is only incurred once
      * per parser class and class loader. Subsequent calls to this method are
      * therefore fast once the initial extension has been performed.</p>
+     * <p>This cost can also be paid at build time: if the extended parser
+     * class has been generated ahead of time by {@link ParserClassWriter} and
+     * is found in the class path of the parser class, it is used instead.
+     * Generated classes can also be cached on disk across runs; see {@link
+     * #setClassCacheDirectory(Path)}.</p>
      *
      * @param parserClass the type of the parser to create
      * @param constructorArgs optional arguments to the parser class constructor
@@ -75,6 +101,178 @@ public final class Grappa
         }
     }
 
+    /**
+     * Create parsers for several parser classes in parallel
+     *
+     * <p>The parser classes are transformed concurrently on a thread pool
+     * which has as many threads as there are available processors (at most
+     * one per parser class). Parsers are created using their no-argument
+     * constructor.</p>
+     *
+     * @param parserClasses the parser classes
+     * @return the parsers, in the same order as the parser classes
+     * @throws IllegalArgumentException one of the classes is not a parser
+     * class
+     *
+     * @see #createParsers(ExecutorService, Class[])
+     */
+    @Nonnull
+    public static List<BaseParser<?>> createParsers(
+        @Nonnull final Class<?>... parserClasses)
+    {
+        final int nrThreads = Math.min(parserClasses.length,
+            Runtime.getRuntime().availableProcessors());
+
+        if (nrThreads == 0)
+            return ImmutableList.of();
+
+        final ExecutorService executor
+            = Executors.newFixedThreadPool(nrThreads);
+
+        try {
+            return createParsers(executor, parserClasses);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Create parsers for several parser classes in parallel, using the given
+     * executor
+     *
+     * @param executor the executor to transform the parser classes with
+     * @param parserClasses the parser classes
+     * @return the parsers, in the same order as the parser classes
+     * @throws IllegalArgumentException one of the classes is not a parser
+     * class
+     *
+     * @see #createParser(Class, Object...)
+     */
+    @Nonnull
+    public static List<BaseParser<?>> createParsers(
+        @Nonnull final ExecutorService executor,
+        @Nonnull final Class<?>... parserClasses)
+    {
+        Objects.requireNonNull(executor, "executor");
+        Objects.requireNonNull(parserClasses, "parserClasses");
+
+        for (final Class<?> parserClass: parserClasses)
+            Preconditions.checkArgument(
+                BaseParser.class.isAssignableFrom(parserClass),
+                "%s is not a parser class", parserClass);
+
+        final List<Future<BaseParser<?>>> futures
+            = new ArrayList<>(parserClasses.length);
+
+        for (final Class<?> parserClass: parserClasses)
+            futures.add(executor.submit(new Callable<BaseParser<?>>()
+            {
+                @Override
+                public BaseParser<?> call()
+                {
+                    @SuppressWarnings("unchecked")
+                    final Class<? extends BaseParser<Object>> c
+                        = (Class<? extends BaseParser<Object>>) parserClass;
+                    return createParser(c);
+                }
+            }));
+
+        final ImmutableList.Builder<BaseParser<?>> builder
+            = ImmutableList.builder();
+
+        try {
+            for (final Future<BaseParser<?>> future: futures)
+                builder.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while creating parsers",
+                e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            for (final Future<BaseParser<?>> future: futures)
+                future.cancel(true);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Freeze a rule so that it can be run from several threads at once
+     *
+     * <p>By default, a parser and its rules are meant to be used by one
+     * thread at a time: actions store the current context in the parser, and
+     * {@link Var}s store their values in themselves. Once frozen, the rule
+     * graph is never modified again and this state is kept per thread, so
+     * that a single parser instance, and the frozen rule, can be shared by
+     * all threads; each thread still needs its own {@link ParseRunner}.</p>
+     *
+     * <p>Build all rules, and freeze them, before sharing them with other
+     * threads. Calling rule methods of a parser from several threads at once
+     * is safe, but rules built after freezing are not frozen.</p>
+     *
+     * <p>Only {@link Var}s declared in rule methods, or held in fields of
+     * actions, are kept per thread. {@link Var}s and other mutable objects held
+     * in fields of the parser are still shared by all threads, and actions of
+     * a frozen rule must not modify them. Actions which implement {@link
+     * ContextAware}, or reference a {@link ContextAware} object other than a
+     * parser, are rejected.</p>
+     *
+     * <p>Note: the last context of each thread is retained by the parser
+     * until this thread runs a new parse.</p>
+     *
+     * @param rule the rule
+     * @return the frozen rule, to be used by parse runners
+     * @throws IllegalArgumentException an action of the rule cannot be shared
+     * by threads
+     *
+     * @see RuleGraphFreezer
+     */
+    @Nonnull
+    public static Rule freeze(@Nonnull final Rule rule)
+    {
+        return RuleGraphFreezer.freeze(rule);
+    }
+
+    /**
+     * Optimize a rule graph
+     *
+     * <p>This is optional: the optimized graph matches the same input, and
+     * runs the same actions, as the original one, but with fewer and faster
+     * matchers; nested sequences and {@code firstOf()}s are flattened, and
+     * characters and strings are merged where possible. The rule graph is
+     * modified in place; use the rule returned in the report.</p>
+     *
+     * @param rule the rule
+     * @return a report of the changes, with the rule to use
+     *
+     * @see GrammarOptimizer
+     */
+    @Nonnull
+    public static OptimizationReport optimize(@Nonnull final Rule rule)
+    {
+        return GrammarOptimizer.optimize(rule);
+    }
+
+    /**
+     * Enable or disable the on-disk cache of generated parser classes
+     *
+     * <p>When enabled, the classes generated for a parser class are written to
+     * this directory, and loaded from it instead of generated again the next
+     * time this parser class is used, as long as its bytecode has not changed.
+     * The cache can also be enabled at startup by setting the {@value
+     * ParserClassCache#DIRECTORY_PROPERTY} system property.</p>
+     *
+     * @param directory the cache directory; null disables the cache
+     *
+     * @see ParserClassCache
+     */
+    public static void setClassCacheDirectory(@Nullable final Path directory)
+    {
+        ParserTransformer.setClassCache(directory == null ? null
+            : new ParserClassCache(directory));
+    }
+
     /**
      * Generate the byte code of a transformed parser class
      *
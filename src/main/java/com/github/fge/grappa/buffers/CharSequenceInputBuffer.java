@@ -49,7 +49,7 @@ import java.util.regex.Pattern;
  */
 @Immutable
 public final class CharSequenceInputBuffer
-    implements InputBuffer
+    implements RegionMatchingInputBuffer
 {
     private static final ExecutorService EXECUTOR_SERVICE;
 
@@ -105,6 +105,35 @@ public final class CharSequenceInputBuffer
         return Character.isLowSurrogate(c2) ? Character.toCodePoint(c, c2) : c;
     }
 
+    @Override
+    public boolean regionMatches(final int index, final CharSequence needle,
+        final boolean ignoreCase)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        final int len = needle.length();
+        if (len > charSequence.length() - index)
+            return false;
+
+        if (charSequence instanceof String && needle instanceof String)
+            return ((String) charSequence).regionMatches(ignoreCase, index,
+                (String) needle, 0, len);
+
+        char c1, c2;
+
+        for (int i = 0; i < len; i++) {
+            c1 = charSequence.charAt(index + i);
+            c2 = needle.charAt(i);
+            if (c1 == c2)
+                continue;
+            if (!ignoreCase || !Chars.equalsIgnoreCase(c1, c2))
+                return false;
+        }
+
+        return true;
+    }
+
     @Override
     public String extract(final int start, final int end)
     {
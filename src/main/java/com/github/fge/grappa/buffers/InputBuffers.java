@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Utility methods for {@link InputBuffer}s
+ */
+@ParametersAreNonnullByDefault
+public final class InputBuffers
+{
+    private InputBuffers()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Tells whether the contents of a buffer at a given index match a given
+     * character sequence
+     *
+     * <p>If the buffer is a {@link RegionMatchingInputBuffer}, this delegates
+     * to its {@link RegionMatchingInputBuffer#regionMatches(int, CharSequence,
+     * boolean) regionMatches()} method; otherwise, the matching region is
+     * extracted and compared to the needle.</p>
+     *
+     * @param buffer the input buffer
+     * @param index the index
+     * @param needle the character sequence to compare to
+     * @param ignoreCase whether the comparison should ignore case
+     * @return true if the characters match
+     */
+    public static boolean regionMatches(final InputBuffer buffer,
+        final int index, final CharSequence needle, final boolean ignoreCase)
+    {
+        if (buffer instanceof RegionMatchingInputBuffer)
+            return ((RegionMatchingInputBuffer) buffer).regionMatches(index,
+                needle, ignoreCase);
+
+        final String s = needle.toString();
+        final int end = index + s.length();
+
+        if (end > buffer.length())
+            return false;
+
+        final String region = buffer.extract(index, end);
+
+        return ignoreCase ? region.equalsIgnoreCase(s) : region.equals(s);
+    }
+}
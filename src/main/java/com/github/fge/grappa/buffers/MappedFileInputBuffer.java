@@ -0,0 +1,523 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An {@link InputBuffer} over a memory mapped file
+ *
+ * <p>The file is mapped in memory and decoded on the fly; its contents are
+ * never held in memory as characters. The supported charsets are:</p>
+ *
+ * <ul>
+ *     <li>{@code ISO-8859-1} and {@code US-ASCII}: a character index is then
+ *     the same as a byte offset;</li>
+ *     <li>{@code UTF-8}: the file is read once when the buffer is created,
+ *     in order to build a table of the byte offsets of one character out of
+ *     64; characters outside the basic multilingual plane are
+ *     seen as surrogate pairs.</li>
+ * </ul>
+ *
+ * <p>Bytes which cannot be decoded (bytes outside of the ASCII range with
+ * {@code US-ASCII}, malformed sequences with {@code UTF-8}) are decoded as
+ * {@code U+FFFD}, one per byte.</p>
+ *
+ * <p>The line table is also built when the buffer is created. The number of
+ * characters in the file must not exceed {@link Integer#MAX_VALUE}.</p>
+ *
+ * <p>For each thread reading it, this class remembers the position of the
+ * last character decoded, so that sequential reads are fast; an instance can
+ * therefore be read from several threads at once (for instance, by a {@link
+ * com.github.fge.grappa.run.ParallelParseRunner}).</p>
+ */
+@ThreadSafe
+public final class MappedFileInputBuffer
+    implements RegionMatchingInputBuffer
+{
+    private static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    private static final int STRIDE_SHIFT = 6;
+    private static final int STRIDE = 1 << STRIDE_SHIFT;
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final MappedByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final long size;
+
+    private final boolean utf8;
+    private final boolean asciiOnly;
+    private final int length;
+
+    /*
+     * UTF-8 only: for each index i, the byte offset of the code point
+     * containing character i * STRIDE, shifted left by one; the lowest bit is
+     * set if this character is the low surrogate of the code point
+     */
+    private final long[] anchors;
+
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    /*
+     * UTF-8 only: the cursor of each thread
+     */
+    private final ThreadLocal<Cursor> cursors = new ThreadLocal<Cursor>()
+    {
+        @Override
+        protected Cursor initialValue()
+        {
+            return new Cursor();
+        }
+    };
+
+    /**
+     * Map a file in memory
+     *
+     * @param path the path to the file
+     * @param charset the charset of the file
+     * @throws IOException failed to map the file
+     * @throws IllegalArgumentException the charset is not supported, or the
+     * file has too many characters
+     */
+    public MappedFileInputBuffer(@Nonnull final Path path,
+        @Nonnull final Charset charset)
+        throws IOException
+    {
+        this(path, charset, DEFAULT_CHUNK_SHIFT);
+    }
+
+    @VisibleForTesting
+    MappedFileInputBuffer(final Path path, final Charset charset,
+        final int chunkShift)
+        throws IOException
+    {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(charset, "charset");
+
+        utf8 = StandardCharsets.UTF_8.equals(charset);
+        asciiOnly = StandardCharsets.US_ASCII.equals(charset);
+        Preconditions.checkArgument(utf8 || asciiOnly
+            || StandardCharsets.ISO_8859_1.equals(charset),
+            "unsupported charset %s", charset);
+
+        this.chunkShift = chunkShift;
+        chunkMask = (1L << chunkShift) - 1L;
+
+        try (
+            final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ);
+        ) {
+            size = channel.size();
+            chunks = map(channel, size, chunkShift);
+        }
+
+        final Tables tables = utf8 ? scanUtf8() : scanBytes();
+        length = tables.length;
+        anchors = tables.anchors;
+        lineStarts = tables.lineStarts;
+        lineCount = tables.lineCount;
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        if (index >= length)
+            return Chars.EOI;
+
+        if (!utf8)
+            return byteToChar(byteAt(index));
+
+        final Cursor cursor = locate(index);
+
+        final int codePoint = decode(cursor.offset);
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT)
+            return (char) codePoint;
+
+        return index == cursor.index ? Character.highSurrogate(codePoint)
+            : Character.lowSurrogate(codePoint);
+    }
+
+    @Override
+    public int codePointAt(final int index)
+    {
+        if (index >= length)
+            return -1;
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        if (!utf8)
+            return byteToChar(byteAt(index));
+
+        final Cursor cursor = locate(index);
+
+        final int codePoint = decode(cursor.offset);
+        if (index == cursor.index)
+            return codePoint;
+
+        // We are on the low surrogate of a pair
+        return Character.lowSurrogate(codePoint);
+    }
+
+    @Override
+    public boolean regionMatches(final int index, final CharSequence needle,
+        final boolean ignoreCase)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        final int len = needle.length();
+        if (len > length - index)
+            return false;
+
+        char c1, c2;
+
+        for (int i = 0; i < len; i++) {
+            c1 = charAt(index + i);
+            c2 = needle.charAt(i);
+            if (c1 == c2)
+                continue;
+            if (!ignoreCase || !Chars.equalsIgnoreCase(c1, c2))
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String extract(final int start, final int end)
+    {
+        final int realStart = Math.max(start, 0);
+        final int realEnd = Math.min(end, length);
+
+        if (realStart >= realEnd)
+            return "";
+
+        final char[] chars = new char[realEnd - realStart];
+
+        if (!utf8) {
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = byteToChar(byteAt(realStart + i));
+            return new String(chars);
+        }
+
+        int index = realStart;
+        int codePoint;
+        int nrChars;
+
+        final Cursor cursor = locate(index);
+
+        while (true) {
+            codePoint = decode(cursor.offset);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                chars[index++ - realStart] = (char) codePoint;
+                nrChars = 1;
+            } else {
+                if (index == cursor.index)
+                    chars[index++ - realStart]
+                        = Character.highSurrogate(codePoint);
+                if (index < realEnd)
+                    chars[index++ - realStart]
+                        = Character.lowSurrogate(codePoint);
+                nrChars = 2;
+            }
+            if (index == realEnd)
+                break;
+            cursor.offset += sequenceLength(cursor.offset);
+            cursor.index += nrChars;
+        }
+
+        return new String(chars);
+    }
+
+    @Override
+    public String extract(final IndexRange range)
+    {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index)
+    {
+        if (index < 0)
+            throw new IllegalStateException();
+
+        final int lineStart;
+
+        if (index >= length) {
+            lineStart = lineStarts[lineCount - 1];
+            return new Position(lineCount, length - lineStart + 1);
+        }
+
+        int line = Arrays.binarySearch(lineStarts, 0, lineCount, index);
+        if (line < 0)
+            line = -line - 2;
+
+        return new Position(line + 1, index - lineStarts[line] + 1);
+    }
+
+    @Override
+    public String extractLine(final int lineNumber)
+    {
+        Preconditions.checkArgument(lineNumber > 0, "line number is negative");
+        final IndexRange range = getLineRange(lineNumber);
+        final int start = range.start;
+        int end = range.end;
+        if (charAt(end - 1) == '\n')
+            end--;
+        if (charAt(end - 1) == '\r')
+            end--;
+        return extract(start, end);
+    }
+
+    @Override
+    public IndexRange getLineRange(final int lineNumber)
+    {
+        // Same as LineCounter: we can get an illegal line number
+        final int line = Math.min(lineNumber, lineCount) - 1;
+        final int end = line == lineCount - 1 ? length : lineStarts[line + 1];
+        return new IndexRange(lineStarts[line], end);
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    private static MappedByteBuffer[] map(final FileChannel channel,
+        final long size, final int chunkShift)
+        throws IOException
+    {
+        final long chunkSize = 1L << chunkShift;
+        final int nrChunks = (int) ((size + chunkSize - 1L) >>> chunkShift);
+        final MappedByteBuffer[] ret = new MappedByteBuffer[nrChunks];
+
+        long position;
+
+        for (int i = 0; i < nrChunks; i++) {
+            position = (long) i << chunkShift;
+            ret[i] = channel.map(MapMode.READ_ONLY, position,
+                Math.min(chunkSize, size - position));
+        }
+
+        return ret;
+    }
+
+    private int byteAt(final long offset)
+    {
+        return chunks[(int) (offset >>> chunkShift)]
+            .get((int) (offset & chunkMask)) & 0xff;
+    }
+
+    private char byteToChar(final int b)
+    {
+        return asciiOnly && b > 0x7f ? REPLACEMENT : (char) b;
+    }
+
+    /*
+     * Move the cursor of the current thread to the code point containing the
+     * character at this index, and return it; the index must be lower than the
+     * length
+     */
+    private Cursor locate(final int index)
+    {
+        final Cursor cursor = cursors.get();
+
+        if (index < cursor.index || index - cursor.index >= STRIDE) {
+            final int anchor = index >>> STRIDE_SHIFT;
+            final long value = anchors[anchor];
+            cursor.offset = value >>> 1;
+            cursor.index = (anchor << STRIDE_SHIFT) - (int) (value & 1L);
+        }
+
+        int len;
+
+        while (true) {
+            len = sequenceLength(cursor.offset);
+            if (index < cursor.index + (len == 4 ? 2 : 1))
+                return cursor;
+            cursor.index += len == 4 ? 2 : 1;
+            cursor.offset += len;
+        }
+    }
+
+    private boolean isContinuation(final long offset)
+    {
+        return offset < size && (byteAt(offset) & 0xc0) == 0x80;
+    }
+
+    /*
+     * Length of the UTF-8 sequence at this offset; a malformed sequence has
+     * length 1
+     */
+    private int sequenceLength(final long offset)
+    {
+        final int b0 = byteAt(offset);
+
+        if (b0 < 0xc2)
+            return 1;
+
+        if (!isContinuation(offset + 1))
+            return 1;
+
+        if (b0 < 0xe0)
+            return 2;
+
+        final int b1 = byteAt(offset + 1);
+
+        if (b0 < 0xf0) {
+            if (b0 == 0xe0 && b1 < 0xa0 || b0 == 0xed && b1 > 0x9f)
+                return 1;
+            return isContinuation(offset + 2) ? 3 : 1;
+        }
+
+        if (b0 > 0xf4 || b0 == 0xf0 && b1 < 0x90 || b0 == 0xf4 && b1 > 0x8f)
+            return 1;
+
+        return isContinuation(offset + 2) && isContinuation(offset + 3) ? 4
+            : 1;
+    }
+
+    private int decode(final long offset)
+    {
+        final int b0 = byteAt(offset);
+
+        switch (sequenceLength(offset)) {
+            case 2:
+                return (b0 & 0x1f) << 6 | byteAt(offset + 1) & 0x3f;
+            case 3:
+                return (b0 & 0x0f) << 12 | (byteAt(offset + 1) & 0x3f) << 6
+                    | byteAt(offset + 2) & 0x3f;
+            case 4:
+                return (b0 & 0x07) << 18 | (byteAt(offset + 1) & 0x3f) << 12
+                    | (byteAt(offset + 2) & 0x3f) << 6
+                    | byteAt(offset + 3) & 0x3f;
+            default:
+                return b0 < 0x80 ? b0 : REPLACEMENT;
+        }
+    }
+
+    private Tables scanBytes()
+    {
+        Preconditions.checkArgument(size <= Integer.MAX_VALUE,
+            "file too large");
+
+        final Tables tables = new Tables();
+        final int len = (int) size;
+
+        for (int index = 0; index < len; index++)
+            if (byteAt(index) == '\n')
+                tables.addLineStart(index + 1);
+
+        tables.length = len;
+        return tables;
+    }
+
+    private Tables scanUtf8()
+    {
+        final Tables tables = new Tables();
+
+        long offset = 0L;
+        long index = 0L;
+        int len;
+        int nrChars;
+
+        while (offset < size) {
+            len = sequenceLength(offset);
+            nrChars = len == 4 ? 2 : 1;
+
+            if ((index & STRIDE - 1) == 0L)
+                tables.addAnchor(offset << 1);
+            else if (nrChars == 2 && (index + 1L & STRIDE - 1) == 0L)
+                tables.addAnchor(offset << 1 | 1L);
+
+            index += nrChars;
+            Preconditions.checkArgument(index <= Integer.MAX_VALUE,
+                "file too large");
+
+            if (len == 1 && byteAt(offset) == '\n')
+                tables.addLineStart((int) index);
+
+            offset += len;
+        }
+
+        tables.length = (int) index;
+        return tables;
+    }
+
+    /*
+     * The character index, and byte offset, of the start of the last code
+     * point decoded by a thread
+     */
+    private static final class Cursor
+    {
+        private int index = 0;
+        private long offset = 0L;
+    }
+
+    private static final class Tables
+    {
+        private int length;
+        private long[] anchors = new long[16];
+        private int nrAnchors = 0;
+        private int[] lineStarts = new int[16];
+        private int lineCount = 1;
+
+        private void addAnchor(final long anchor)
+        {
+            if (nrAnchors == anchors.length)
+                anchors = Arrays.copyOf(anchors, nrAnchors << 1);
+            anchors[nrAnchors++] = anchor;
+        }
+
+        private void addLineStart(final int index)
+        {
+            if (lineCount == lineStarts.length)
+                lineStarts = Arrays.copyOf(lineStarts, lineCount << 1);
+            lineStarts[lineCount++] = index;
+        }
+    }
+}
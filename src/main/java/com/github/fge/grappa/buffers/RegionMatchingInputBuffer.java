@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+/**
+ * An {@link InputBuffer} which can compare its contents with a character
+ * sequence without extracting them
+ *
+ * <p>This is an optional capability: callers should go through {@link
+ * InputBuffers#regionMatches(InputBuffer, int, CharSequence, boolean)}, which
+ * falls back to {@link InputBuffer#extract(int, int)} for other buffers.</p>
+ */
+public interface RegionMatchingInputBuffer
+    extends InputBuffer
+{
+    /**
+     * Tells whether the buffer contents at a given index match a given
+     * character sequence
+     *
+     * <p>This is equivalent to {@code extract(index, index +
+     * needle.length())} followed by a comparison with the needle, except that
+     * no string is created.</p>
+     *
+     * <p>If the buffer has fewer than {@code needle.length()} characters left
+     * at this index, this method returns false. When comparing without regard
+     * to case, characters are compared the same way {@link
+     * String#equalsIgnoreCase(String)} does.</p>
+     *
+     * @param index the index
+     * @param needle the character sequence to compare to
+     * @param ignoreCase whether the comparison should ignore case
+     * @return true if the characters match
+     *
+     * @throws IllegalArgumentException index is negative
+     */
+    boolean regionMatches(int index, CharSequence needle, boolean ignoreCase);
+}
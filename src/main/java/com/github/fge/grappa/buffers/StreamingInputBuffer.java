@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An {@link InputBuffer} reading its input from a {@link Reader} as needed
+ *
+ * <p>Characters are read in chunks, when an index past the characters read so
+ * far is requested. Chunks below a <em>commit point</em> are discarded; a
+ * commit point is set using {@link #commit(int)}, or the {@link
+ * com.github.fge.grappa.parsers.BaseActions#commitInput()} action. Memory use
+ * therefore depends on the distance between the commit point and the furthest
+ * index read, not on the size of the input.</p>
+ *
+ * <p>Characters below the commit point cannot be read anymore; trying to do
+ * so (for instance, by calling {@code match()} in an action for a rule which
+ * started before the commit point) throws an {@link IllegalStateException}.
+ * </p>
+ *
+ * <p>Note that {@link #length()} and {@link #getLineCount()} need to read all
+ * of the remaining input; this is also the case for rules using regular
+ * expressions. The total number of characters read must not exceed {@link
+ * Integer#MAX_VALUE}.</p>
+ *
+ * <p>The reader is never closed by this class.</p>
+ */
+@NotThreadSafe
+public final class StreamingInputBuffer
+    implements RegionMatchingInputBuffer
+{
+    private static final int DEFAULT_CHUNK_SHIFT = 13;
+
+    private final Reader reader;
+    private final int chunkShift;
+    private final int chunkSize;
+    private final int chunkMask;
+
+    /*
+     * The chunks; the first nrChunks ones are in use, the others are spare
+     * chunks
+     */
+    private char[][] chunks = new char[4][];
+    private int nrChunks = 0;
+
+    /*
+     * Index of the first character of the first chunk, and index of the end
+     * of the characters read
+     */
+    private int base = 0;
+    private int end = 0;
+    private boolean eof = false;
+
+    /*
+     * lineStarts[i] is the index of the start of line firstLine + i; line
+     * starts below the line containing the commit point are discarded
+     */
+    private int[] lineStarts = new int[16];
+    private int nrLineStarts = 1;
+    private int firstLine = 1;
+
+    /**
+     * Create a buffer reading from a reader
+     *
+     * @param reader the reader
+     */
+    public StreamingInputBuffer(@Nonnull final Reader reader)
+    {
+        this(reader, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * Create a buffer reading from a channel
+     *
+     * @param channel the channel
+     * @param charset the charset to decode the bytes with
+     */
+    public StreamingInputBuffer(@Nonnull final ReadableByteChannel channel,
+        @Nonnull final Charset charset)
+    {
+        this(Channels.newReader(Objects.requireNonNull(channel, "channel"),
+            Objects.requireNonNull(charset, "charset").newDecoder(), -1));
+    }
+
+    @VisibleForTesting
+    StreamingInputBuffer(final Reader reader, final int chunkShift)
+    {
+        this.reader = Objects.requireNonNull(reader, "reader");
+        this.chunkShift = chunkShift;
+        chunkSize = 1 << chunkShift;
+        chunkMask = chunkSize - 1;
+    }
+
+    /**
+     * Set the commit point
+     *
+     * <p>Chunks of characters entirely below this index are discarded. Setting
+     * a commit point below the current one has no effect.</p>
+     *
+     * @param index the index
+     * @throws IllegalArgumentException index is negative, or greater than the
+     * number of characters read so far
+     */
+    public void commit(final int index)
+    {
+        Preconditions.checkArgument(index >= 0, "index is negative");
+        Preconditions.checkArgument(index <= end,
+            "index %s is past the characters read (%s)", index, end);
+
+        final int discarded = (index - base) >> chunkShift;
+
+        if (discarded > 0) {
+            final char[][] spare = Arrays.copyOf(chunks, discarded);
+            System.arraycopy(chunks, discarded, chunks, 0,
+                chunks.length - discarded);
+            System.arraycopy(spare, 0, chunks, chunks.length - discarded,
+                discarded);
+            nrChunks -= discarded;
+            base += discarded << chunkShift;
+        }
+
+        int line = Arrays.binarySearch(lineStarts, 0, nrLineStarts, index);
+        if (line < 0)
+            line = -line - 2;
+
+        if (line > 0) {
+            nrLineStarts -= line;
+            System.arraycopy(lineStarts, line, lineStarts, 0, nrLineStarts);
+            firstLine += line;
+        }
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        while (index >= end && !eof)
+            fill();
+
+        if (index >= end)
+            return Chars.EOI;
+
+        checkCommitted(index);
+        final int offset = index - base;
+        return chunks[offset >> chunkShift][offset & chunkMask];
+    }
+
+    @SuppressWarnings("ImplicitNumericConversion")
+    @Override
+    public int codePointAt(final int index)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        final char c = charAt(index);
+        if (index >= end)
+            return -1;
+        if (!Character.isHighSurrogate(c))
+            return c;
+        final char c2 = charAt(index + 1);
+        if (index + 1 >= end)
+            return c;
+        return Character.isLowSurrogate(c2) ? Character.toCodePoint(c, c2) : c;
+    }
+
+    @Override
+    public boolean regionMatches(final int index, final CharSequence needle,
+        final boolean ignoreCase)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        final int len = needle.length();
+
+        // Make sure that the characters we need are read, if available
+        charAt(Math.max(index + len - 1, 0));
+        if (len > end - index)
+            return false;
+
+        char c1, c2;
+
+        for (int i = 0; i < len; i++) {
+            c1 = charAt(index + i);
+            c2 = needle.charAt(i);
+            if (c1 == c2)
+                continue;
+            if (!ignoreCase || !Chars.equalsIgnoreCase(c1, c2))
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String extract(final int start, final int end)
+    {
+        final int realStart = Math.max(start, 0);
+        if (end > realStart)
+            charAt(end - 1);
+        final int realEnd = Math.min(end, this.end);
+
+        if (realStart >= realEnd)
+            return "";
+
+        checkCommitted(realStart);
+
+        final char[] chars = new char[realEnd - realStart];
+        int index = realStart;
+        int offset, count;
+
+        while (index < realEnd) {
+            offset = index - base;
+            count = Math.min(chunkSize - (offset & chunkMask),
+                realEnd - index);
+            System.arraycopy(chunks[offset >> chunkShift], offset & chunkMask,
+                chars, index - realStart, count);
+            index += count;
+        }
+
+        return new String(chars);
+    }
+
+    @Override
+    public String extract(final IndexRange range)
+    {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index)
+    {
+        if (index < 0)
+            throw new IllegalStateException();
+
+        charAt(index);
+
+        if (index < lineStarts[0])
+            throw new IllegalStateException("index " + index
+                + " is before the commit point");
+
+        if (index >= end) {
+            final int lineStart = lineStarts[nrLineStarts - 1];
+            return new Position(firstLine + nrLineStarts - 1,
+                end - lineStart + 1);
+        }
+
+        int line = Arrays.binarySearch(lineStarts, 0, nrLineStarts, index);
+        if (line < 0)
+            line = -line - 2;
+
+        return new Position(firstLine + line, index - lineStarts[line] + 1);
+    }
+
+    @Override
+    public String extractLine(final int lineNumber)
+    {
+        Preconditions.checkArgument(lineNumber > 0, "line number is negative");
+        final IndexRange range = getLineRange(lineNumber);
+        final int start = range.start;
+        int end = range.end;
+        if (charAt(end - 1) == '\n')
+            end--;
+        if (charAt(end - 1) == '\r')
+            end--;
+        return extract(start, end);
+    }
+
+    @Override
+    public IndexRange getLineRange(final int lineNumber)
+    {
+        // Read until we know where the line ends
+        while (!eof && firstLine + nrLineStarts - 1 <= lineNumber)
+            fill();
+
+        // Same as LineCounter: we can get an illegal line number
+        final int lastLine = firstLine + nrLineStarts - 1;
+        final int line = Math.min(lineNumber, lastLine);
+
+        if (line < firstLine)
+            throw new IllegalStateException("line " + lineNumber
+                + " is before the commit point");
+
+        final int i = line - firstLine;
+        final int lineEnd = line == lastLine ? end : lineStarts[i + 1];
+        return new IndexRange(lineStarts[i], lineEnd);
+    }
+
+    /**
+     * Returns the number of lines in the input buffer
+     *
+     * <p>This reads all of the remaining input.</p>
+     *
+     * @return the number of lines
+     */
+    @Override
+    public int getLineCount()
+    {
+        while (!eof)
+            fill();
+
+        return firstLine + nrLineStarts - 1;
+    }
+
+    /**
+     * Returns the number of characters in the input
+     *
+     * <p>This reads all of the remaining input.</p>
+     *
+     * @return the number of characters
+     */
+    @Override
+    public int length()
+    {
+        while (!eof)
+            fill();
+
+        return end;
+    }
+
+    private void checkCommitted(final int index)
+    {
+        if (index < base)
+            throw new IllegalStateException("index " + index
+                + " is before the commit point");
+    }
+
+    /*
+     * Read characters into the last chunk, adding a chunk if it is full
+     */
+    private void fill()
+    {
+        int offset = end - base - (nrChunks - 1 << chunkShift);
+
+        if (nrChunks == 0 || offset == chunkSize) {
+            if (nrChunks == chunks.length)
+                chunks = Arrays.copyOf(chunks, nrChunks << 1);
+            if (chunks[nrChunks] == null)
+                chunks[nrChunks] = new char[chunkSize];
+            nrChunks++;
+            offset = 0;
+        }
+
+        final char[] chunk = chunks[nrChunks - 1];
+        final int read;
+
+        try {
+            read = reader.read(chunk, offset, chunkSize - offset);
+        } catch (IOException e) {
+            throw new GrappaException("cannot read input", e);
+        }
+
+        if (read == -1) {
+            eof = true;
+            return;
+        }
+
+        Preconditions.checkState(Integer.MAX_VALUE - end >= read,
+            "too many characters in input");
+
+        for (int i = 0; i < read; i++)
+            if (chunk[offset + i] == '\n')
+                addLineStart(end + i + 1);
+
+        end += read;
+    }
+
+    private void addLineStart(final int index)
+    {
+        if (nrLineStarts == lineStarts.length)
+            lineStarts = Arrays.copyOf(lineStarts, nrLineStarts << 1);
+        lineStarts[nrLineStarts++] = index;
+    }
+}
@@ -25,6 +25,7 @@ import com.github.fge.grappa.run.context.ContextAware;
 import com.github.fge.grappa.run.context.MatcherContext;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -84,6 +85,24 @@ public final class ActionMatcher
         }
     }
 
+    public Action<?> getAction()
+    {
+        return action;
+    }
+
+    /**
+     * Get the objects informed of the context before the action runs
+     *
+     * <p>This is empty for actions generated from action expressions, which
+     * set the context themselves.</p>
+     *
+     * @return an unmodifiable list
+     */
+    public List<ContextAware<?>> getContextAwares()
+    {
+        return Collections.unmodifiableList(contextAwares);
+    }
+
     @Override
     public MatcherType getType()
     {
@@ -123,6 +142,7 @@ public final class ActionMatcher
             context.getValueStack().restoreSnapshot(valueStackSnapshot);
             return false;
         }
+        context.getValueStack().releaseSnapshot(valueStackSnapshot);
 
         // since we initialize the actions own context only partially in
         // getSubContext(MatcherContext) (in order to be able to still
@@ -18,13 +18,16 @@ package com.github.fge.grappa.matchers;
 
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
 import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Characters;
 
 /**
  * A {@link Matcher} matching any single character except EOI.
  */
 public final class AnyMatcher
     extends AbstractMatcher
+    implements SingleCharMatcher
 {
     public AnyMatcher()
     {
@@ -37,6 +40,27 @@ public final class AnyMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Tell whether this matcher matches a given character
+     *
+     * <p>Since this matcher matches any character other than end of input,
+     * this method always returns true.</p>
+     *
+     * @param c the character
+     * @return true
+     */
+    @Override
+    public boolean matchesChar(final char c)
+    {
+        return true;
+    }
+
+    @Override
+    public Characters getCharacters()
+    {
+        return Characters.ALL;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
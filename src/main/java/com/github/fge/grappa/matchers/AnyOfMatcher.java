@@ -18,6 +18,7 @@ package com.github.fge.grappa.matchers;
 
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
 import com.google.common.base.Preconditions;
 import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.support.Characters;
@@ -29,6 +30,7 @@ import java.util.Objects;
  */
 public final class AnyOfMatcher
     extends AbstractMatcher
+    implements SingleCharMatcher
 {
     private final Characters characters;
 
@@ -45,11 +47,18 @@ public final class AnyOfMatcher
         return MatcherType.TERMINAL;
     }
 
+    @Override
     public Characters getCharacters()
     {
         return characters;
     }
 
+    @Override
+    public boolean matchesChar(final char c)
+    {
+        return characters.contains(c);
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
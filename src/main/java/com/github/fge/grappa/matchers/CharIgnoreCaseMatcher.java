@@ -18,7 +18,9 @@ package com.github.fge.grappa.matchers;
 
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
 import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Characters;
 
 import static com.github.fge.grappa.support.Chars.escape;
 
@@ -27,6 +29,7 @@ import static com.github.fge.grappa.support.Chars.escape;
  */
 public final class CharIgnoreCaseMatcher
     extends AbstractMatcher
+    implements SingleCharMatcher
 {
     private final char lowerBound;
     private final char upperBound;
@@ -46,6 +49,28 @@ public final class CharIgnoreCaseMatcher
         return MatcherType.TERMINAL;
     }
 
+    public char getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    public char getUpperBound()
+    {
+        return upperBound;
+    }
+
+    @Override
+    public boolean matchesChar(final char c)
+    {
+        return c == lowerBound || c == upperBound;
+    }
+
+    @Override
+    public Characters getCharacters()
+    {
+        return Characters.of(lowerBound, upperBound);
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
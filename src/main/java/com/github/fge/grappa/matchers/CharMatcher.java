@@ -18,7 +18,9 @@ package com.github.fge.grappa.matchers;
 
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
 import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Characters;
 import com.github.fge.grappa.support.Chars;
 
 import static com.github.fge.grappa.support.Chars.escape;
@@ -28,6 +30,7 @@ import static com.github.fge.grappa.support.Chars.escape;
  */
 public final class CharMatcher
     extends AbstractMatcher
+    implements SingleCharMatcher
 {
     private final char character;
 
@@ -43,6 +46,11 @@ public final class CharMatcher
         return MatcherType.TERMINAL;
     }
 
+    public char getCharacter()
+    {
+        return character;
+    }
+
     // TODO: remove...
     private static String getLabel(final char c)
     {
@@ -54,6 +62,18 @@ public final class CharMatcher
         }
     }
 
+    @Override
+    public boolean matchesChar(final char c)
+    {
+        return c == character;
+    }
+
+    @Override
+    public Characters getCharacters()
+    {
+        return Characters.of(character);
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
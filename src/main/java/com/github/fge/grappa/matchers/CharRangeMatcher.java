@@ -18,8 +18,10 @@ package com.github.fge.grappa.matchers;
 
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
 import com.google.common.base.Preconditions;
 import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Characters;
 
 import static com.github.fge.grappa.support.Chars.escape;
 
@@ -29,6 +31,7 @@ import static com.github.fge.grappa.support.Chars.escape;
 @SuppressWarnings("ImplicitNumericConversion")
 public final class CharRangeMatcher
     extends AbstractMatcher
+    implements SingleCharMatcher
 {
     private final char lowerBound;
     private final char upperBound;
@@ -47,6 +50,28 @@ public final class CharRangeMatcher
         return MatcherType.TERMINAL;
     }
 
+    public char getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    public char getUpperBound()
+    {
+        return upperBound;
+    }
+
+    @Override
+    public boolean matchesChar(final char c)
+    {
+        return c >= lowerBound && c <= upperBound;
+    }
+
+    @Override
+    public Characters getCharacters()
+    {
+        return Characters.range(lowerBound, upperBound);
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
@@ -16,6 +16,7 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.buffers.InputBuffers;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
 import com.github.fge.grappa.run.context.MatcherContext;
@@ -43,17 +44,21 @@ public final class StringMatcher
         return MatcherType.TERMINAL;
     }
 
+    public String getString()
+    {
+        return input;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        final int len = input.length();
         final int index = context.getCurrentIndex();
-        final String s = context.getInputBuffer().extract(index, index + len);
 
-        if (!s.equals(input))
+        if (!InputBuffers.regionMatches(context.getInputBuffer(), index,
+            input, false))
             return false;
 
-        context.advanceIndex(len);
+        context.advanceIndex(input.length());
         return true;
     }
 }
@@ -17,10 +17,13 @@
 package com.github.fge.grappa.matchers.base;
 
 import com.github.fge.grappa.rules.Rule;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.misc.ImmutableGraphNode;
 
+import javax.annotation.Nonnull;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -90,6 +93,38 @@ public abstract class AbstractMatcher
         return clone;
     }
 
+    /**
+     * Replace the children of this matcher with equivalent matchers
+     *
+     * <p>This is used to remove {@link
+     * com.github.fge.grappa.matchers.wrap.ProxyMatcher}s from a rule graph
+     * once it is built.</p>
+     *
+     * <p>Do not use manually!</p>
+     *
+     * @param children the new children
+     * @throws IllegalArgumentException the number of children differs
+     */
+    public final void replaceChildren(@Nonnull final List<Matcher> children)
+    {
+        Preconditions.checkArgument(children.size() == getChildren().size(),
+            "the number of children cannot change");
+        setChildren(children);
+        childrenReplaced();
+    }
+
+    /**
+     * Called when the children of this matcher have been replaced
+     *
+     * <p>Matchers which keep references to their children in their own fields
+     * must override this method to update them.</p>
+     *
+     * @see #replaceChildren(List)
+     */
+    protected void childrenReplaced()
+    {
+    }
+
     // default implementation is to simply delegate to the context
     @Override
     public <V> MatcherContext<V> getSubContext(final MatcherContext<V> context)
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.base;
+
+import com.github.fge.grappa.matchers.repeat.ScanningRepeatMatcher;
+import com.github.fge.grappa.support.Characters;
+
+/**
+ * A {@link Matcher} which matches exactly one character of input
+ *
+ * <p>Matchers implementing this interface match if and only if {@link
+ * #matchesChar(char)} returns true for the character at the current index of
+ * the input, in which case they consume that character; they never match
+ * at the end of input.</p>
+ *
+ * <p>Repeating such a matcher does not need to run it in a context of its
+ * own; see {@link ScanningRepeatMatcher}.</p>
+ */
+public interface SingleCharMatcher
+    extends Matcher
+{
+    /**
+     * Tell whether this matcher matches a given character
+     *
+     * @param c the character
+     * @return true if the character matches
+     */
+    boolean matchesChar(char c);
+
+    /**
+     * Get the set of characters matched by this matcher
+     *
+     * @return the set of characters
+     */
+    Characters getCharacters();
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.delegate;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link FirstOfMatcher} only trying the alternatives which can match the
+ * current character
+ *
+ * <p>The {@link FirstSet} of each alternative is computed the first time this
+ * matcher is run (at which point the matcher graph is complete). Alternatives
+ * which are guaranteed to fail, without side effects, given the current
+ * character are then skipped; the others are tried in order, as {@link
+ * FirstOfMatcher} does.</p>
+ *
+ * <p>For ASCII characters, the list of alternatives to try is precomputed;
+ * for other characters, the FIRST set of each alternative is checked before
+ * the alternative is tried.</p>
+ */
+public final class DispatchingFirstOfMatcher
+    extends FirstOfMatcher
+{
+    private DispatchTable table = null;
+
+    public DispatchingFirstOfMatcher(final Rule[] subRules)
+    {
+        super(subRules);
+    }
+
+    @Override
+    protected void childrenReplaced()
+    {
+        table = null;
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        /*
+         * Tables are immutable and always computed the same way; if several
+         * threads happen to compute one at the same time, any of them will do.
+         */
+        DispatchTable dispatchTable = table;
+        if (dispatchTable == null) {
+            dispatchTable = new DispatchTable(getChildren());
+            table = dispatchTable;
+        }
+
+        final List<Matcher> children = getChildren();
+        final char c = context.getCurrentChar();
+
+        if (c < DispatchTable.ASCII_SIZE) {
+            for (final int index: dispatchTable.asciiCandidates[c])
+                if (children.get(index).getSubContext(context).runMatcher())
+                    return true;
+            return false;
+        }
+
+        final FirstSet[] firstSets = dispatchTable.firstSets;
+        final int size = firstSets.length;
+
+        for (int index = 0; index < size; index++)
+            if (firstSets[index].mayMatch(c)
+                && children.get(index).getSubContext(context).runMatcher())
+                return true;
+
+        return false;
+    }
+
+    @Immutable
+    private static final class DispatchTable
+    {
+        private static final int ASCII_SIZE = 128;
+
+        private final FirstSet[] firstSets;
+        private final int[][] asciiCandidates = new int[ASCII_SIZE][];
+
+        private DispatchTable(final List<Matcher> children)
+        {
+            final int size = children.size();
+
+            firstSets = new FirstSet[size];
+            for (int index = 0; index < size; index++)
+                firstSets[index] = FirstSet.of(children.get(index));
+
+            final int[] candidates = new int[size];
+            int nrCandidates;
+
+            for (char c = 0; c < ASCII_SIZE; c++) {
+                nrCandidates = 0;
+                for (int index = 0; index < size; index++)
+                    if (firstSets[index].mayMatch(c))
+                        candidates[nrCandidates++] = index;
+                asciiCandidates[c] = Arrays.copyOf(candidates, nrCandidates);
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.delegate;
+
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.EndOfInputMatcher;
+import com.github.fge.grappa.matchers.NothingMatcher;
+import com.github.fge.grappa.matchers.StringIgnoreCaseMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
+import com.github.fge.grappa.matchers.join.JoinMatcher;
+import com.github.fge.grappa.matchers.predicates.TestMatcher;
+import com.github.fge.grappa.matchers.predicates.TestNotMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+import com.github.fge.grappa.support.Characters;
+import com.github.fge.grappa.support.Chars;
+import com.google.common.collect.Sets;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The FIRST set of a matcher
+ *
+ * <p>A FIRST set is made of two elements:</p>
+ *
+ * <ul>
+ *     <li>a set of characters; if the matcher is run while the current
+ *     character is not in this set, then it runs no actions, and it consumes
+ *     no input if it succeeds;</li>
+ *     <li>whether the matcher is nullable, that is, whether it can succeed
+ *     without consuming any input.</li>
+ * </ul>
+ *
+ * <p>As a consequence, a matcher which is not nullable is guaranteed to fail,
+ * without side effects, if the current character is not in its set of
+ * characters; see {@link #mayMatch(char)}.</p>
+ *
+ * <p>The analysis is conservative: actions are considered as able to start
+ * with any character, and so are matchers which this class knows nothing
+ * about (and recursive references to a matcher being analyzed).</p>
+ *
+ * @see DispatchingFirstOfMatcher
+ */
+@Immutable
+public final class FirstSet
+{
+    private static final FirstSet UNKNOWN = new FirstSet(Characters.ALL, true);
+    private static final FirstSet EMPTY = new FirstSet(Characters.NONE, true);
+    private static final FirstSet NOTHING
+        = new FirstSet(Characters.NONE, false);
+
+    /*
+     * Case insensitive string matching uses Chars.equalsIgnoreCase(); outside
+     * of ASCII, characters other than the first character and its upper and
+     * lower case versions may therefore match. Don't try and be smart here.
+     */
+    private static final Characters NON_ASCII
+        = Characters.range('\u0080', Character.MAX_VALUE);
+
+    private final Characters chars;
+    private final boolean nullable;
+
+    private FirstSet(final Characters chars, final boolean nullable)
+    {
+        this.chars = chars;
+        this.nullable = nullable;
+    }
+
+    /**
+     * Compute the FIRST set of a matcher
+     *
+     * <p>Note that this must only be called once the matcher graph is
+     * complete, since {@link ProxyMatcher}s need to be resolved.</p>
+     *
+     * @param matcher the matcher
+     * @return the FIRST set
+     */
+    public static FirstSet of(final Matcher matcher)
+    {
+        Objects.requireNonNull(matcher);
+        return new Analysis().firstSet(matcher);
+    }
+
+    /**
+     * Get the set of characters this matcher can start with
+     *
+     * @return a set of characters
+     */
+    public Characters getChars()
+    {
+        return chars;
+    }
+
+    /**
+     * Tell whether this matcher can succeed without consuming any input
+     *
+     * @return true if the matcher is nullable
+     */
+    public boolean isNullable()
+    {
+        return nullable;
+    }
+
+    /**
+     * Tell whether the matcher can match, or have side effects, if the
+     * current character is the given character
+     *
+     * @param c the character
+     * @return false if the matcher is guaranteed to fail without side effects
+     */
+    public boolean mayMatch(final char c)
+    {
+        return nullable || chars.contains(c);
+    }
+
+    @Override
+    public String toString()
+    {
+        return chars + (nullable ? " (nullable)" : "");
+    }
+
+    private static final class Analysis
+    {
+        private final Map<Matcher, FirstSet> firstSets
+            = new IdentityHashMap<>();
+        private final Set<Matcher> inProgress = Sets.newIdentityHashSet();
+
+        private FirstSet firstSet(final Matcher matcher)
+        {
+            final Matcher actual = unwrap(matcher);
+            if (actual == null)
+                return UNKNOWN;
+
+            FirstSet ret = firstSets.get(actual);
+            if (ret != null)
+                return ret;
+
+            /*
+             * A recursive reference to a matcher being analyzed; this can only
+             * be through a nullable path (since otherwise we would have
+             * stopped before), which means left recursion.
+             */
+            if (!inProgress.add(actual))
+                return UNKNOWN;
+
+            try {
+                ret = compute(actual);
+            } finally {
+                inProgress.remove(actual);
+            }
+
+            firstSets.put(actual, ret);
+            return ret;
+        }
+
+        private FirstSet compute(final Matcher matcher)
+        {
+            if (matcher instanceof SingleCharMatcher)
+                return new FirstSet(
+                    ((SingleCharMatcher) matcher).getCharacters(), false);
+
+            if (matcher instanceof StringMatcher)
+                return ofString(((StringMatcher) matcher).getString(), false);
+
+            if (matcher instanceof StringIgnoreCaseMatcher)
+                return ofString(
+                    ((StringIgnoreCaseMatcher) matcher).getString(), true);
+
+            if (matcher instanceof EmptyMatcher
+                || matcher instanceof EndOfInputMatcher)
+                return EMPTY;
+
+            if (matcher instanceof NothingMatcher)
+                return NOTHING;
+
+            if (matcher instanceof SequenceMatcher)
+                return ofSequence(matcher);
+
+            if (matcher instanceof FirstOfMatcher)
+                return ofFirstOf(matcher);
+
+            if (matcher instanceof OptionalMatcher)
+                return nullable(firstSet(matcher.getChildren().get(0)));
+
+            if (matcher instanceof RepeatMatcher) {
+                final FirstSet inner = firstSet(matcher.getChildren().get(0));
+                return ((RepeatMatcher) matcher).isOptional()
+                    ? nullable(inner) : inner;
+            }
+
+            if (matcher instanceof JoinMatcher) {
+                final FirstSet joined = firstSet(matcher.getChildren().get(0));
+                return ((JoinMatcher) matcher).isOptional()
+                    ? nullable(joined) : joined;
+            }
+
+            /*
+             * Predicates never consume any input, but the matcher they test
+             * runs at the current character.
+             */
+            if (matcher instanceof TestMatcher
+                || matcher instanceof TestNotMatcher)
+                return nullable(firstSet(matcher.getChildren().get(0)));
+
+            /*
+             * This covers ActionMatcher, as well as all matchers we don't know
+             * about
+             */
+            return UNKNOWN;
+        }
+
+        private FirstSet ofSequence(final Matcher matcher)
+        {
+            Characters chars = Characters.NONE;
+            FirstSet firstSet;
+
+            for (final Matcher child: matcher.getChildren()) {
+                firstSet = firstSet(child);
+                chars = chars.add(firstSet.chars);
+                if (!firstSet.nullable)
+                    return new FirstSet(chars, false);
+            }
+
+            return new FirstSet(chars, true);
+        }
+
+        private FirstSet ofFirstOf(final Matcher matcher)
+        {
+            Characters chars = Characters.NONE;
+            boolean nullable = false;
+            FirstSet firstSet;
+
+            for (final Matcher child: matcher.getChildren()) {
+                firstSet = firstSet(child);
+                chars = chars.add(firstSet.chars);
+                nullable |= firstSet.nullable;
+            }
+
+            return new FirstSet(chars, nullable);
+        }
+
+        private static FirstSet ofString(final String string,
+            final boolean ignoreCase)
+        {
+            if (string.isEmpty())
+                return EMPTY;
+
+            final char c = string.charAt(0);
+
+            if (!ignoreCase)
+                return new FirstSet(Characters.of(c), false);
+
+            /*
+             * Non ASCII characters may also have ASCII partners (for instance,
+             * U+017F, LATIN SMALL LETTER LONG S, matches 's'): look for all of
+             * them.
+             */
+            Characters chars = NON_ASCII.add(c);
+
+            for (char ascii = 0; ascii < '\u0080'; ascii++)
+                if (Chars.equalsIgnoreCase(c, ascii))
+                    chars = chars.add(ascii);
+
+            return new FirstSet(chars, false);
+        }
+
+        private static FirstSet nullable(final FirstSet firstSet)
+        {
+            return firstSet.nullable ? firstSet
+                : new FirstSet(firstSet.chars, true);
+        }
+
+        /*
+         * Get to the actual matcher behind proxies and variable frames; return
+         * null if a proxy is not armed.
+         */
+        private static Matcher unwrap(final Matcher matcher)
+        {
+            Matcher ret = matcher;
+            Matcher unwrapped;
+
+            while (true) {
+                unwrapped = VarFramingMatcher.unwrap(ProxyMatcher.unwrap(ret));
+                if (unwrapped instanceof ProxyMatcher && unwrapped == ret)
+                    return null;
+                if (unwrapped == ret)
+                    return ret;
+                ret = unwrapped;
+            }
+        }
+    }
+}
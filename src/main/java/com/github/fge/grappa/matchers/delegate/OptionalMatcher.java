@@ -30,7 +30,7 @@ import java.util.Objects;
 public final class OptionalMatcher
     extends CustomDefaultLabelMatcher<OptionalMatcher>
 {
-    private final Matcher subMatcher;
+    private Matcher subMatcher;
 
     public OptionalMatcher(final Rule subRule)
     {
@@ -38,6 +38,12 @@ public final class OptionalMatcher
         subMatcher = getChildren().get(0);
     }
 
+    @Override
+    protected void childrenReplaced()
+    {
+        subMatcher = getChildren().get(0);
+    }
+
     @Override
     public MatcherType getType()
     {
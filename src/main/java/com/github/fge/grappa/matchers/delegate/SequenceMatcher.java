@@ -63,6 +63,7 @@ public class SequenceMatcher
             stack.restoreSnapshot(snapshot);
             return false;
         }
+        stack.releaseSnapshot(snapshot);
         return true;
     }
 }
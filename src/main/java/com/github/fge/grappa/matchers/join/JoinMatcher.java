@@ -68,8 +68,8 @@ public abstract class JoinMatcher
     private static final int JOINED_CHILD_INDEX = 0;
     private static final int JOINING_CHILD_INDEX = 1;
 
-    protected final Matcher joined;
-    protected final Matcher joining;
+    protected Matcher joined;
+    protected Matcher joining;
 
     protected JoinMatcher(final Rule joined, final Rule joining)
     {
@@ -78,6 +78,13 @@ public abstract class JoinMatcher
         this.joining = getChildren().get(JOINING_CHILD_INDEX);
     }
 
+    @Override
+    protected final void childrenReplaced()
+    {
+        joined = getChildren().get(JOINED_CHILD_INDEX);
+        joining = getChildren().get(JOINING_CHILD_INDEX);
+    }
+
     @Override
     public final MatcherType getType()
     {
@@ -110,6 +117,7 @@ public abstract class JoinMatcher
 
         while (runAgain(cycles) && matchCycle(context, beforeCycle)) {
             beforeCycle = context.getCurrentIndex();
+            context.getValueStack().releaseSnapshot(snapshot);
             snapshot = context.getValueStack().takeSnapshot();
             cycles++;
         }
@@ -120,6 +128,16 @@ public abstract class JoinMatcher
         return enoughCycles(cycles);
     }
 
+    /**
+     * Tell whether this matcher succeeds if its joined matcher does not match
+     *
+     * @return true if zero cycles are enough for this matcher to succeed
+     */
+    public final boolean isOptional()
+    {
+        return enoughCycles(0);
+    }
+
     protected abstract boolean runAgain(final int cycles);
 
     protected abstract boolean enoughCycles(final int cycles);
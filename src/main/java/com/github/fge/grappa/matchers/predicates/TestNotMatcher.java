@@ -31,7 +31,7 @@ import java.util.Objects;
 public final class TestNotMatcher
     extends CustomDefaultLabelMatcher<TestNotMatcher>
 {
-    private final Matcher subMatcher;
+    private Matcher subMatcher;
 
     public TestNotMatcher(final Rule subRule)
     {
@@ -39,6 +39,12 @@ public final class TestNotMatcher
         subMatcher = getChildren().get(0);
     }
 
+    @Override
+    protected void childrenReplaced()
+    {
+        subMatcher = getChildren().get(0);
+    }
+
     @Override
     public MatcherType getType()
     {
@@ -52,8 +58,10 @@ public final class TestNotMatcher
         final Object valueStackSnapshot
             = context.getValueStack().takeSnapshot();
 
-        if (subMatcher.getSubContext(context).runMatcher())
+        if (subMatcher.getSubContext(context).runMatcher()) {
+            context.getValueStack().releaseSnapshot(valueStackSnapshot);
             return false;
+        }
 
         // reset location, Test matchers never advance
         context.setCurrentIndex(lastIndex);
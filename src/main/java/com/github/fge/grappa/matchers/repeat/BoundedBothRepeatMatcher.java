@@ -16,6 +16,18 @@ public final class BoundedBothRepeatMatcher
         this.maxCycles = maxCycles;
     }
 
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
     @Override
     protected boolean enoughCycles(final int cycles)
     {
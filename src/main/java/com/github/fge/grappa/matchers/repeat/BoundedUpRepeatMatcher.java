@@ -13,6 +13,18 @@ public final class BoundedUpRepeatMatcher
         this.maxCycles = maxCycles;
     }
 
+    @Override
+    public int getMinCycles()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
     @Override
     protected boolean enoughCycles(final int cycles)
     {
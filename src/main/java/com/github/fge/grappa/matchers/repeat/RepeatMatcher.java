@@ -26,7 +26,7 @@ import com.github.fge.grappa.run.context.MatcherContext;
 public abstract class RepeatMatcher
     extends AbstractMatcher
 {
-    private final Matcher matcher;
+    private Matcher matcher;
 
     protected RepeatMatcher(final Rule subRule)
     {
@@ -34,6 +34,12 @@ public abstract class RepeatMatcher
         matcher = getChildren().get(0);
     }
 
+    @Override
+    protected void childrenReplaced()
+    {
+        matcher = getChildren().get(0);
+    }
+
     @Override
     public MatcherType getType()
     {
@@ -62,6 +68,31 @@ public abstract class RepeatMatcher
         return enoughCycles(cycles);
     }
 
+    /**
+     * Tell whether this matcher succeeds if its inner matcher does not match
+     *
+     * @return true if zero cycles are enough for this matcher to succeed
+     */
+    public final boolean isOptional()
+    {
+        return enoughCycles(0);
+    }
+
+    /**
+     * Return the minimum number of cycles for this matcher to succeed
+     *
+     * @return the minimum number of cycles
+     */
+    public abstract int getMinCycles();
+
+    /**
+     * Return the maximum number of cycles this matcher will run
+     *
+     * @return the maximum number of cycles, or {@link Integer#MAX_VALUE} if
+     * unbounded
+     */
+    public abstract int getMaxCycles();
+
     protected abstract boolean enoughCycles(final int cycles);
 
     protected abstract boolean runAgain(final int cycles);
@@ -1,9 +1,18 @@
 package com.github.fge.grappa.matchers.repeat;
 
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
 import com.github.fge.grappa.misc.RangeMatcherBuilder;
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.rules.Rule;
 
+/**
+ * A {@link RangeMatcherBuilder} for {@link RepeatMatcher}s
+ *
+ * <p>If the rule to repeat is a {@link SingleCharMatcher}, all built matchers
+ * are {@link ScanningRepeatMatcher}s.</p>
+ *
+ * @param <V> the type parameter of the parser
+ */
 public final class RepeatMatcherBuilder<V>
     extends RangeMatcherBuilder<V>
 {
@@ -15,24 +24,36 @@ public final class RepeatMatcherBuilder<V>
     @Override
     protected Rule boundedDown(final int minCycles)
     {
+        if (rule instanceof SingleCharMatcher)
+            return new ScanningRepeatMatcher((SingleCharMatcher) rule,
+                minCycles, Integer.MAX_VALUE);
         return new BoundedDownRepeatMatcher(rule, minCycles);
     }
 
     @Override
     protected Rule boundedUp(final int maxCycles)
     {
+        if (rule instanceof SingleCharMatcher)
+            return new ScanningRepeatMatcher((SingleCharMatcher) rule,
+                0, maxCycles);
         return new BoundedUpRepeatMatcher(rule, maxCycles);
     }
 
     @Override
     protected Rule exactly(final int nrCycles)
     {
+        if (rule instanceof SingleCharMatcher)
+            return new ScanningRepeatMatcher((SingleCharMatcher) rule,
+                nrCycles, nrCycles);
         return new ExactMatchesRepeatMatcher(rule, nrCycles);
     }
 
     @Override
     protected Rule boundedBoth(final int minCycles, final int maxCycles)
     {
+        if (rule instanceof SingleCharMatcher)
+            return new ScanningRepeatMatcher((SingleCharMatcher) rule,
+                minCycles, maxCycles);
         return new BoundedBothRepeatMatcher(rule, minCycles, maxCycles);
     }
 }
@@ -0,0 +1,93 @@
+package com.github.fge.grappa.matchers.repeat;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Chars;
+
+/**
+ * A {@link RepeatMatcher} for a matcher matching a single character
+ *
+ * <p>Instead of running the inner matcher in a subcontext for each cycle, this
+ * matcher reads characters from the input buffer in a loop, for as long as
+ * they match and the maximum number of cycles is not reached; if enough
+ * characters have matched, the index is advanced once.</p>
+ *
+ * <p>This is what {@link RepeatMatcherBuilder} uses when the rule to repeat is
+ * a {@link SingleCharMatcher}. Note that as a result, the inner matcher is not
+ * seen by parse runner listeners.</p>
+ */
+public final class ScanningRepeatMatcher
+    extends RepeatMatcher
+{
+    private final SingleCharMatcher matcher;
+    private final int minCycles;
+    private final int maxCycles;
+
+    public ScanningRepeatMatcher(final SingleCharMatcher subRule,
+        final int minCycles, final int maxCycles)
+    {
+        super(subRule);
+        matcher = subRule;
+        this.minCycles = minCycles;
+        this.maxCycles = maxCycles;
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        final InputBuffer buffer = context.getInputBuffer();
+        final int startIndex = context.getCurrentIndex();
+        final int endIndex = Integer.MAX_VALUE - startIndex > maxCycles
+            ? startIndex + maxCycles : Integer.MAX_VALUE;
+
+        int index = startIndex;
+        char c;
+
+        /*
+         * The length of the buffer is not used: it may not be known yet (see
+         * StreamingInputBuffer). Instead, stop at the end of input, which is
+         * when EOI is read and there is no code point at this index.
+         */
+        while (index < endIndex) {
+            c = buffer.charAt(index);
+            if (!matcher.matchesChar(c))
+                break;
+            if (c == Chars.EOI && buffer.codePointAt(index) == -1)
+                break;
+            index++;
+        }
+
+        final int cycles = index - startIndex;
+
+        if (!enoughCycles(cycles))
+            return false;
+
+        context.advanceIndex(cycles);
+        return true;
+    }
+
+    @Override
+    public int getMinCycles()
+    {
+        return minCycles;
+    }
+
+    @Override
+    public int getMaxCycles()
+    {
+        return maxCycles;
+    }
+
+    @Override
+    protected boolean enoughCycles(final int cycles)
+    {
+        return cycles >= minCycles;
+    }
+
+    @Override
+    protected boolean runAgain(final int cycles)
+    {
+        return cycles < maxCycles;
+    }
+}
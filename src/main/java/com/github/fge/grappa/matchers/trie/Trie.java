@@ -16,6 +16,7 @@
 
 package com.github.fge.grappa.matchers.trie;
 
+import com.github.fge.grappa.buffers.InputBuffer;
 import com.google.common.annotations.Beta;
 
 import javax.annotation.concurrent.Immutable;
@@ -33,7 +34,8 @@ import javax.annotation.concurrent.Immutable;
  * for a string among a series of strings is very fast.</p>
  *
  * <p>The core of the trie search algorithm is implemented by {@link
- * TrieNode}.</p>
+ * TrieNode}; alternatively, a trie can be built as a compact {@link TrieTable}
+ * (see {@link TrieBuilder#compact()}).</p>
  *
  * @since 1.0.0-beta.6
  */
@@ -43,7 +45,7 @@ public final class Trie
 {
     private final int nrWords;
     private final int maxLength;
-    private final TrieNode node;
+    private final TrieSearcher searcher;
 
     /**
      * Create a new builder for this class
@@ -83,13 +85,28 @@ public final class Trie
      */
     public int search(final String needle, final boolean ignoreCase)
     {
-        return node.search(needle, ignoreCase);
+        return searcher.search(needle, ignoreCase);
+    }
+
+    /**
+     * Search for a string of this trie in an input buffer
+     *
+     * @param buffer the input buffer
+     * @param index the index in the buffer where to start the search
+     * @param ignoreCase whether the search should ignore case
+     * @return the length of the match or -1 if not found
+     */
+    public int search(final InputBuffer buffer, final int index,
+        final boolean ignoreCase)
+    {
+        return searcher.search(buffer, index, ignoreCase);
     }
 
     Trie(final TrieBuilder builder)
     {
         nrWords = builder.nrWords;
         maxLength = builder.maxLength;
-        node = builder.nodeBuilder.build();
+        searcher = builder.compact ? new TrieTable(builder.nodeBuilder)
+            : builder.nodeBuilder.build();
     }
 }
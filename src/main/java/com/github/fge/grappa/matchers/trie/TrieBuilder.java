@@ -33,6 +33,7 @@ public final class TrieBuilder
     int maxLength = 0;
     final TrieNodeBuilder nodeBuilder
         = new TrieNodeBuilder();
+    boolean compact = false;
 
     TrieBuilder()
     {
@@ -60,6 +61,22 @@ public final class TrieBuilder
         return this;
     }
 
+    /**
+     * Build a compact trie
+     *
+     * <p>By default, a trie is built as a tree of {@link TrieNode}s. If this
+     * method is called, the trie is instead built as a {@link TrieTable}: all
+     * nodes are flattened into a few arrays, which is both smaller and faster
+     * to search, in particular for large sets of words.</p>
+     *
+     * @return this
+     */
+    public TrieBuilder compact()
+    {
+        compact = true;
+        return this;
+    }
+
     public Trie build()
     {
         return new Trie(this);
@@ -59,24 +59,17 @@ public final class TrieMatcher
     public <V> boolean match(final MatcherContext<V> context)
     {
         /*
-         * Since the trie knows about the length of its possible longest match,
-         * extract that many characters from the buffer. Remind that .extract()
-         * will adjust illegal indices automatically.
+         * The trie reads characters from the input buffer directly, starting
+         * from the current index, and stops at the first character for which
+         * it has no matching node.
          */
-        final int maxLength = trie.getMaxLength();
-        final int index = context.getCurrentIndex();
-        final String input = context.getInputBuffer()
-            .extract(index, index + maxLength);
-
-        /*
-         * We now just have to trie and search... (pun intended)
-         */
-        final int ret = trie.search(input, false);
+        final int ret = trie.search(context.getInputBuffer(),
+            context.getCurrentIndex(), false);
         if (ret == -1)
             return false;
 
         /*
-         * and since the result, when positive, is the length of the match,
+         * Since the result, when positive, is the length of the match,
          * advance the index in the buffer by that many positions.
          */
         context.advanceIndex(ret);
@@ -18,8 +18,10 @@ package com.github.fge.grappa.matchers.trie;
 
 import com.google.common.annotations.Beta;
 
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.support.Chars;
+
 import javax.annotation.concurrent.Immutable;
-import java.nio.CharBuffer;
 import java.util.Arrays;
 
 /**
@@ -41,6 +43,7 @@ import java.util.Arrays;
 @Immutable
 @Beta
 public final class TrieNode
+    implements TrieSearcher
 {
     private final boolean fullWord;
 
@@ -56,67 +59,94 @@ public final class TrieNode
         this.nextNodes = nextNodes;
     }
 
+    /**
+     * Search for a string into this trie
+     *
+     * @param needle the string to search
+     * @param ignoreCase whether the search should ignore case
+     * @return the length of the match found, -1 otherwise
+     */
+    @Override
     public int search(final String needle, final boolean ignoreCase)
     {
-        return doSearch(CharBuffer.wrap(needle), fullWord ? 0 : -1, 0,
-            ignoreCase);
+        final int len = needle.length();
+
+        TrieNode node = this;
+        int matchedLength = fullWord ? 0 : -1;
+        int index;
+
+        for (int currentLength = 0; currentLength < len; currentLength++) {
+            index = node.findChild(needle.charAt(currentLength), ignoreCase);
+            if (index < 0)
+                break;
+            node = node.nextNodes[index];
+            if (node.fullWord)
+                matchedLength = currentLength + 1;
+        }
+
+        return matchedLength;
     }
 
     /**
-     * Core search method
+     * Search for the longest word of this trie in an input buffer
      *
-     * <p>This method uses a {@link CharBuffer} to perform searches, and changes
-     * this buffer's position as the match progresses. The two other arguments
-     * are the depth of the current search (ie the number of nodes visited
-     * since root) and the index of the last node where a match was found (ie
-     * the last node where {@link #fullWord} was true.</p>
+     * <p>Characters are read from the buffer directly, starting at the given
+     * index; the search stops as soon as there is no child node for the
+     * current character, or at the end of the input.</p>
      *
-     * @param buffer the charbuffer
-     * @param matchedLength the last matched length (-1 if no match yet)
-     * @param currentLength the current length walked by the trie
+     * @param buffer the input buffer
+     * @param startIndex the index in the buffer where the search starts
+     * @param ignoreCase whether the search should ignore case
      * @return the length of the match found, -1 otherwise
      */
-    private int doSearch(final CharBuffer buffer, final int matchedLength,
-        final int currentLength, final boolean ignoreCase)
+    @Override
+    public int search(final InputBuffer buffer, final int startIndex,
+        final boolean ignoreCase)
     {
-        /*
-         * Try and see if there is a possible match here; there is if "fullword"
-         * is true, in this case the next "matchedLength" argument to a possible
-         * child call will be the current length.
-         */
-        final int nextLength = fullWord ? currentLength : matchedLength;
-
-
-        /*
-         * If there is nothing left in the buffer, we have a match.
-         */
-        if (!buffer.hasRemaining())
-            return nextLength;
-
-        /*
-         * OK, there is at least one character remaining, so pick it up and see
-         * whether it is in the list of our children...
-         */
-        char c = buffer.get();
-        int index = Arrays.binarySearch(nextChars, c);
-        if (index < 0 && ignoreCase) {
-            final boolean isUpper = Character.isUpperCase(c);
-            final boolean isLower = Character.isLowerCase(c);
-            if (isUpper != isLower) {
-               c = isUpper ? Character.toLowerCase(c)
-                   : Character.toUpperCase(c);
-               index = Arrays.binarySearch(nextChars, c);
-            }
+        TrieNode node = this;
+        int matchedLength = fullWord ? 0 : -1;
+        int index;
+        char c;
+
+        // Stop at the end of input; see ScanningRepeatMatcher
+        for (int currentLength = 0; ; currentLength++) {
+            c = buffer.charAt(startIndex + currentLength);
+            index = node.findChild(c, ignoreCase);
+            if (index < 0)
+                break;
+            if (c == Chars.EOI
+                && buffer.codePointAt(startIndex + currentLength) == -1)
+                break;
+            node = node.nextNodes[index];
+            if (node.fullWord)
+                matchedLength = currentLength + 1;
         }
 
-        /*
-         * If not, we return the last good match; if yes, we call this same
-         * method on the matching child node with the (possibly new) matched
-         * length as an argument and a depth increased by 1.
-         */
-        if (index < 0)
-            return nextLength;
-        return nextNodes[index].doSearch(buffer, nextLength, currentLength + 1,
-            ignoreCase);
+        return matchedLength;
+    }
+
+    /**
+     * Find the index of the child node for a given character
+     *
+     * <p>If the search ignores case and the character is not found, the
+     * search is retried with the character in the other case, if any.</p>
+     *
+     * @param c the character
+     * @param ignoreCase whether case should be ignored
+     * @return the index of the child node, or a negative value if not found
+     */
+    private int findChild(final char c, final boolean ignoreCase)
+    {
+        final int index = Arrays.binarySearch(nextChars, c);
+        if (index >= 0 || !ignoreCase)
+            return index;
+
+        final boolean isUpper = Character.isUpperCase(c);
+        final boolean isLower = Character.isLowerCase(c);
+        if (isUpper == isLower)
+            return index;
+
+        return Arrays.binarySearch(nextChars, isUpper
+            ? Character.toLowerCase(c) : Character.toUpperCase(c));
     }
 }
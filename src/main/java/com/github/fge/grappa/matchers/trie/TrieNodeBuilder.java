@@ -36,9 +36,9 @@ import java.util.TreeMap;
 @Beta
 public final class TrieNodeBuilder
 {
-    private boolean fullWord = false;
+    boolean fullWord = false;
 
-    private final Map<Character, TrieNodeBuilder> subnodes = new TreeMap<>();
+    final Map<Character, TrieNodeBuilder> subnodes = new TreeMap<>();
 
     public TrieNodeBuilder addWord(final String word)
     {
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.trie;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+
+/**
+ * The search operations common to all representations of a {@link Trie}
+ *
+ * @see TrieNode
+ * @see TrieTable
+ */
+interface TrieSearcher
+{
+    /**
+     * Search for the longest word of this trie at the start of a string
+     *
+     * @param needle the string to search
+     * @param ignoreCase whether the search should ignore case
+     * @return the length of the match found, -1 otherwise
+     */
+    int search(String needle, boolean ignoreCase);
+
+    /**
+     * Search for the longest word of this trie in an input buffer
+     *
+     * @param buffer the input buffer
+     * @param startIndex the index in the buffer where the search starts
+     * @param ignoreCase whether the search should ignore case
+     * @return the length of the match found, -1 otherwise
+     */
+    int search(InputBuffer buffer, int startIndex, boolean ignoreCase);
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.trie;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.support.Chars;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, array based trie
+ *
+ * <p>Unlike a tree of {@link TrieNode}s, this trie has no object per node;
+ * nodes are numbered in breadth first order instead, and all node information
+ * is stored in a few arrays indexed by node number:</p>
+ *
+ * <ul>
+ *     <li>whether the node matches a full word;</li>
+ *     <li>the character leading to this node from its parent;</li>
+ *     <li>the number of its first child node; since nodes are numbered in
+ *     breadth first order, the children of a node have consecutive numbers,
+ *     and the children of node {@code n} are all nodes from the first child
+ *     of node {@code n} up to (excluded) the first child of node {@code n + 1}.
+ *     </li>
+ * </ul>
+ *
+ * <p>The child node for a given character is searched for using a binary
+ * search over the characters leading to the children. Nodes with many ASCII
+ * children, however, also have a dense table giving the child node number for
+ * all ASCII characters, which spares the binary search.</p>
+ *
+ * <p>Node 0 is the root node; since it is never the child of any node, 0 is
+ * also used as the "no such child" value.</p>
+ *
+ * @see TrieBuilder#compact()
+ */
+@Immutable
+final class TrieTable
+    implements TrieSearcher
+{
+    private static final int ASCII_SIZE = 128;
+    private static final int DENSE_THRESHOLD = 8;
+
+    private static final int NO_NODE = 0;
+    private static final int NO_TABLE = -1;
+
+    private final boolean[] fullWords;
+    private final char[] labels;
+    private final int[] firstChildren;
+    private final int[] tableOffsets;
+    private final int[] tables;
+
+    TrieTable(final TrieNodeBuilder root)
+    {
+        /*
+         * Number the nodes in breadth first order: the list of nodes is the
+         * queue itself.
+         */
+        final List<TrieNodeBuilder> nodes = new ArrayList<>();
+        final StringBuilder sb = new StringBuilder().append('\0');
+        int nrTables = 0;
+
+        nodes.add(root);
+
+        for (int node = 0; node < nodes.size(); node++) {
+            final TrieNodeBuilder builder = nodes.get(node);
+            if (asciiChildren(builder) >= DENSE_THRESHOLD)
+                nrTables++;
+            for (final Map.Entry<Character, TrieNodeBuilder> entry:
+                builder.subnodes.entrySet()) {
+                sb.append(entry.getKey().charValue());
+                nodes.add(entry.getValue());
+            }
+        }
+
+        final int nrNodes = nodes.size();
+
+        fullWords = new boolean[nrNodes];
+        labels = sb.toString().toCharArray();
+        firstChildren = new int[nrNodes + 1];
+        tableOffsets = new int[nrNodes];
+        tables = new int[nrTables * ASCII_SIZE];
+
+        int firstChild = 1;
+        int tableOffset = 0;
+
+        for (int node = 0; node < nrNodes; node++) {
+            final TrieNodeBuilder builder = nodes.get(node);
+            final int nrChildren = builder.subnodes.size();
+
+            fullWords[node] = builder.fullWord;
+            firstChildren[node] = firstChild;
+
+            if (asciiChildren(builder) < DENSE_THRESHOLD) {
+                tableOffsets[node] = NO_TABLE;
+            } else {
+                tableOffsets[node] = tableOffset;
+                for (int child = firstChild; child < firstChild + nrChildren;
+                    child++)
+                    if (labels[child] < ASCII_SIZE)
+                        tables[tableOffset + labels[child]] = child;
+                tableOffset += ASCII_SIZE;
+            }
+
+            firstChild += nrChildren;
+        }
+
+        firstChildren[nrNodes] = firstChild;
+    }
+
+    @Override
+    public int search(final String needle, final boolean ignoreCase)
+    {
+        final int len = needle.length();
+
+        int node = 0;
+        int matchedLength = fullWords[0] ? 0 : -1;
+
+        for (int currentLength = 0; currentLength < len; currentLength++) {
+            node = findChild(node, needle.charAt(currentLength), ignoreCase);
+            if (node == NO_NODE)
+                break;
+            if (fullWords[node])
+                matchedLength = currentLength + 1;
+        }
+
+        return matchedLength;
+    }
+
+    @Override
+    public int search(final InputBuffer buffer, final int startIndex,
+        final boolean ignoreCase)
+    {
+        int node = 0;
+        int matchedLength = fullWords[0] ? 0 : -1;
+        char c;
+
+        // Stop at the end of input; see ScanningRepeatMatcher
+        for (int currentLength = 0; ; currentLength++) {
+            c = buffer.charAt(startIndex + currentLength);
+            node = findChild(node, c, ignoreCase);
+            if (node == NO_NODE)
+                break;
+            if (c == Chars.EOI
+                && buffer.codePointAt(startIndex + currentLength) == -1)
+                break;
+            if (fullWords[node])
+                matchedLength = currentLength + 1;
+        }
+
+        return matchedLength;
+    }
+
+    /**
+     * Find the child node of a node for a given character
+     *
+     * <p>As with {@link TrieNode}, if the search ignores case and the
+     * character is not found, the search is retried with the character in the
+     * other case, if any.</p>
+     *
+     * @param node the node
+     * @param c the character
+     * @param ignoreCase whether case should be ignored
+     * @return the child node, or {@link #NO_NODE} if not found
+     */
+    private int findChild(final int node, final char c,
+        final boolean ignoreCase)
+    {
+        final int child = childOf(node, c);
+        if (child != NO_NODE || !ignoreCase)
+            return child;
+
+        final boolean isUpper = Character.isUpperCase(c);
+        final boolean isLower = Character.isLowerCase(c);
+        if (isUpper == isLower)
+            return NO_NODE;
+
+        return childOf(node, isUpper
+            ? Character.toLowerCase(c) : Character.toUpperCase(c));
+    }
+
+    private int childOf(final int node, final char c)
+    {
+        if (c < ASCII_SIZE) {
+            final int offset = tableOffsets[node];
+            if (offset != NO_TABLE)
+                return tables[offset + c];
+        }
+
+        final int from = firstChildren[node];
+        final int to = firstChildren[node + 1];
+        if (from == to)
+            return NO_NODE;
+
+        final int index = Arrays.binarySearch(labels, from, to, c);
+        return index < 0 ? NO_NODE : index;
+    }
+
+    private static int asciiChildren(final TrieNodeBuilder builder)
+    {
+        int ret = 0;
+        for (final char c: builder.subnodes.keySet())
+            if (c < ASCII_SIZE)
+                ret++;
+        return ret;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.wrap;
+
+import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.google.common.collect.MapMaker;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Remove {@link ProxyMatcher}s from a rule graph
+ *
+ * <p>Proxies are needed while a rule graph is built, since rule methods may
+ * call themselves recursively; once the graph is built, however, they only
+ * add an indirection (and a dirty check) to every match.</p>
+ *
+ * <p>This class walks a built rule graph, applies the pending labels of all
+ * proxies and makes all matchers point directly to the proxy targets. Proxies
+ * which are not armed yet are left in place; graphs which contain no such
+ * proxy are remembered, so that walking them again costs nothing.</p>
+ *
+ * <p>Do not use this class on a rule graph which is being built or run.</p>
+ */
+public final class ProxyEliminator
+{
+    private static final Set<Matcher> DONE = Collections.newSetFromMap(
+        new MapMaker().weakKeys().<Matcher, Boolean>makeMap());
+
+    private ProxyEliminator()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Remove proxies from a rule graph
+     *
+     * @param matcher the root matcher
+     * @return the root matcher, unwrapped if it was a proxy
+     */
+    @Nonnull
+    public static Matcher eliminate(@Nonnull final Matcher matcher)
+    {
+        Objects.requireNonNull(matcher, "matcher");
+
+        final Matcher root = resolve(matcher);
+
+        if (DONE.contains(root))
+            return root;
+
+        final Set<Matcher> visited
+            = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        toVisit.add(root);
+
+        boolean complete = true;
+        Matcher current;
+
+        while (!toVisit.isEmpty()) {
+            current = toVisit.pop();
+            if (DONE.contains(current) || !visited.add(current))
+                continue;
+
+            if (current instanceof ProxyMatcher) {
+                complete = false;
+                continue;
+            }
+
+            if (current instanceof VarFramingMatcher) {
+                final VarFramingMatcher framing = (VarFramingMatcher) current;
+                final Matcher inner = framing.getInner();
+                final Matcher resolved = resolve(inner);
+                if (resolved != inner)
+                    framing.replaceInner(resolved);
+                toVisit.push(resolved);
+                continue;
+            }
+
+            if (!eliminateChildren(current, toVisit))
+                complete = false;
+        }
+
+        if (complete)
+            DONE.addAll(visited);
+
+        return root;
+    }
+
+    private static boolean eliminateChildren(final Matcher matcher,
+        final Deque<Matcher> toVisit)
+    {
+        final List<Matcher> children = matcher.getChildren();
+        final List<Matcher> resolved = new ArrayList<>(children.size());
+
+        boolean changed = false;
+        boolean complete = true;
+        Matcher child;
+
+        for (final Matcher original: children) {
+            child = resolve(original);
+            if (child instanceof ProxyMatcher)
+                complete = false;
+            if (child != original)
+                changed = true;
+            resolved.add(child);
+            toVisit.push(child);
+        }
+
+        if (!changed)
+            return complete;
+
+        if (matcher instanceof AbstractMatcher)
+            ((AbstractMatcher) matcher).replaceChildren(resolved);
+        else
+            complete = false;
+
+        return complete;
+    }
+
+    /*
+     * A proxy may target another proxy (see ProxyMatcher#label()), hence the
+     * loop
+     */
+    private static Matcher resolve(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+        Matcher next;
+
+        while ((next = ProxyMatcher.unwrap(ret)) != ret)
+            ret = next;
+
+        return ret;
+    }
+}
@@ -22,6 +22,8 @@ import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.support.Var;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -32,7 +34,7 @@ import java.util.Objects;
 public final class VarFramingMatcher
     implements Matcher
 {
-    private final Matcher inner;
+    private Matcher inner;
     private final Var<?>[] variables;
 
     public VarFramingMatcher(final Rule inner, final Var<?>[] variables)
@@ -41,6 +43,30 @@ public final class VarFramingMatcher
         this.variables = Objects.requireNonNull(variables, "variables");
     }
 
+    public Matcher getInner()
+    {
+        return inner;
+    }
+
+    /**
+     * Replace the wrapped matcher with an equivalent matcher
+     *
+     * <p>Do not use manually!</p>
+     *
+     * @param inner the new wrapped matcher
+     *
+     * @see ProxyEliminator
+     */
+    public void replaceInner(final Matcher inner)
+    {
+        this.inner = Objects.requireNonNull(inner, "inner");
+    }
+
+    public List<Var<?>> getVariables()
+    {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
     @Override
     public MatcherType getType()
     {
@@ -191,7 +191,6 @@ public final class AsmUtils
      * @param classLoader the class loader to use
      * @return the class instance or null
      */
-    // TODO: rework synchronization
     @Nullable
     public static Class<?> findLoadedClass(final String className,
         final ClassLoader classLoader)
@@ -282,6 +281,33 @@ public final class AsmUtils
         }
     }
 
+    /**
+     * Loads the class defined with the given name and bytecode using the given
+     * class loader, unless this class loader has already loaded it
+     *
+     * <p>The check and the definition are atomic with regards to other calls
+     * to this method for the same class loader.</p>
+     *
+     * @param className the full name of the class to be loaded
+     * @param code the bytecode of the class to load
+     * @param classLoader the class loader to use
+     * @return the class instance
+     *
+     * @see #loadClass(String, byte[], ClassLoader)
+     */
+    public static Class<?> loadClassIfAbsent(final String className,
+        final byte[] code, final ClassLoader classLoader)
+    {
+        Objects.requireNonNull(classLoader, "classLoader");
+
+        // this is also the lock used by class loaders which are not parallel
+        // capable
+        synchronized (classLoader) {
+            final Class<?> c = findLoadedClass(className, classLoader);
+            return c != null ? c : loadClass(className, code, classLoader);
+        }
+    }
+
     public static InsnList createArgumentLoaders(final String methodDescriptor)
     {
         Objects.requireNonNull(methodDescriptor, "methodDescriptor");
@@ -40,7 +40,7 @@ public class ImmutableGraphNode<T extends GraphNode<T>>
      *
      * Find a way to separate.
      */
-    private final List<T> children;
+    private List<T> children;
 
     public ImmutableGraphNode()
     {
@@ -65,4 +65,14 @@ public class ImmutableGraphNode<T extends GraphNode<T>>
     {
         return children;
     }
+
+    /**
+     * Replace the children of this node
+     *
+     * @param children the new children
+     */
+    protected final void setChildren(@Nonnull final List<T> children)
+    {
+        this.children = ImmutableList.copyOf(children);
+    }
 }
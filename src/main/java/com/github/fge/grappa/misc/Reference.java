@@ -60,10 +60,14 @@ public class Reference<T>
     /**
      * Sets this references value object to the given instance.
      *
+     * <p>All other methods of this class go through this method and {@link
+     * #get()} to access the value, so that subclasses can store it
+     * elsewhere.</p>
+     *
      * @param value the value
      * @return true
      */
-    public final boolean set(@Nullable final T value)
+    public boolean set(@Nullable final T value)
     {
         this.value = value;
         return true;
@@ -75,7 +79,7 @@ public class Reference<T>
      * @return the target
      */
     @Nullable
-    public final T get()
+    public T get()
     {
         return value;
     }
@@ -93,7 +97,7 @@ public class Reference<T>
     {
         // See javadoc for Guava's Optional; this throws IllegalStateException
         // if value is null
-        return Optional.fromNullable(value).get();
+        return Optional.fromNullable(get()).get();
     }
 
 
@@ -105,8 +109,8 @@ public class Reference<T>
      */
     public final T getAndSet(final T value)
     {
-        final T ret = this.value;
-        this.value = value;
+        final T ret = get();
+        set(value);
         return ret;
     }
 
@@ -115,6 +119,6 @@ public class Reference<T>
      */
     public final boolean isSet()
     {
-        return value != null;
+        return get() != null;
     }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.misc;
+
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyEliminator;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+import com.github.fge.grappa.parsers.BaseActions;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.ContextAware;
+import com.github.fge.grappa.support.Var;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Freeze a rule graph so that it can be run from several threads at once
+ *
+ * <p>Freezing a rule graph does the following:</p>
+ *
+ * <ul>
+ *     <li>all {@link ProxyMatcher}s are removed (their pending labels are
+ *     applied), so that the graph is no longer modified when it is run;</li>
+ *     <li>all {@link Var}s declared in rule methods, or held in instance
+ *     fields of actions, keep their values and frames per thread;</li>
+ *     <li>all {@link BaseActions} instances (including parsers) referenced by
+ *     actions keep their current context per thread.</li>
+ * </ul>
+ *
+ * <p>Other state is left as is. In particular, {@link Var}s and other objects
+ * held in fields of a parser are still shared by all threads; actions of a
+ * frozen rule must not modify them (unless they are thread safe). Actions
+ * which are themselves {@link ContextAware}, or which reference a {@link
+ * ContextAware} object other than a {@link BaseActions}, cannot keep their
+ * context per thread: such rules are rejected.</p>
+ *
+ * <p>All other per run state (value stack, contexts) already belongs to parse
+ * runners, which should not be shared.</p>
+ *
+ * @see com.github.fge.grappa.Grappa#freeze(Rule)
+ */
+public final class RuleGraphFreezer
+{
+    private RuleGraphFreezer()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Freeze a rule graph
+     *
+     * @param rule the root rule
+     * @return the root rule, with proxies removed
+     * @throws IllegalStateException the rule graph is still being built
+     * @throws IllegalArgumentException an action uses a {@link ContextAware}
+     * object which is not a {@link BaseActions}
+     */
+    @Nonnull
+    public static Rule freeze(@Nonnull final Rule rule)
+    {
+        Objects.requireNonNull(rule, "rule");
+
+        final Matcher root
+            = resolve(ProxyEliminator.eliminate((Matcher) rule));
+        final Set<Matcher> visited
+            = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+        final Set<Object> shared
+            = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        toVisit.add(root);
+
+        Matcher matcher;
+
+        while (!toVisit.isEmpty()) {
+            matcher = toVisit.pop();
+            if (!visited.add(matcher))
+                continue;
+
+            if (matcher instanceof VarFramingMatcher) {
+                for (final Var<?> var: ((VarFramingMatcher) matcher)
+                    .getVariables())
+                    share(var, shared);
+                toVisit.push(resolve(VarFramingMatcher.unwrap(matcher)));
+                continue;
+            }
+
+            if (matcher instanceof ActionMatcher)
+                shareAction((ActionMatcher) matcher, shared);
+
+            for (final Matcher child: matcher.getChildren())
+                toVisit.push(resolve(child));
+        }
+
+        return (Rule) root;
+    }
+
+    private static Matcher resolve(final Matcher matcher)
+    {
+        final Matcher ret = ProxyMatcher.unwrap(matcher);
+        if (ret instanceof ProxyMatcher)
+            throw new IllegalStateException("rule graph is not fully built");
+        return ret;
+    }
+
+    private static void share(final Object object, final Set<Object> shared)
+    {
+        if (!shared.add(object))
+            return;
+        if (object instanceof Var)
+            ((Var<?>) object).share();
+        else if (object instanceof BaseActions)
+            ((BaseActions<?>) object).share();
+    }
+
+    /*
+     * ActionMatcher sets the context of the ContextAware objects of an action
+     * before running it; only BaseActions instances can keep it per thread
+     */
+    private static void shareAction(final ActionMatcher matcher,
+        final Set<Object> shared)
+    {
+        for (final ContextAware<?> contextAware: matcher.getContextAwares()) {
+            if (!(contextAware instanceof BaseActions))
+                throw new IllegalArgumentException("cannot freeze action "
+                    + matcher.getLabel() + ": context aware object of type "
+                    + contextAware.getClass().getName()
+                    + " cannot be shared by threads");
+            share(contextAware, shared);
+        }
+
+        shareFields(matcher.getAction(), shared);
+    }
+
+    /*
+     * Actions (generated ones as well as anonymous classes) reference the
+     * parser, as well as Vars, through instance fields
+     */
+    private static void shareFields(final Object action,
+        final Set<Object> shared)
+    {
+        Object value;
+
+        for (Class<?> c = action.getClass(); c != Object.class;
+            c = c.getSuperclass())
+            for (final Field field: c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()))
+                    continue;
+                if (field.getType().isPrimitive())
+                    continue;
+                field.setAccessible(true);
+                try {
+                    value = field.get(action);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (value instanceof Var || value instanceof BaseActions)
+                    share(value, shared);
+            }
+    }
+}
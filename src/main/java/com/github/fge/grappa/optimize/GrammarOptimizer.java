@@ -0,0 +1,580 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.optimize;
+
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.base.SingleCharMatcher;
+import com.github.fge.grappa.matchers.delegate.DispatchingFirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.trie.Trie;
+import com.github.fge.grappa.matchers.trie.TrieBuilder;
+import com.github.fge.grappa.matchers.trie.TrieMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyEliminator;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Characters;
+import com.github.fge.grappa.support.Chars;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Rewrite a rule graph into an equivalent, faster one
+ *
+ * <p>The following rewrites are performed (see {@link Optimization}):</p>
+ *
+ * <ul>
+ *     <li>unlabelled sequences nested in sequences, and unlabelled {@code
+ *     firstOf()}s nested in {@code firstOf()}s, are inlined into their
+ *     parent;</li>
+ *     <li>in a {@code firstOf()}, consecutive strings (at least one of them
+ *     longer than one character) are replaced with a trie, provided that no
+ *     string is a prefix of a string which comes after it (since a trie always
+ *     matches the longest string);</li>
+ *     <li>in a {@code firstOf()}, consecutive characters, character ranges and
+ *     character sets are merged into one character set;</li>
+ *     <li>in a sequence, consecutive characters and strings are fused into
+ *     one string.</li>
+ * </ul>
+ *
+ * <p>Since actions can read the text matched by the matcher which precedes
+ * them, a matcher which is directly followed by an action is never inlined or
+ * merged with the matchers before it, and matchers which contain actions are
+ * never inlined.</p>
+ *
+ * <p>The optimized graph matches exactly the same input and produces the same
+ * values; however, the rewritten matchers no longer appear in parse trees and
+ * events, and merged terminals lose their labels. The graph is modified in
+ * place, and the rule to use may change: always use the rule returned by
+ * {@link OptimizationReport#getRule()}. Do not optimize a rule graph which is
+ * being built or run.</p>
+ *
+ * @see com.github.fge.grappa.Grappa#optimize(Rule)
+ */
+@ParametersAreNonnullByDefault
+public final class GrammarOptimizer
+{
+    private final Map<Matcher, Matcher> replacements = new IdentityHashMap<>();
+    private final Set<Matcher> inProgress
+        = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+    private final Set<Matcher> flattening
+        = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+    private final Set<Matcher> created
+        = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+    private final Map<Optimization, Integer> counts
+        = new EnumMap<>(Optimization.class);
+    private final List<String> changes = new ArrayList<>();
+
+    private GrammarOptimizer()
+    {
+    }
+
+    /**
+     * Optimize a rule graph
+     *
+     * @param rule the root rule
+     * @return the report, which contains the rule to use
+     */
+    @Nonnull
+    public static OptimizationReport optimize(final Rule rule)
+    {
+        Objects.requireNonNull(rule, "rule");
+
+        final GrammarOptimizer optimizer = new GrammarOptimizer();
+        final Matcher root
+            = optimizer.run(ProxyEliminator.eliminate((Matcher) rule));
+
+        return new OptimizationReport((Rule) root, optimizer.counts,
+            optimizer.changes);
+    }
+
+    /*
+     * Matchers are optimized depth first, so that parents see the optimized
+     * version of their children; however, when the graph has cycles, some
+     * matchers will still refer to the original version of a matcher which
+     * has been replaced, hence the second pass
+     */
+    private Matcher run(final Matcher root)
+    {
+        final Matcher ret = optimize(root);
+
+        final Set<Matcher> visited
+            = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        toVisit.push(ret);
+
+        Matcher matcher;
+
+        while (!toVisit.isEmpty()) {
+            matcher = toVisit.pop();
+            if (!visited.add(matcher))
+                continue;
+            rewire(matcher);
+            pushChildren(matcher, toVisit);
+        }
+
+        return ret;
+    }
+
+    private Matcher optimize(final Matcher matcher)
+    {
+        final Matcher done = replacements.get(matcher);
+
+        if (done != null)
+            return done;
+
+        // Proxies left by the ProxyEliminator are not armed
+        if (matcher instanceof ProxyMatcher || !inProgress.add(matcher))
+            return matcher;
+
+        final Matcher ret;
+
+        if (matcher instanceof VarFramingMatcher) {
+            final VarFramingMatcher framing = (VarFramingMatcher) matcher;
+            final Matcher inner = optimize(framing.getInner());
+            if (inner != framing.getInner())
+                framing.replaceInner(inner);
+            ret = matcher;
+        } else {
+            ret = optimizeChildren(matcher);
+        }
+
+        inProgress.remove(matcher);
+        replacements.put(matcher, ret);
+        return ret;
+    }
+
+    private Matcher optimizeChildren(final Matcher matcher)
+    {
+        final List<Matcher> children = matcher.getChildren();
+        final List<Matcher> optimized = new ArrayList<>(children.size());
+
+        for (final Matcher child: children)
+            optimized.add(optimize(child));
+
+        final Matcher ret;
+
+        if (matcher instanceof SequenceMatcher)
+            ret = rewriteSequence(matcher, optimized);
+        else if (matcher instanceof FirstOfMatcher)
+            ret = rewriteFirstOf(matcher, optimized);
+        else
+            ret = matcher;
+
+        if (ret == matcher && matcher instanceof AbstractMatcher
+            && !sameMatchers(optimized, children))
+            ((AbstractMatcher) matcher).replaceChildren(optimized);
+
+        return ret;
+    }
+
+    private static void pushChildren(final Matcher matcher,
+        final Deque<Matcher> toVisit)
+    {
+        if (matcher instanceof ProxyMatcher)
+            return;
+
+        if (matcher instanceof VarFramingMatcher) {
+            toVisit.push(((VarFramingMatcher) matcher).getInner());
+            return;
+        }
+
+        for (final Matcher child: matcher.getChildren())
+            toVisit.push(child);
+    }
+
+    private Matcher replace(final Matcher matcher)
+    {
+        final Matcher ret = replacements.get(matcher);
+        return ret == null ? matcher : ret;
+    }
+
+    private void rewire(final Matcher matcher)
+    {
+        if (matcher instanceof VarFramingMatcher) {
+            final VarFramingMatcher framing = (VarFramingMatcher) matcher;
+            final Matcher inner = framing.getInner();
+            final Matcher replaced = replace(inner);
+            if (replaced != inner)
+                framing.replaceInner(replaced);
+            return;
+        }
+
+        if (!(matcher instanceof AbstractMatcher))
+            return;
+
+        final List<Matcher> children = matcher.getChildren();
+        final List<Matcher> replaced = new ArrayList<>(children.size());
+
+        for (final Matcher child: children)
+            replaced.add(replace(child));
+
+        if (!sameMatchers(replaced, children))
+            ((AbstractMatcher) matcher).replaceChildren(replaced);
+    }
+
+    private Matcher rewriteSequence(final Matcher matcher,
+        final List<Matcher> children)
+    {
+        List<Matcher> list = new ArrayList<>();
+
+        flatten(list, children, false, matcher, true);
+        list = fuseStrings(list, matcher);
+
+        if (sameMatchers(list, children))
+            return matcher;
+
+        if (list.size() == 1 && created.contains(list.get(0)))
+            return labelLike(list.get(0), matcher);
+
+        return labelLike(new SequenceMatcher(toRules(list)), matcher);
+    }
+
+    private Matcher rewriteFirstOf(final Matcher matcher,
+        final List<Matcher> children)
+    {
+        List<Matcher> list = new ArrayList<>();
+
+        flatten(list, children, false, matcher, false);
+        list = createTries(list, matcher);
+        list = mergeCharacters(list, matcher);
+
+        if (sameMatchers(list, children))
+            return matcher;
+
+        if (list.size() == 1 && created.contains(list.get(0)))
+            return labelLike(list.get(0), matcher);
+
+        final Rule[] rules = toRules(list);
+
+        return labelLike(matcher instanceof DispatchingFirstOfMatcher
+            ? new DispatchingFirstOfMatcher(rules) : new FirstOfMatcher(rules),
+            matcher);
+    }
+
+    private void flatten(final List<Matcher> list, final List<Matcher> children,
+        final boolean followedByAction, final Matcher parent,
+        final boolean sequence)
+    {
+        final int size = children.size();
+
+        Matcher child;
+        boolean beforeAction;
+
+        for (int i = 0; i < size; i++) {
+            child = children.get(i);
+            beforeAction = i == size - 1 ? followedByAction
+                : isAction(children.get(i + 1));
+
+            if (!canFlatten(child, beforeAction, sequence)
+                || !flattening.add(child)) {
+                list.add(child);
+                continue;
+            }
+
+            record(sequence ? Optimization.FLATTEN_SEQUENCE
+                : Optimization.FLATTEN_FIRST_OF, parent,
+                child.getChildren().size() + " matchers");
+            flatten(list, child.getChildren(), beforeAction, parent, sequence);
+            flattening.remove(child);
+        }
+    }
+
+    private static boolean canFlatten(final Matcher child,
+        final boolean beforeAction, final boolean sequence)
+    {
+        if (beforeAction || child.hasCustomLabel())
+            return false;
+
+        if (!(sequence ? child instanceof SequenceMatcher
+            : child instanceof FirstOfMatcher))
+            return false;
+
+        for (final Matcher matcher: child.getChildren())
+            if (isAction(matcher))
+                return false;
+
+        return true;
+    }
+
+    private List<Matcher> fuseStrings(final List<Matcher> list,
+        final Matcher parent)
+    {
+        final List<Matcher> ret = new ArrayList<>(list.size());
+        final int size = list.size();
+        final StringBuilder sb = new StringBuilder();
+
+        int start = 0;
+        int end;
+        int runEnd;
+
+        while (start < size) {
+            end = start;
+            while (end < size && literal(list.get(end)) != null)
+                end++;
+
+            runEnd = lastBeforeAction(list, start, end);
+
+            if (runEnd - start >= 2) {
+                sb.setLength(0);
+                for (int i = start; i < runEnd; i++)
+                    sb.append(literal(list.get(i)));
+                ret.add(create(new StringMatcher(sb.toString())));
+                record(Optimization.FUSE_STRING, parent,
+                    runEnd - start + " matchers into \"" + sb + '"');
+                ret.addAll(list.subList(runEnd, end));
+            } else {
+                ret.addAll(list.subList(start, end));
+            }
+
+            if (end < size)
+                ret.add(list.get(end));
+            start = end + 1;
+        }
+
+        return ret;
+    }
+
+    private List<Matcher> createTries(final List<Matcher> list,
+        final Matcher parent)
+    {
+        final List<Matcher> ret = new ArrayList<>(list.size());
+        final int size = list.size();
+        final List<String> words = new ArrayList<>();
+
+        int start = 0;
+        int end;
+        int runEnd;
+        int segmentStart;
+        int segmentEnd;
+        String word;
+
+        while (start < size) {
+            end = start;
+            while (end < size && literal(list.get(end)) != null)
+                end++;
+
+            runEnd = lastBeforeAction(list, start, end);
+
+            segmentStart = start;
+            while (segmentStart < runEnd) {
+                words.clear();
+                words.add(literal(list.get(segmentStart)));
+                segmentEnd = segmentStart + 1;
+                while (segmentEnd < runEnd) {
+                    word = literal(list.get(segmentEnd));
+                    if (!canAddToTrie(words, word))
+                        break;
+                    words.add(word);
+                    segmentEnd++;
+                }
+
+                if (words.size() >= 2 && hasString(words)) {
+                    ret.add(create(trie(words)));
+                    record(Optimization.CREATE_TRIE, parent,
+                        words.size() + " strings");
+                } else {
+                    ret.addAll(list.subList(segmentStart, segmentEnd));
+                }
+
+                segmentStart = segmentEnd;
+            }
+
+            ret.addAll(list.subList(runEnd, end));
+
+            if (end < size)
+                ret.add(list.get(end));
+            start = end + 1;
+        }
+
+        return ret;
+    }
+
+    private List<Matcher> mergeCharacters(final List<Matcher> list,
+        final Matcher parent)
+    {
+        final List<Matcher> ret = new ArrayList<>(list.size());
+        final int size = list.size();
+
+        int start = 0;
+        int end;
+        int runEnd;
+        Characters characters;
+
+        while (start < size) {
+            end = start;
+            while (end < size && isMergeable(list.get(end)))
+                end++;
+
+            runEnd = lastBeforeAction(list, start, end);
+
+            if (runEnd - start >= 2) {
+                characters = Characters.NONE;
+                for (int i = start; i < runEnd; i++)
+                    characters = characters.add(
+                        ((SingleCharMatcher) list.get(i)).getCharacters());
+                ret.add(create(new AnyOfMatcher(characters)));
+                record(Optimization.MERGE_CHARACTERS, parent,
+                    runEnd - start + " matchers into " + characters);
+                ret.addAll(list.subList(runEnd, end));
+            } else {
+                ret.addAll(list.subList(start, end));
+            }
+
+            if (end < size)
+                ret.add(list.get(end));
+            start = end + 1;
+        }
+
+        return ret;
+    }
+
+    /*
+     * An action reads the text matched by the matcher just before it; this
+     * matcher must therefore be left alone
+     */
+    private static int lastBeforeAction(final List<Matcher> list,
+        final int start, final int end)
+    {
+        if (end > start && end < list.size() && isAction(list.get(end)))
+            return end - 1;
+        return end;
+    }
+
+    /*
+     * A trie matches the longest string, a firstOf() the first matching one;
+     * they are equivalent if no string is a prefix of a string after it
+     */
+    private static boolean canAddToTrie(final List<String> words,
+        final String word)
+    {
+        for (final String previous: words)
+            if (word.length() > previous.length()
+                && word.startsWith(previous))
+                return false;
+        return true;
+    }
+
+    private static boolean hasString(final List<String> words)
+    {
+        for (final String word: words)
+            if (word.length() > 1)
+                return true;
+        return false;
+    }
+
+    private static Matcher trie(final List<String> words)
+    {
+        final TrieBuilder builder = Trie.newBuilder();
+
+        for (final String word: words)
+            builder.addWord(word);
+
+        return new TrieMatcher(builder.build());
+    }
+
+    @Nullable
+    private static String literal(final Matcher matcher)
+    {
+        if (matcher instanceof CharMatcher) {
+            final char c = ((CharMatcher) matcher).getCharacter();
+            return c == Chars.EOI ? null : String.valueOf(c);
+        }
+
+        if (matcher instanceof StringMatcher) {
+            final String s = ((StringMatcher) matcher).getString();
+            return s.isEmpty() ? null : s;
+        }
+
+        return null;
+    }
+
+    private static boolean isMergeable(final Matcher matcher)
+    {
+        if (matcher instanceof CharMatcher)
+            return ((CharMatcher) matcher).getCharacter() != Chars.EOI;
+        return matcher instanceof CharRangeMatcher
+            || matcher instanceof AnyOfMatcher;
+    }
+
+    private static boolean isAction(final Matcher matcher)
+    {
+        return matcher instanceof ActionMatcher;
+    }
+
+    private static boolean sameMatchers(final List<Matcher> list,
+        final List<Matcher> children)
+    {
+        final int size = list.size();
+
+        if (size != children.size())
+            return false;
+
+        for (int i = 0; i < size; i++)
+            if (list.get(i) != children.get(i))
+                return false;
+
+        return true;
+    }
+
+    private static Rule[] toRules(final List<Matcher> list)
+    {
+        return list.toArray(new Rule[list.size()]);
+    }
+
+    private Matcher create(final Matcher matcher)
+    {
+        created.add(matcher);
+        return matcher;
+    }
+
+    private static Matcher labelLike(final Matcher matcher,
+        final Matcher original)
+    {
+        return original.hasCustomLabel()
+            ? (Matcher) matcher.label(original.getLabel()) : matcher;
+    }
+
+    private void record(final Optimization optimization, final Matcher parent,
+        final String details)
+    {
+        final Integer count = counts.get(optimization);
+        counts.put(optimization, count == null ? 1 : count + 1);
+        changes.add(parent.getLabel() + ": " + optimization + " (" + details
+            + ')');
+    }
+}
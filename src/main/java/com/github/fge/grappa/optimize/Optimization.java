@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.optimize;
+
+/**
+ * The rewrites performed by a {@link GrammarOptimizer}
+ */
+public enum Optimization
+{
+    /**
+     * An unlabelled sequence is inlined into its parent sequence
+     */
+    FLATTEN_SEQUENCE("flattened sequence"),
+    /**
+     * An unlabelled {@code firstOf()} is inlined into its parent {@code
+     * firstOf()}
+     */
+    FLATTEN_FIRST_OF("flattened firstOf"),
+    /**
+     * Consecutive single character alternatives of a {@code firstOf()} are
+     * merged into one {@link com.github.fge.grappa.matchers.AnyOfMatcher}
+     */
+    MERGE_CHARACTERS("merged characters"),
+    /**
+     * Consecutive string alternatives of a {@code firstOf()} are replaced with
+     * a {@link com.github.fge.grappa.matchers.trie.TrieMatcher}
+     */
+    CREATE_TRIE("created trie"),
+    /**
+     * Consecutive characters and strings of a sequence are fused into one
+     * {@link com.github.fge.grappa.matchers.StringMatcher}
+     */
+    FUSE_STRING("fused string"),
+    ;
+
+    private final String description;
+
+    Optimization(final String description)
+    {
+        this.description = description;
+    }
+
+    @Override
+    public String toString()
+    {
+        return description;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.optimize;
+
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a {@link GrammarOptimizer} run
+ *
+ * <p>This contains the optimized rule, the number of times each {@link
+ * Optimization} was applied, and a description of each change, in the form
+ * {@code label: optimization (details)}, where {@code label} is the label of
+ * the optimized matcher.</p>
+ */
+@Immutable
+public final class OptimizationReport
+{
+    private final Rule rule;
+    private final Map<Optimization, Integer> counts;
+    private final List<String> changes;
+
+    OptimizationReport(final Rule rule,
+        final Map<Optimization, Integer> counts, final List<String> changes)
+    {
+        this.rule = rule;
+        this.counts = new EnumMap<>(counts);
+        this.changes = ImmutableList.copyOf(changes);
+    }
+
+    /**
+     * Get the optimized rule
+     *
+     * @return the rule to use in parse runners
+     */
+    @Nonnull
+    public Rule getRule()
+    {
+        return rule;
+    }
+
+    /**
+     * Get the number of times an optimization was applied
+     *
+     * @param optimization the optimization
+     * @return the count
+     */
+    public int getCount(@Nonnull final Optimization optimization)
+    {
+        final Integer count = counts.get(optimization);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Get the total number of optimizations applied
+     *
+     * @return the count
+     */
+    public int getTotalCount()
+    {
+        int ret = 0;
+        for (final Integer count: counts.values())
+            ret += count;
+        return ret;
+    }
+
+    /**
+     * Get the description of all changes
+     *
+     * @return an immutable list
+     */
+    @Nonnull
+    public List<String> getChanges()
+    {
+        return changes;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for (final Optimization optimization: Optimization.values())
+            sb.append(optimization).append(": ")
+                .append(getCount(optimization)).append('\n');
+
+        for (final String change: changes)
+            sb.append("  ").append(change).append('\n');
+
+        return sb.toString();
+    }
+}
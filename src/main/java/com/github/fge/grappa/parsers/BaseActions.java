@@ -17,6 +17,7 @@
 package com.github.fge.grappa.parsers;
 
 import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.buffers.StreamingInputBuffer;
 import com.github.fge.grappa.exceptions.InvalidGrammarException;
 import com.github.fge.grappa.stack.ValueStack;
 import com.github.fge.grappa.run.context.Context;
@@ -36,7 +37,8 @@ import java.util.Objects;
 public abstract class BaseActions<V>
     implements ContextAware<V>
 {
-    private Context<V> context;
+    private Context<V> currentContext;
+    private ThreadLocal<Context<V>> sharedContext = null;
 
     /**
      * The current context for use with action methods. Updated immediately
@@ -46,7 +48,7 @@ public abstract class BaseActions<V>
      */
     public final Context<V> getContext()
     {
-        return context;
+        return sharedContext == null ? currentContext : sharedContext.get();
     }
 
     /**
@@ -57,7 +59,27 @@ public abstract class BaseActions<V>
     @Override
     public final void setContext(final Context<V> context)
     {
-        this.context = Objects.requireNonNull(context, "context");
+        Objects.requireNonNull(context, "context");
+        if (sharedContext == null)
+            currentContext = context;
+        else
+            sharedContext.set(context);
+    }
+
+    /**
+     * Keep the current context per thread from now on
+     *
+     * <p>This allows actions of this instance to run from several threads at
+     * once. Calling this method more than once has no effect.</p>
+     *
+     * <p>Do not use manually!</p>
+     *
+     * @see com.github.fge.grappa.Grappa#freeze(com.github.fge.grappa.rules.Rule)
+     */
+    public final synchronized void share()
+    {
+        if (sharedContext == null)
+            sharedContext = new ThreadLocal<>();
     }
 
     /**
@@ -67,7 +89,7 @@ public abstract class BaseActions<V>
      */
     public final int currentIndex()
     {
-        check();
+        final Context<V> context = check();
         return context.getCurrentIndex();
     }
 
@@ -81,7 +103,7 @@ public abstract class BaseActions<V>
      */
     public String match()
     {
-        check();
+        final Context<V> context = check();
         return context.getMatch();
     }
 
@@ -95,7 +117,7 @@ public abstract class BaseActions<V>
      */
     public IndexRange matchRange()
     {
-        check();
+        final Context<V> context = check();
         return context.getMatchRange();
     }
 
@@ -113,7 +135,7 @@ public abstract class BaseActions<V>
      */
     public String matchOrDefault(final String defaultString)
     {
-        check();
+        final Context<V> context = check();
         final String match = context.getMatch();
         return match.isEmpty() ? defaultString : match;
     }
@@ -133,7 +155,7 @@ public abstract class BaseActions<V>
     // TODO: can't return null; check what _really_ happens.
     public char matchedChar()
     {
-        check();
+        final Context<V> context = check();
         return context.getFirstMatchChar();
     }
 
@@ -148,7 +170,7 @@ public abstract class BaseActions<V>
      */
     public int matchStart()
     {
-        check();
+        final Context<V> context = check();
         return context.getMatchStartIndex();
     }
 
@@ -164,7 +186,7 @@ public abstract class BaseActions<V>
      */
     public int matchEnd()
     {
-        check();
+        final Context<V> context = check();
         return context.getMatchEndIndex();
     }
 
@@ -178,7 +200,7 @@ public abstract class BaseActions<V>
      */
     public int matchLength()
     {
-        check();
+        final Context<V> context = check();
         return context.getMatchLength();
     }
 
@@ -190,10 +212,37 @@ public abstract class BaseActions<V>
      */
     public Position position()
     {
-        check();
+        final Context<V> context = check();
         return context.getPosition();
     }
 
+    /**
+     * Declare the current index as a commit point of the input
+     *
+     * <p>If the input buffer is a {@link StreamingInputBuffer}, input below
+     * the current index may be discarded: the parser must not backtrack
+     * before this index anymore, nor read the input matched so far. Typically,
+     * this action is used after each record of a stream of records.</p>
+     *
+     * <p>This action has no effect with other input buffers, or when it is run
+     * in a predicate.</p>
+     *
+     * @return true
+     *
+     * @see StreamingInputBuffer#commit(int)
+     */
+    public boolean commitInput()
+    {
+        final Context<V> context = check();
+        final InputBuffer buffer = context.getInputBuffer();
+
+        if (buffer instanceof StreamingInputBuffer && !context.inPredicate())
+            ((StreamingInputBuffer) buffer)
+                .commit(context.getCurrentIndex());
+
+        return true;
+    }
+
     /**
      * Pushes the given value onto the value stack. Equivalent to push(0,
      * value).
@@ -203,7 +252,7 @@ public abstract class BaseActions<V>
      */
     public boolean push(final V value)
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().push(value);
         return true;
     }
@@ -222,7 +271,7 @@ public abstract class BaseActions<V>
      */
     public boolean push(final int down, final V value)
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().push(down, value);
         return true;
     }
@@ -236,7 +285,7 @@ public abstract class BaseActions<V>
      */
     public V pop()
     {
-        check();
+        final Context<V> context = check();
         return context.getValueStack().pop();
     }
 
@@ -269,7 +318,7 @@ public abstract class BaseActions<V>
      */
     public V pop(final int down)
     {
-        check();
+        final Context<V> context = check();
         return context.getValueStack().pop(down);
     }
 
@@ -301,7 +350,7 @@ public abstract class BaseActions<V>
      */
     public boolean drop()
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().pop();
         return true;
     }
@@ -319,7 +368,7 @@ public abstract class BaseActions<V>
      */
     public boolean drop(final int down)
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().pop(down);
         return true;
     }
@@ -333,7 +382,7 @@ public abstract class BaseActions<V>
      */
     public V peek()
     {
-        check();
+        final Context<V> context = check();
         return context.getValueStack().peek();
     }
 
@@ -364,7 +413,7 @@ public abstract class BaseActions<V>
      */
     public V peek(final int down)
     {
-        check();
+        final Context<V> context = check();
         return context.getValueStack().peek(down);
     }
 
@@ -395,7 +444,7 @@ public abstract class BaseActions<V>
      */
     public boolean poke(final V value)
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().poke(value);
         return true;
     }
@@ -414,7 +463,7 @@ public abstract class BaseActions<V>
      */
     public boolean poke(final int down, final V value)
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().poke(down, value);
         return true;
     }
@@ -428,7 +477,7 @@ public abstract class BaseActions<V>
      */
     public boolean dup()
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().dup();
         return true;
     }
@@ -443,7 +492,7 @@ public abstract class BaseActions<V>
      */
     public boolean swap()
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().swap();
         return true;
     }
@@ -459,7 +508,7 @@ public abstract class BaseActions<V>
      */
     public boolean swap(final int n)
     {
-        check();
+        final Context<V> context = check();
         context.getValueStack().swap(n);
         return true;
     }
@@ -471,7 +520,7 @@ public abstract class BaseActions<V>
      */
     public Character currentChar()
     {
-        check();
+        final Context<V> context = check();
         return context.getCurrentChar();
     }
 
@@ -491,7 +540,7 @@ public abstract class BaseActions<V>
      */
     public boolean inPredicate()
     {
-        check();
+        final Context<V> context = check();
         return context.inPredicate();
     }
 
@@ -512,15 +561,17 @@ public abstract class BaseActions<V>
      */
     public boolean hasError()
     {
-        check();
+        final Context<V> context = check();
         return context.hasError();
     }
 
     // TODO: pain point here
-    private void check()
+    private Context<V> check()
     {
+        final Context<V> context = getContext();
         if (context == null || context.getMatcher() == null)
             throw new InvalidGrammarException("rule has an unwrapped action"
                 + " expression");
+        return context;
     }
 }
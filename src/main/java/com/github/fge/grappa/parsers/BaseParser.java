@@ -33,7 +33,7 @@ import com.github.fge.grappa.matchers.NothingMatcher;
 import com.github.fge.grappa.matchers.RegexMatcher;
 import com.github.fge.grappa.matchers.StringIgnoreCaseMatcher;
 import com.github.fge.grappa.matchers.StringMatcher;
-import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.DispatchingFirstOfMatcher;
 import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
 import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
 import com.github.fge.grappa.matchers.join.JoinMatcherBootstrap;
@@ -570,6 +570,26 @@ public abstract class BaseParser<V>
         return trie(words);
     }
 
+    /**
+     * Match one string among many using a prebuilt <a
+     * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a>
+     *
+     * <p>Use this method to match against a trie you have built yourself, for
+     * instance a compact one (see {@link TrieBuilder#compact()}), or to share
+     * one trie between several rules or parsers. Matching is otherwise the
+     * same as for {@link #trie(Collection)}.</p>
+     *
+     * @param trie the trie
+     * @return a rule
+     *
+     * @see TrieMatcher
+     */
+    @Cached
+    public Rule trie(final Trie trie)
+    {
+        return new TrieMatcher(trie);
+    }
+
     /**
      * Match one string among many using a <a
      * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a>, case
@@ -626,6 +646,25 @@ public abstract class BaseParser<V>
         return trieIgnoreCase(words);
     }
 
+    /**
+     * Match one string among many using a prebuilt <a
+     * href="http://en.wikipedia.org/wiki/Trie" target="_blank">trie</a>, case
+     * insensitive version
+     *
+     * <p>Matching is otherwise the same as for {@link
+     * #trieIgnoreCase(Collection)}; see also {@link #trie(Trie)}.</p>
+     *
+     * @param trie the trie
+     * @return a rule
+     *
+     * @see CaseInsensitiveTrieMatcher
+     */
+    @Cached
+    public Rule trieIgnoreCase(final Trie trie)
+    {
+        return new CaseInsensitiveTrieMatcher(trie);
+    }
+
     /*
      * "DELEGATING" RULES
      *
@@ -660,7 +699,9 @@ public abstract class BaseParser<V>
     /**
      * Match the first rule of a series of rules
      *
-     * <p>When one rule matches, all others are ignored.</p>
+     * <p>When one rule matches, all others are ignored. Rules which cannot
+     * match the current character are not tried at all (see {@link
+     * DispatchingFirstOfMatcher}).</p>
      *
      * @param rules the subrules
      * @return a rule
@@ -677,7 +718,7 @@ public abstract class BaseParser<V>
 
         for (final Object object: rules) {
             if (!(object instanceof String))
-                return new FirstOfMatcher(toRules(rules));
+                return new DispatchingFirstOfMatcher(toRules(rules));
             strings.add((String) object);
         }
 
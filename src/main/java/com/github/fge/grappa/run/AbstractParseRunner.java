@@ -20,11 +20,13 @@ import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
 import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.internal.NonFinalForTesting;
 import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyEliminator;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.DefaultMatcherContext;
 import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.stack.DefaultValueStack;
 import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Supplier;
 
 import javax.annotation.Nonnull;
 import java.util.Objects;
@@ -33,12 +35,38 @@ public abstract class AbstractParseRunner<V>
     implements ParseRunner<V>
 {
     protected final Matcher rootMatcher;
+    protected final Supplier<? extends ValueStack<V>> stackSupplier;
     protected ValueStack<V> valueStack;
     protected Object stackSnapshot;
 
     protected AbstractParseRunner(@Nonnull final Rule rule)
     {
-        rootMatcher = Objects.requireNonNull((Matcher) rule, "rule");
+        this(rule, new Supplier<ValueStack<V>>()
+        {
+            @Override
+            public ValueStack<V> get()
+            {
+                return new DefaultValueStack<>();
+            }
+        });
+    }
+
+    /**
+     * Constructor with a custom value stack supplier
+     *
+     * <p>The supplier is called once per parsing run; it must return a new,
+     * empty {@link ValueStack} each time it is called.</p>
+     *
+     * @param rule the rule
+     * @param stackSupplier the value stack supplier
+     */
+    protected AbstractParseRunner(@Nonnull final Rule rule,
+        @Nonnull final Supplier<? extends ValueStack<V>> stackSupplier)
+    {
+        rootMatcher = ProxyEliminator.eliminate(
+            Objects.requireNonNull((Matcher) rule, "rule"));
+        this.stackSupplier = Objects.requireNonNull(stackSupplier,
+            "stackSupplier");
     }
 
     public final ValueStack<V> getValueStack()
@@ -55,8 +83,8 @@ public abstract class AbstractParseRunner<V>
 
     protected final void resetValueStack()
     {
-        // TODO: write a "memoizing" API
-        valueStack = new DefaultValueStack<>();
+        valueStack = Objects.requireNonNull(stackSupplier.get(),
+            "value stack supplier returned null");
         stackSnapshot = null;
     }
 
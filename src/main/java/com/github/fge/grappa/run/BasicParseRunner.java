@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Supplier;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * The most basic of all {@link ParseRunner} implementations
+ *
+ * <p>It runs a rule against a given input text and builds a corresponding
+ * {@link ParsingResult} instance; it does not report any parse errors nor
+ * recover from them, and it does not post any events: each matcher is run
+ * directly. Use a {@link ListeningParseRunner} if you need to listen to parsing
+ * events.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
+@ParametersAreNonnullByDefault
+public final class BasicParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    /**
+     * Create a new runner for the given rule
+     *
+     * @param rule the parser rule
+     */
+    public BasicParseRunner(final Rule rule)
+    {
+        super(rule);
+    }
+
+    /**
+     * Create a new runner for the given rule, using a custom value stack
+     * implementation
+     *
+     * @param rule the parser rule
+     * @param stackSupplier the value stack supplier
+     */
+    public BasicParseRunner(final Rule rule,
+        final Supplier<? extends ValueStack<V>> stackSupplier)
+    {
+        super(rule, stackSupplier);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final boolean matched = rootContext.runMatcher();
+        return createParsingResult(matched, rootContext);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        return context.getMatcher().match(context);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.compiled.CompiledGrammar;
+import com.github.fge.grappa.run.compiled.GrammarCompiler;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Supplier;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * A parse runner using compiled code for the context free parts of a grammar
+ *
+ * <p>The rule graph is compiled once, when the runner is created, using a
+ * {@link GrammarCompiler}. When a matcher which has been compiled is about to
+ * be run, the generated code is run instead; all other matchers (and in
+ * particular, all rules containing actions) run as usual.</p>
+ *
+ * <p>Results are the same as with other parse runners.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
+@ParametersAreNonnullByDefault
+public final class CompiledParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private final CompiledGrammar grammar;
+
+    /**
+     * Create a new runner for the given rule
+     *
+     * @param rule the parser rule
+     */
+    public CompiledParseRunner(final Rule rule)
+    {
+        super(rule);
+        grammar = GrammarCompiler.compile(rule);
+    }
+
+    /**
+     * Create a new runner for the given rule, using a custom value stack
+     * implementation
+     *
+     * @param rule the parser rule
+     * @param stackSupplier the value stack supplier
+     */
+    public CompiledParseRunner(final Rule rule,
+        final Supplier<? extends ValueStack<V>> stackSupplier)
+    {
+        super(rule, stackSupplier);
+        grammar = GrammarCompiler.compile(rule);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final boolean matched = rootContext.runMatcher();
+        return createParsingResult(matched, rootContext);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final int entry = grammar.getEntry(matcher);
+
+        if (entry == -1)
+            return matcher.match(context);
+
+        final int endIndex = grammar.match(entry, context.getInputBuffer(),
+            context.getCurrentIndex());
+
+        if (endIndex == -1)
+            return false;
+
+        context.setCurrentIndex(endIndex);
+        return true;
+    }
+}
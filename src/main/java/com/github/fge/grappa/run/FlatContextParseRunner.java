@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.FlatMatcherContext;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Supplier;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * A parse runner keeping the match state of all levels in flat arrays
+ *
+ * <p>This runner uses a {@link FlatMatcherContext} instead of a chain of
+ * {@link com.github.fge.grappa.run.context.DefaultMatcherContext}s; it does
+ * not post any events.</p>
+ *
+ * <p>Results are the same as with other parse runners.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
+@ParametersAreNonnullByDefault
+public final class FlatContextParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    /**
+     * Create a new runner for the given rule
+     *
+     * @param rule the parser rule
+     */
+    public FlatContextParseRunner(final Rule rule)
+    {
+        super(rule);
+    }
+
+    /**
+     * Create a new runner for the given rule, using a custom value stack
+     * implementation
+     *
+     * @param rule the parser rule
+     * @param stackSupplier the value stack supplier
+     */
+    public FlatContextParseRunner(final Rule rule,
+        final Supplier<? extends ValueStack<V>> stackSupplier)
+    {
+        super(rule, stackSupplier);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final boolean matched = rootContext.runMatcher();
+        return createParsingResult(matched, rootContext);
+    }
+
+    @Override
+    protected MatcherContext<V> createRootContext(
+        final InputBuffer inputBuffer, final MatchHandler matchHandler)
+    {
+        return new FlatMatcherContext<>(inputBuffer, valueStack, matchHandler,
+            rootMatcher);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        return context.getMatcher().match(context);
+    }
+}
@@ -28,21 +28,34 @@ import com.github.fge.grappa.run.events.MatchSuccessEvent;
 import com.github.fge.grappa.run.events.PostParseEvent;
 import com.github.fge.grappa.run.events.PreMatchEvent;
 import com.github.fge.grappa.run.events.PreParseEvent;
+import com.github.fge.grappa.stack.ArrayValueStack;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Supplier;
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.common.eventbus.SubscriberExceptionContext;
 import com.google.common.eventbus.SubscriberExceptionHandler;
 
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
- * The most basic of all {@link ParseRunner} implementations. It runs a rule
- * against a given input text and builds a corresponding {@link ParsingResult}
- * instance. However, it does not report any parse errors nor recover from them.
- * Instead it simply marks the ParsingResult as "unmatched" if the input is not
- * valid with regard to the rule grammar.It never causes the parser to perform
- * more than one parsing run and is the fastest way to determine whether a given
- * input conforms to the rule grammar.
+ * A {@link ParseRunner} posting parsing events to registered listeners
+ *
+ * <p>Apart from the events it posts, it behaves like a {@link
+ * BasicParseRunner}; in particular, it does not report any parse errors nor
+ * recover from them. When no listener is registered, no events are created and
+ * matchers are run directly, as a {@link BasicParseRunner} does.</p>
+ *
+ * <p>Listeners are called directly, in the order in which they were
+ * registered; match events are reused from one match to the next. Only
+ * listeners declaring {@link Subscribe} methods of their own, other than the
+ * methods of {@link ParseRunnerListener}, are registered to an {@link
+ * EventBus}.</p>
+ *
+ * @see #registerListener(ParseRunnerListener)
  */
 @SuppressWarnings("DesignForExtension")
 @ParametersAreNonnullByDefault
@@ -60,15 +73,22 @@ public class ListeningParseRunner<V>
         public void handleException(final Throwable exception,
             final SubscriberExceptionContext context)
         {
-            if (throwable == null)
-                throwable = exception;
-            else
-                throwable.addSuppressed(exception);
+            recordThrowable(exception);
         }
     });
 
+    private ParseRunnerListener<V>[] listeners = noListeners();
+    private boolean posting = false;
+    private boolean listening = false;
+
+    private final PreMatchEvent<V> preMatchEvent = new PreMatchEvent<>(null);
+    private final MatchSuccessEvent<V> matchSuccessEvent
+        = new MatchSuccessEvent<>(null);
+    private final MatchFailureEvent<V> matchFailureEvent
+        = new MatchFailureEvent<>(null);
+
     /**
-     * Creates a new BasicParseRunner instance for the given rule.
+     * Creates a new ListeningParseRunner instance for the given rule.
      *
      * @param rule the parser rule
      */
@@ -77,10 +97,46 @@ public class ListeningParseRunner<V>
         super(rule);
     }
 
+    /**
+     * Creates a new parse runner for the given rule, using a custom value
+     * stack implementation
+     *
+     * @param rule the parser rule
+     * @param stackSupplier the value stack supplier
+     *
+     * @see ArrayValueStack
+     */
+    public ListeningParseRunner(final Rule rule,
+        final Supplier<? extends ValueStack<V>> stackSupplier)
+    {
+        super(rule, stackSupplier);
+    }
+
+    /**
+     * Register a listener
+     *
+     * <p>If the listener declares {@link Subscribe} methods other than the
+     * ones of {@link ParseRunnerListener}, it is registered to the event bus of
+     * this runner (and all events are posted to it); otherwise, its methods are
+     * called directly.</p>
+     *
+     * @param listener the listener
+     */
     // TODO: replace with a supplier mechanism
     public final void registerListener(final ParseRunnerListener<V> listener)
     {
-        bus.register(listener);
+        Objects.requireNonNull(listener, "listener");
+
+        if (hasOwnSubscribers(listener.getClass())) {
+            bus.register(listener);
+            posting = true;
+        } else {
+            final int length = listeners.length;
+            listeners = Arrays.copyOf(listeners, length + 1);
+            listeners[length] = listener;
+        }
+
+        listening = true;
     }
 
     @Override
@@ -91,7 +147,21 @@ public class ListeningParseRunner<V>
 
         final MatcherContext<V> rootContext
             = createRootContext(inputBuffer, this);
-        bus.post(new PreParseEvent<>(rootContext));
+
+        if (!listening)
+            return createParsingResult(rootContext.runMatcher(), rootContext);
+
+        final PreParseEvent<V> preParseEvent = new PreParseEvent<>(rootContext);
+
+        for (final ParseRunnerListener<V> listener: listeners)
+            try {
+                listener.beforeParse(preParseEvent);
+            } catch (Throwable t) {
+                recordThrowable(t);
+            }
+
+        if (posting)
+            bus.post(preParseEvent);
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (before parse)",
@@ -101,7 +171,17 @@ public class ListeningParseRunner<V>
         final ParsingResult<V> result
             = createParsingResult(matched, rootContext);
 
-        bus.post(new PostParseEvent<>(result));
+        final PostParseEvent<V> postParseEvent = new PostParseEvent<>(result);
+
+        for (final ParseRunnerListener<V> listener: listeners)
+            try {
+                listener.afterParse(postParseEvent);
+            } catch (Throwable t) {
+                recordThrowable(t);
+            }
+
+        if (posting)
+            bus.post(postParseEvent);
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (after parse)",
@@ -111,12 +191,27 @@ public class ListeningParseRunner<V>
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> boolean match(final MatcherContext<T> context)
     {
         final Matcher matcher = context.getMatcher();
 
-        final PreMatchEvent<T> preMatchEvent = new PreMatchEvent<>(context);
-        bus.post(preMatchEvent);
+        if (!listening)
+            return matcher.match(context);
+
+        final MatcherContext<V> ctx = (MatcherContext<V>) context;
+
+        preMatchEvent.setContext(ctx);
+
+        for (final ParseRunnerListener<V> listener: listeners)
+            try {
+                listener.beforeMatch(preMatchEvent);
+            } catch (Throwable t) {
+                recordThrowable(t);
+            }
+
+        if (posting)
+            bus.post(preMatchEvent);
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (before match)",
@@ -126,11 +221,30 @@ public class ListeningParseRunner<V>
         @SuppressWarnings("ConstantConditions")
         final boolean match = matcher.match(context);
 
-        final MatchContextEvent<T> postMatchEvent = match
-            ? new MatchSuccessEvent<>(context)
-            : new MatchFailureEvent<>(context);
+        final MatchContextEvent<V> postMatchEvent;
 
-        bus.post(postMatchEvent);
+        if (match) {
+            matchSuccessEvent.setContext(ctx);
+            postMatchEvent = matchSuccessEvent;
+            for (final ParseRunnerListener<V> listener: listeners)
+                try {
+                    listener.matchSuccess(matchSuccessEvent);
+                } catch (Throwable t) {
+                    recordThrowable(t);
+                }
+        } else {
+            matchFailureEvent.setContext(ctx);
+            postMatchEvent = matchFailureEvent;
+            for (final ParseRunnerListener<V> listener: listeners)
+                try {
+                    listener.matchFailure(matchFailureEvent);
+                } catch (Throwable t) {
+                    recordThrowable(t);
+                }
+        }
+
+        if (posting)
+            bus.post(postMatchEvent);
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (after match)",
@@ -138,4 +252,45 @@ public class ListeningParseRunner<V>
 
         return match;
     }
+
+    private void recordThrowable(final Throwable t)
+    {
+        if (throwable == null)
+            throwable = t;
+        else
+            throwable.addSuppressed(t);
+    }
+
+    /*
+     * Tell whether a listener class declares subscribers other than the
+     * methods of ParseRunnerListener; they can only be called by the event bus
+     */
+    private static boolean hasOwnSubscribers(final Class<?> c)
+    {
+        for (Class<?> cl = c; cl != ParseRunnerListener.class;
+            cl = cl.getSuperclass())
+            for (final Method method: cl.getDeclaredMethods())
+                if (method.isAnnotationPresent(Subscribe.class)
+                    && !isListenerMethod(method))
+                    return true;
+
+        return false;
+    }
+
+    private static boolean isListenerMethod(final Method method)
+    {
+        try {
+            ParseRunnerListener.class.getDeclaredMethod(method.getName(),
+                method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException ignored) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <V> ParseRunnerListener<V>[] noListeners()
+    {
+        return new ParseRunnerListener[0];
+    }
 }
@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.DefaultMatcherContext;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A packrat parse runner
+ *
+ * <p>This runner remembers the outcome of matching a rule at a given input
+ * position: whether the rule matched, where the match ended and which values
+ * it pushed onto the value stack. When the same rule is tried again at the
+ * same position (typically, when an enclosing {@code firstOf()} tries another
+ * alternative starting with the same rule), the outcome is replayed instead of
+ * matching the rule again.</p>
+ *
+ * <p>By default, all rules defined by a parser method are memoized, except
+ * for those which can run an action or define action variables, directly or
+ * through the rules they use; you can also pass an explicit list of rules to
+ * memoize. The memo table is cleared
+ * at the beginning of each run, and holds at most a given number of entries
+ * (see {@link #DEFAULT_MAX_ENTRIES}); when it is full, the least recently used
+ * entry is evicted.</p>
+ *
+ * <p>Only matches which do not read or modify the values which were already on
+ * the value stack when the rule started are memoized; a failed match is only
+ * memoized if it left the value stack untouched. Rules run from inside a
+ * predicate ({@code test()}, {@code testNot()}) are never memoized.</p>
+ *
+ * <p><strong>Important:</strong> the actions of memoized rules are not run
+ * again when an outcome is replayed. Only pass rules whose actions have no
+ * side effects other than on the value stack.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
+@ParametersAreNonnullByDefault
+public final class MemoizingParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    /**
+     * Default maximum number of entries in the memo table
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    private static final MemoEntry FAILURE = new MemoEntry(false, -1, null);
+
+    private final Predicate<? super Matcher> memoized;
+    private final int maxEntries;
+
+    private TrackingValueStack<V> trackingStack;
+    private Map<MemoKey, MemoEntry> memo;
+    private int hits;
+    private int misses;
+
+    /**
+     * Create a new runner memoizing all parser rule methods which run no
+     * actions
+     *
+     * @param rule the parser rule
+     */
+    public MemoizingParseRunner(final Rule rule)
+    {
+        super(rule);
+        memoized = pureRuleMethods(rootMatcher);
+        maxEntries = DEFAULT_MAX_ENTRIES;
+    }
+
+    /**
+     * Create a new runner memoizing all parser rule methods which run no
+     * actions, using a custom value stack implementation
+     *
+     * @param rule the parser rule
+     * @param stackSupplier the value stack supplier
+     */
+    public MemoizingParseRunner(final Rule rule,
+        final Supplier<? extends ValueStack<V>> stackSupplier)
+    {
+        super(rule, stackSupplier);
+        memoized = pureRuleMethods(rootMatcher);
+        maxEntries = DEFAULT_MAX_ENTRIES;
+    }
+
+    /**
+     * Create a new runner memoizing only the given rules
+     *
+     * <p>Rules are compared by identity; note that {@code label()} returns a
+     * different rule.</p>
+     *
+     * @param rule the parser rule
+     * @param memoizedRules the rules to memoize
+     * @param maxEntries the maximum number of entries in the memo table
+     */
+    public MemoizingParseRunner(final Rule rule,
+        final Iterable<? extends Rule> memoizedRules, final int maxEntries)
+    {
+        super(rule);
+        memoized = toPredicate(memoizedRules);
+        this.maxEntries = checkMaxEntries(maxEntries);
+    }
+
+    /**
+     * Create a new runner memoizing only the given rules, using a custom value
+     * stack implementation
+     *
+     * @param rule the parser rule
+     * @param stackSupplier the value stack supplier
+     * @param memoizedRules the rules to memoize
+     * @param maxEntries the maximum number of entries in the memo table
+     */
+    public MemoizingParseRunner(final Rule rule,
+        final Supplier<? extends ValueStack<V>> stackSupplier,
+        final Iterable<? extends Rule> memoizedRules, final int maxEntries)
+    {
+        super(rule, stackSupplier);
+        memoized = toPredicate(memoizedRules);
+        this.maxEntries = checkMaxEntries(maxEntries);
+    }
+
+    /**
+     * Return the number of rule matches replayed from the memo table during
+     * the last run
+     *
+     * @return the number of hits
+     */
+    public int getMemoHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Return the number of memoizable rule matches which had to be performed
+     * during the last run
+     *
+     * @return the number of misses
+     */
+    public int getMemoMisses()
+    {
+        return misses;
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+        trackingStack = new TrackingValueStack<>(valueStack);
+        memo = new LruMap(maxEntries);
+        hits = 0;
+        misses = 0;
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final boolean matched = rootContext.runMatcher();
+        return createParsingResult(matched, rootContext);
+    }
+
+    @Override
+    protected MatcherContext<V> createRootContext(
+        final InputBuffer inputBuffer, final MatchHandler matchHandler)
+    {
+        return new DefaultMatcherContext<>(inputBuffer, trackingStack,
+            matchHandler, rootMatcher);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+
+        if (!memoized.apply(matcher) || context.inPredicate())
+            return matcher.match(context);
+
+        final int startIndex = context.getCurrentIndex();
+        final MemoKey key = new MemoKey(matcher, startIndex);
+        final MemoEntry entry = memo.get(key);
+
+        if (entry != null) {
+            hits++;
+            return entry.replay(trackingStack, context);
+        }
+
+        misses++;
+
+        final int sizeBefore = trackingStack.currentSize();
+        final int outer = trackingStack.enterFrame();
+        final boolean match = matcher.match(context);
+        final int lowest = trackingStack.exitFrame(outer);
+
+        if (lowest < sizeBefore)
+            return match;
+
+        final int pushed = trackingStack.currentSize() - sizeBefore;
+
+        if (match)
+            memo.put(key, new MemoEntry(true, context.getCurrentIndex(),
+                trackingStack.topElements(pushed)));
+        else if (pushed == 0)
+            memo.put(key, FAILURE);
+
+        return match;
+    }
+
+    /*
+     * Rules defined by a parser method, unless they can run an action or
+     * define action variables: replaying such a rule would skip the side
+     * effects of these actions
+     */
+    private static Predicate<Matcher> pureRuleMethods(final Matcher root)
+    {
+        final Set<Matcher> impure = impureMatchers(root);
+        return new Predicate<Matcher>()
+        {
+            @Override
+            public boolean apply(final Matcher input)
+            {
+                return input.getType() == MatcherType.COMPOSITE
+                    && input.hasCustomLabel() && !impure.contains(input);
+            }
+        };
+    }
+
+    /*
+     * Collect all matchers reachable from the root which are, or can reach,
+     * an action matcher or a variable framing matcher
+     */
+    private static Set<Matcher> impureMatchers(final Matcher root)
+    {
+        final Map<Matcher, List<Matcher>> parents = Maps.newIdentityHashMap();
+        final Set<Matcher> impure = Sets.newIdentityHashSet();
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        parents.put(root, new ArrayList<Matcher>());
+        toVisit.push(root);
+
+        Matcher matcher;
+        List<Matcher> list;
+
+        while (!toVisit.isEmpty()) {
+            matcher = toVisit.pop();
+            if (matcher instanceof ActionMatcher
+                || matcher instanceof VarFramingMatcher)
+                impure.add(matcher);
+            for (final Matcher child: matcher.getChildren()) {
+                list = parents.get(child);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    parents.put(child, list);
+                    toVisit.push(child);
+                }
+                list.add(matcher);
+            }
+        }
+
+        // All matchers which can reach an impure matcher are impure
+        toVisit.addAll(impure);
+
+        while (!toVisit.isEmpty())
+            for (final Matcher parent: parents.get(toVisit.pop()))
+                if (impure.add(parent))
+                    toVisit.push(parent);
+
+        return impure;
+    }
+
+    private static Predicate<Matcher> toPredicate(
+        final Iterable<? extends Rule> rules)
+    {
+        Objects.requireNonNull(rules, "memoizedRules");
+        final Set<Matcher> set = Sets.newIdentityHashSet();
+        for (final Rule rule: rules)
+            set.add(ProxyMatcher.unwrap((Matcher) rule));
+        return new Predicate<Matcher>()
+        {
+            @Override
+            public boolean apply(final Matcher input)
+            {
+                return set.contains(input);
+            }
+        };
+    }
+
+    private static int checkMaxEntries(final int maxEntries)
+    {
+        Preconditions.checkArgument(maxEntries > 0,
+            "maximum number of entries must be strictly positive");
+        return maxEntries;
+    }
+
+    private static final class MemoKey
+    {
+        private final Matcher matcher;
+        private final int index;
+
+        private MemoKey(final Matcher matcher, final int index)
+        {
+            this.matcher = matcher;
+            this.index = index;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode(matcher) + index;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (!(obj instanceof MemoKey))
+                return false;
+            final MemoKey other = (MemoKey) obj;
+            return matcher == other.matcher && index == other.index;
+        }
+    }
+
+    private static final class MemoEntry
+    {
+        private final boolean success;
+        private final int endIndex;
+        private final Object[] pushed;
+
+        private MemoEntry(final boolean success, final int endIndex,
+            final Object[] pushed)
+        {
+            this.success = success;
+            this.endIndex = endIndex;
+            this.pushed = pushed;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <V> boolean replay(final ValueStack<V> stack,
+            final MatcherContext<?> context)
+        {
+            if (!success)
+                return false;
+            for (final Object value: pushed)
+                stack.push((V) value);
+            context.setCurrentIndex(endIndex);
+            return true;
+        }
+    }
+
+    private static final class LruMap
+        extends LinkedHashMap<MemoKey, MemoEntry>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        private LruMap(final int maxEntries)
+        {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+            final Map.Entry<MemoKey, MemoEntry> eldest)
+        {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.buffers.StreamingInputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.DefaultMatcherContext;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ArrayValueStack;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A parse runner matching records of an input in parallel
+ *
+ * <p>As with a {@link RecordParseRunner}, the rule given to this runner is the
+ * rule for <em>one</em> record, and the whole input must be a sequence of
+ * records. The input is split into chunks, at record boundaries, and chunks
+ * are parsed concurrently on a {@link ForkJoinPool}; each task has its own
+ * value stack and contexts. A record boundary is found either by looking for
+ * a delimiter (the chunk then ends right after it), or by matching a boundary
+ * rule (the chunk then ends where the boundary rule stops matching).</p>
+ *
+ * <p>The value stack of the result holds the values of all records, in the
+ * order in which they would have been pushed had the records been parsed one
+ * after the other; as with a {@link RecordParseRunner}, the value stack is
+ * cleared between records, so records must not read the values of previous
+ * records. Since all chunks are parsed in the original input buffer, indices
+ * and positions seen by actions are the ones of the original input.</p>
+ *
+ * <p>Since the value stack of the result holds the values of all records, it
+ * is an {@link ArrayValueStack}, which pushes values in constant time.</p>
+ *
+ * <p>If a record happens to end past the end of its chunk (for instance, if
+ * the delimiter can also appear within a record), the next chunk is parsed
+ * again, sequentially, from where this record ended; the values of the result
+ * are therefore the same as the ones of a sequential parse.</p>
+ *
+ * <p>Only pushed values are guaranteed, however. All chunks are parsed
+ * speculatively, before it is known whether they start at a record boundary
+ * or whether a previous record fails; actions therefore also run for chunks
+ * whose results are then discarded, and may see input which does not start
+ * at a record boundary. Actions must not have side effects other than
+ * pushing values. A discarded chunk stops at the end of its current record,
+ * and {@link #run(InputBuffer)} does not return before all chunks have
+ * stopped, so that no action runs after it returns.</p>
+ *
+ * <p>The rule is frozen (see {@link Grappa#freeze(Rule)}) when the runner is
+ * created. The input buffer must support reads from several threads at once,
+ * as {@link com.github.fge.grappa.buffers.CharSequenceInputBuffer} and {@link
+ * com.github.fge.grappa.buffers.MappedFileInputBuffer} do; a {@link
+ * StreamingInputBuffer} is rejected.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
+@ParametersAreNonnullByDefault
+public final class ParallelParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private static final int DEFAULT_MIN_CHUNK_SIZE = 1 << 14;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+    private final char delimiter;
+    @Nullable
+    private final Matcher boundaryMatcher;
+    private final ForkJoinPool pool;
+    private final int minChunkSize;
+
+    private int recordCount = 0;
+
+    /**
+     * Create a runner for records ending with a delimiter
+     *
+     * @param rule the rule matching one record
+     * @param delimiter the last character of a record
+     */
+    public ParallelParseRunner(final Rule rule, final char delimiter)
+    {
+        this(rule, delimiter, null, DEFAULT_POOL, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a runner for records ending with a delimiter, using a given
+     * fork/join pool
+     *
+     * @param rule the rule matching one record
+     * @param delimiter the last character of a record
+     * @param pool the pool
+     */
+    public ParallelParseRunner(final Rule rule, final char delimiter,
+        final ForkJoinPool pool)
+    {
+        this(rule, delimiter, null, pool, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a runner for records separated by a boundary rule
+     *
+     * <p>The boundary rule should match the end of a record; a chunk ends
+     * where the boundary rule stops matching.</p>
+     *
+     * @param rule the rule matching one record
+     * @param boundary the boundary rule
+     */
+    public ParallelParseRunner(final Rule rule, final Rule boundary)
+    {
+        this(rule, '\0', Objects.requireNonNull(boundary, "boundary"),
+            DEFAULT_POOL, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a runner for records separated by a boundary rule, using a given
+     * fork/join pool
+     *
+     * @param rule the rule matching one record
+     * @param boundary the boundary rule
+     * @param pool the pool
+     */
+    public ParallelParseRunner(final Rule rule, final Rule boundary,
+        final ForkJoinPool pool)
+    {
+        this(rule, '\0', Objects.requireNonNull(boundary, "boundary"), pool,
+            DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    @VisibleForTesting
+    ParallelParseRunner(final Rule rule, final char delimiter,
+        @Nullable final Rule boundary, final ForkJoinPool pool,
+        final int minChunkSize)
+    {
+        super(Grappa.freeze(Objects.requireNonNull(rule, "rule")),
+            new Supplier<ValueStack<V>>()
+            {
+                @Override
+                public ValueStack<V> get()
+                {
+                    return new ArrayValueStack<>();
+                }
+            });
+        this.delimiter = delimiter;
+        boundaryMatcher = boundary == null ? null
+            : (Matcher) Grappa.freeze(boundary);
+        this.pool = Objects.requireNonNull(pool, "pool");
+        Preconditions.checkArgument(minChunkSize > 0);
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Get the number of records matched by the last run
+     *
+     * @return the number of records
+     */
+    public int getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException the input buffer is a {@link
+     * StreamingInputBuffer}, which cannot be read from several threads
+     */
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        Preconditions.checkArgument(
+            !(inputBuffer instanceof StreamingInputBuffer),
+            "a streaming input buffer cannot be read from several threads");
+        resetValueStack();
+        recordCount = 0;
+
+        final List<Chunk<V>> chunks = split(inputBuffer);
+
+        for (final Chunk<V> chunk: chunks)
+            pool.execute(chunk);
+
+        try {
+            return new ParsingResult<>(merge(inputBuffer, chunks), valueStack,
+                inputBuffer);
+        } finally {
+            /*
+             * Chunks after a failure are not needed. Wait for all chunks
+             * before returning, since a discarded chunk may still be running
+             * actions; ForkJoinTask.cancel() would not stop it.
+             */
+            for (final Chunk<V> chunk: chunks)
+                chunk.discard();
+            for (final Chunk<V> chunk: chunks)
+                chunk.quietlyJoin();
+        }
+    }
+
+    /*
+     * Merge the results of chunks in order; returns false if a record failed
+     */
+    private boolean merge(final InputBuffer inputBuffer,
+        final List<Chunk<V>> chunks)
+    {
+        int index = 0;
+        Chunk<V> result;
+
+        for (final Chunk<V> chunk: chunks) {
+            if (index == chunk.start) {
+                result = chunk.join();
+            } else {
+                /*
+                 * A previous record ended within, or past, this chunk: the
+                 * result of this chunk, or its failure, is meaningless
+                 */
+                chunk.discard();
+                if (index >= chunk.end)
+                    continue;
+                result = new Chunk<>(this, inputBuffer, index, chunk.end);
+                result.compute();
+            }
+            for (final V value: result.values)
+                valueStack.push(value);
+            recordCount += result.recordCount;
+            index = result.reached;
+            if (result.failed)
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        return context.getMatcher().match(context);
+    }
+
+    private List<Chunk<V>> split(final InputBuffer buffer)
+    {
+        final int length = buffer.length();
+        final int nrChunks = pool.getParallelism() * CHUNKS_PER_THREAD;
+        final int chunkSize = Math.max(length / nrChunks, minChunkSize);
+        final List<Chunk<V>> ret = Lists.newArrayList();
+
+        int start = 0;
+        int end;
+
+        while (start < length) {
+            end = length - start <= chunkSize ? length
+                : findBoundary(buffer, start + chunkSize, length);
+            ret.add(new Chunk<>(this, buffer, start, end));
+            start = end;
+        }
+
+        return ret;
+    }
+
+    /*
+     * Find the end of the first boundary at or after an index
+     */
+    private int findBoundary(final InputBuffer buffer, final int index,
+        final int length)
+    {
+        if (boundaryMatcher == null) {
+            for (int i = index; i < length; i++)
+                if (buffer.charAt(i) == delimiter)
+                    return i + 1;
+            return length;
+        }
+
+        final MatcherContext<V> context = new DefaultMatcherContext<>(buffer,
+            stackSupplier.get(), this, boundaryMatcher);
+
+        for (int i = index; i < length; i++) {
+            context.setMatcher(boundaryMatcher);
+            context.setStartIndex(i);
+            context.setCurrentIndex(i);
+            if (context.runMatcher() && context.getCurrentIndex() > i)
+                return context.getCurrentIndex();
+        }
+
+        return length;
+    }
+
+    /*
+     * Parse the records of a chunk
+     *
+     * Records are parsed until the end of the chunk is reached or exceeded, a
+     * record fails to match, or the chunk is discarded.
+     */
+    @SuppressWarnings("serial")
+    private static final class Chunk<V>
+        extends RecursiveTask<Chunk<V>>
+    {
+        private final ParallelParseRunner<V> runner;
+        private final InputBuffer buffer;
+        private final int start;
+        private final int end;
+
+        private List<V> values;
+        private int recordCount = 0;
+        private int reached;
+        private boolean failed = false;
+
+        private volatile boolean discarded = false;
+
+        private Chunk(final ParallelParseRunner<V> runner,
+            final InputBuffer buffer, final int start, final int end)
+        {
+            this.runner = runner;
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Chunk<V> compute()
+        {
+            final ValueStack<V> stack = runner.stackSupplier.get();
+            final MatcherContext<V> context = new DefaultMatcherContext<>(
+                buffer, stack, runner, runner.rootMatcher);
+            final List<V> list = Lists.newArrayList();
+
+            int index = start;
+            int recordEnd;
+
+            while (!discarded && index < end
+                && buffer.codePointAt(index) != -1) {
+                context.setMatcher(runner.rootMatcher);
+                context.setStartIndex(index);
+                context.setCurrentIndex(index);
+
+                if (!context.runMatcher()) {
+                    failed = true;
+                    break;
+                }
+
+                recordEnd = context.getCurrentIndex();
+                if (recordEnd == index)
+                    throw new GrappaException("record rule matched no input"
+                        + " at position " + buffer.getPosition(index));
+
+                // Values are collected in the order in which they were pushed
+                for (int down = stack.size() - 1; down >= 0; down--)
+                    list.add(stack.peek(down));
+                stack.clear();
+                recordCount++;
+                index = recordEnd;
+            }
+
+            values = list;
+            reached = index;
+            return this;
+        }
+
+        /*
+         * Tell this chunk that its result is not needed; it stops after the
+         * record it is parsing, if any
+         */
+        private void discard()
+        {
+            discarded = true;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.IndexRange;
+
+/**
+ * Handler of the records matched by a {@link RecordParseRunner}
+ *
+ * @param <V> type parameter of the value stack
+ */
+public interface RecordHandler<V>
+{
+    /**
+     * Handle the values of a record
+     *
+     * <p>The value stack is cleared when this method returns; implementations
+     * must therefore not retain it.</p>
+     *
+     * @param values the value stack, as it is after the record has matched
+     * @param range the range of the record in the input
+     */
+    void handleRecord(ValueStack<V> values, IndexRange range);
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.buffers.StreamingInputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.IndexRange;
+import com.google.common.base.Supplier;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * A parse runner matching a record rule repeatedly
+ *
+ * <p>The rule given to this runner is the rule for <em>one</em> record. The
+ * runner matches it from the start of the input, then again from where the
+ * previous match ended, until the end of input is reached. After each match,
+ * the value stack is passed to a {@link RecordHandler} and then cleared; the
+ * values of all records are therefore never held in memory at once.</p>
+ *
+ * <p>When the input buffer is a {@link StreamingInputBuffer}, the end of each
+ * record is also a commit point: the input of records already handled is
+ * discarded.</p>
+ *
+ * <p>The parsing result is successful if all of the input has been matched as
+ * records. Otherwise, parsing stops at the first record which fails to match,
+ * and the value stack of the result is the one of this record.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
+@ParametersAreNonnullByDefault
+public final class RecordParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private final RecordHandler<V> handler;
+    private int recordCount = 0;
+
+    /**
+     * Create a new runner for the given record rule
+     *
+     * @param rule the rule matching one record
+     * @param handler the record handler
+     */
+    public RecordParseRunner(final Rule rule, final RecordHandler<V> handler)
+    {
+        super(rule);
+        this.handler = Objects.requireNonNull(handler, "handler");
+    }
+
+    /**
+     * Create a new runner for the given record rule, using a custom value
+     * stack implementation
+     *
+     * @param rule the rule matching one record
+     * @param handler the record handler
+     * @param stackSupplier the value stack supplier
+     */
+    public RecordParseRunner(final Rule rule, final RecordHandler<V> handler,
+        final Supplier<? extends ValueStack<V>> stackSupplier)
+    {
+        super(rule, stackSupplier);
+        this.handler = Objects.requireNonNull(handler, "handler");
+    }
+
+    /**
+     * Get the number of records matched by the last run
+     *
+     * @return the number of records
+     */
+    public int getRecordCount()
+    {
+        return recordCount;
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+        recordCount = 0;
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final StreamingInputBuffer streaming
+            = inputBuffer instanceof StreamingInputBuffer
+            ? (StreamingInputBuffer) inputBuffer : null;
+
+        int start = 0;
+        int end;
+
+        while (inputBuffer.codePointAt(start) != -1) {
+            rootContext.setMatcher(rootMatcher);
+            rootContext.setStartIndex(start);
+            rootContext.setCurrentIndex(start);
+
+            if (!rootContext.runMatcher())
+                return createParsingResult(false, rootContext);
+
+            end = rootContext.getCurrentIndex();
+            if (end == start)
+                throw new GrappaException("record rule matched no input at"
+                    + " position " + inputBuffer.getPosition(start));
+
+            recordCount++;
+            handler.handleRecord(valueStack, new IndexRange(start, end));
+            valueStack.clear();
+
+            if (streaming != null)
+                streaming.commit(end);
+
+            start = end;
+        }
+
+        return createParsingResult(true, rootContext);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        return context.getMatcher().match(context);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.stack.ValueStackBase;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Iterator;
+
+/**
+ * A {@link ValueStack} wrapper recording how deep into the stack a match went
+ *
+ * <p>Positions are counted from the bottom of the stack. When a frame is
+ * entered, the lowest touched position is set to the current size of the
+ * stack; any operation reading or modifying an element below that then lowers
+ * it. At the end of a frame, the lowest touched position therefore tells
+ * whether the match only ever pushed values on top of what was already there.
+ * </p>
+ *
+ * <p>Snapshot restores do not lower the mark: all matchers restore snapshots
+ * they have taken themselves, and a restore only ever undoes operations which
+ * have already been accounted for.</p>
+ *
+ * <p>{@link #size()}, {@link #isEmpty()}, {@link #clear()} and {@link
+ * #iterator()} touch the whole stack.</p>
+ *
+ * @param <V> type parameter of this stack's values
+ *
+ * @see MemoizingParseRunner
+ */
+@ParametersAreNonnullByDefault
+final class TrackingValueStack<V>
+    extends ValueStackBase<V>
+{
+    private final ValueStack<V> delegate;
+
+    private int lowest = Integer.MAX_VALUE;
+
+    TrackingValueStack(final ValueStack<V> delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Enter a new frame
+     *
+     * @return the lowest touched position of the enclosing frame
+     */
+    int enterFrame()
+    {
+        final int ret = lowest;
+        lowest = delegate.size();
+        return ret;
+    }
+
+    /**
+     * Exit the current frame
+     *
+     * @param outer the value returned by the matching {@link #enterFrame()}
+     * @return the lowest position touched during the frame
+     */
+    int exitFrame(final int outer)
+    {
+        final int ret = lowest;
+        lowest = Math.min(outer, ret);
+        return ret;
+    }
+
+    /**
+     * Return the size of the stack without touching it
+     *
+     * @return the size of the underlying stack
+     */
+    int currentSize()
+    {
+        return delegate.size();
+    }
+
+    /**
+     * Return the top elements of the stack without touching them
+     *
+     * @param count the number of elements
+     * @return the elements, bottom to top
+     */
+    Object[] topElements(final int count)
+    {
+        final Object[] ret = new Object[count];
+        for (int i = 0; i < count; i++)
+            ret[i] = delegate.peek(count - 1 - i);
+        return ret;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        lowest = 0;
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public int size()
+    {
+        lowest = 0;
+        return delegate.size();
+    }
+
+    @Override
+    public void clear()
+    {
+        lowest = 0;
+        delegate.clear();
+    }
+
+    @Nonnull
+    @Override
+    public Object takeSnapshot()
+    {
+        return delegate.takeSnapshot();
+    }
+
+    @Override
+    public void restoreSnapshot(final Object snapshot)
+    {
+        delegate.restoreSnapshot(snapshot);
+    }
+
+    @Override
+    public void releaseSnapshot(final Object snapshot)
+    {
+        delegate.releaseSnapshot(snapshot);
+    }
+
+    @Override
+    protected void doPush(final int down, final V value)
+    {
+        touch(delegate.size() - down);
+        delegate.push(down, value);
+    }
+
+    @Nonnull
+    @Override
+    protected V doPop(final int down)
+    {
+        touch(delegate.size() - 1 - down);
+        return delegate.pop(down);
+    }
+
+    @Nonnull
+    @Override
+    protected V doPeek(final int down)
+    {
+        touch(delegate.size() - 1 - down);
+        return delegate.peek(down);
+    }
+
+    @Override
+    protected void doPoke(final int down, final V value)
+    {
+        touch(delegate.size() - 1 - down);
+        delegate.poke(down, value);
+    }
+
+    @Override
+    protected void doDup()
+    {
+        touch(delegate.size() - 1);
+        delegate.dup();
+    }
+
+    @Override
+    protected void doSwap(final int n)
+    {
+        touch(delegate.size() - n);
+        delegate.swap(n);
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        lowest = 0;
+        return delegate.iterator();
+    }
+
+    @Nonnull
+    @Override
+    public String toString()
+    {
+        return delegate.toString();
+    }
+
+    @Override
+    protected void checkIndex(final int index)
+    {
+        Preconditions.checkState(index < delegate.size(),
+            "not enough elements in stack");
+    }
+
+    private void touch(final int position)
+    {
+        if (position < lowest)
+            lowest = position;
+    }
+}
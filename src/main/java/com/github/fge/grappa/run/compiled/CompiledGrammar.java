@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.compiled;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+
+import java.util.Map;
+
+/**
+ * Base class of the classes generated by {@link GrammarCompiler}
+ *
+ * <p>A compiled grammar has a number of entry points, each of which corresponds
+ * to a matcher of the original rule graph. The generated code does not use
+ * matcher contexts: it is given an input buffer and a start index, and returns
+ * the index at which the match ended, or -1 if there was no match.</p>
+ *
+ * @see GrammarCompiler
+ */
+public abstract class CompiledGrammar
+{
+    private Map<Matcher, Integer> entries;
+
+    protected CompiledGrammar()
+    {
+    }
+
+    final void setEntries(final Map<Matcher, Integer> entries)
+    {
+        this.entries = entries;
+    }
+
+    /**
+     * Return the entry point for a given matcher
+     *
+     * @param matcher the matcher
+     * @return the entry point, or -1 if this matcher has not been compiled as
+     * an entry point
+     */
+    public final int getEntry(final Matcher matcher)
+    {
+        final Integer entry = entries.get(matcher);
+        return entry == null ? -1 : entry;
+    }
+
+    /**
+     * Run an entry point
+     *
+     * @param entry the entry point, as returned by {@link #getEntry(Matcher)}
+     * @param buffer the input buffer
+     * @param index the start index
+     * @return the end index of the match, or -1 if there was no match
+     */
+    public abstract int match(int entry, InputBuffer buffer, int index);
+}
@@ -0,0 +1,707 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.compiled;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.buffers.InputBuffers;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.AnyMatcher;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharIgnoreCaseMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.EndOfInputMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.NothingMatcher;
+import com.github.fge.grappa.matchers.StringIgnoreCaseMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.predicates.TestMatcher;
+import com.github.fge.grappa.matchers.predicates.TestNotMatcher;
+import com.github.fge.grappa.matchers.repeat.RepeatMatcher;
+import com.github.fge.grappa.matchers.repeat.ScanningRepeatMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Characters;
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.transform.CodeBlock;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static me.qmx.jitescript.util.CodegenUtils.ci;
+import static me.qmx.jitescript.util.CodegenUtils.p;
+import static me.qmx.jitescript.util.CodegenUtils.sig;
+
+/**
+ * Compiles the context free parts of a rule graph to bytecode
+ *
+ * <p>A matcher can be compiled if it is one of the terminals (characters,
+ * character ranges and sets, strings, {@code ANY}, {@code EOI}, {@code EMPTY},
+ * {@code NOTHING}), or a sequence, {@code firstOf()}, {@code optional()}, a
+ * repetition or a predicate all of whose children can be compiled. Actions,
+ * and matchers which need a context (tries, regexes, var framing, joins...),
+ * cannot.</p>
+ *
+ * <p>The compiled parts of the graph are generated as one class, extending
+ * {@link CompiledGrammar}, with one method per rule; terminals, and composite
+ * matchers which are not rules, are inlined into the method of their parent.
+ * The entry points of this class are the compilable matchers whose parent is
+ * not compilable (and the root matcher, if it is compilable).</p>
+ *
+ * <p>The generated code matches exactly as the matchers it replaces do, but
+ * since it does not use matcher contexts, the matchers it replaces are not
+ * seen by a {@link com.github.fge.grappa.run.MatchHandler}.</p>
+ *
+ * @see com.github.fge.grappa.run.CompiledParseRunner
+ */
+@ParametersAreNonnullByDefault
+public final class GrammarCompiler
+    implements Opcodes
+{
+    private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+    private static final String CLASS_PREFIX
+        = p(CompiledGrammar.class) + "$$";
+    private static final String BUFFER = p(InputBuffer.class);
+    private static final String BUFFERS = p(InputBuffers.class);
+    private static final String CHARACTERS = p(Characters.class);
+    private static final String RULE_DESC
+        = sig(int.class, InputBuffer.class, int.class);
+
+    private static final String EMPTY_CYCLE = "Inner rule of a RepeatMatcher"
+        + " cannot match an empty character sequence";
+
+    private static final int BUFFER_SLOT = 1;
+    private static final int INDEX_SLOT = 2;
+    private static final int FIRST_FREE_SLOT = 3;
+
+    private final String className
+        = CLASS_PREFIX + CLASS_COUNTER.incrementAndGet();
+
+    private final Set<Matcher> compilable
+        = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+    private final Map<Matcher, Integer> entries = new IdentityHashMap<>();
+    private final List<Matcher> entryList = new ArrayList<>();
+    private final Map<Matcher, Integer> methods = new IdentityHashMap<>();
+    private final List<Matcher> methodList = new ArrayList<>();
+    private final Map<Matcher, Integer> constants = new IdentityHashMap<>();
+    private final List<Characters> constantList = new ArrayList<>();
+
+    private int nextSlot;
+
+    private GrammarCompiler(final Matcher root)
+    {
+        analyze(root);
+    }
+
+    /**
+     * Compile a rule graph
+     *
+     * @param rule the root rule
+     * @return the compiled grammar
+     */
+    public static CompiledGrammar compile(final Rule rule)
+    {
+        Objects.requireNonNull(rule, "rule");
+        final Matcher root = ProxyMatcher.unwrap((Matcher) rule);
+        return new GrammarCompiler(root).generate();
+    }
+
+    private void analyze(final Matcher root)
+    {
+        final List<Matcher> all = collect(root);
+
+        for (final Matcher matcher: all)
+            if (isSupported(matcher))
+                compilable.add(matcher);
+
+        /*
+         * Remove matchers with a child which cannot be compiled until there
+         * are none left
+         */
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+            for (final Matcher matcher: all) {
+                if (!compilable.contains(matcher))
+                    continue;
+                for (final Matcher child: childrenOf(matcher))
+                    if (!compilable.contains(child)) {
+                        compilable.remove(matcher);
+                        changed = true;
+                        break;
+                    }
+            }
+        }
+
+        if (compilable.contains(root))
+            addEntry(root);
+
+        final Map<Matcher, Integer> references = new IdentityHashMap<>();
+        Integer count;
+
+        for (final Matcher matcher: all)
+            for (final Matcher child: childrenOf(matcher)) {
+                if (!compilable.contains(child))
+                    continue;
+                if (!compilable.contains(matcher)) {
+                    addEntry(child);
+                    continue;
+                }
+                count = references.get(child);
+                references.put(child, count == null ? 1 : count + 1);
+            }
+
+        for (final Matcher matcher: entryList)
+            addMethod(matcher);
+
+        for (final Matcher matcher: all) {
+            if (!compilable.contains(matcher) || isInlined(matcher))
+                continue;
+            count = references.get(matcher);
+            if (matcher.hasCustomLabel() || count != null && count > 1)
+                addMethod(matcher);
+        }
+
+        /*
+         * Any cycle in the compiled graph must go through a method; note that
+         * the list of methods may grow while we walk it
+         */
+        final Set<Matcher> path
+            = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+
+        for (int i = 0; i < methodList.size(); i++) {
+            path.add(methodList.get(i));
+            breakCycles(methodList.get(i), path);
+            path.clear();
+        }
+    }
+
+    private void breakCycles(final Matcher matcher, final Set<Matcher> path)
+    {
+        for (final Matcher child: childrenOf(matcher)) {
+            if (isInlined(child) || methods.containsKey(child))
+                continue;
+            if (path.contains(child)) {
+                addMethod(child);
+                continue;
+            }
+            path.add(child);
+            breakCycles(child, path);
+            path.remove(child);
+        }
+    }
+
+    private void addEntry(final Matcher matcher)
+    {
+        if (entries.containsKey(matcher))
+            return;
+        entries.put(matcher, entryList.size());
+        entryList.add(matcher);
+    }
+
+    private void addMethod(final Matcher matcher)
+    {
+        if (methods.containsKey(matcher))
+            return;
+        methods.put(matcher, methodList.size());
+        methodList.add(matcher);
+    }
+
+    private CompiledGrammar generate()
+    {
+        final ClassNode classNode = new ClassNode();
+
+        classNode.visit(V1_7, ACC_PUBLIC + ACC_FINAL + ACC_SYNTHETIC,
+            className, null, p(CompiledGrammar.class), null);
+
+        for (int i = 0; i < methodList.size(); i++)
+            classNode.methods.add(generateRule(i));
+
+        // Fields for character sets are only known after methods are generated
+        for (int i = 0; i < constantList.size(); i++)
+            classNode.fields.add(new FieldNode(ACC_PRIVATE + ACC_FINAL,
+                "chars" + i, ci(Characters.class), null, null));
+
+        classNode.methods.add(generateConstructor());
+        classNode.methods.add(generateMatch());
+
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        classNode.accept(writer);
+
+        final byte[] code = writer.toByteArray();
+        final String name = className.replace('/', '.');
+        final Characters[] chars
+            = constantList.toArray(new Characters[constantList.size()]);
+
+        final CompiledGrammar ret;
+
+        try {
+            final Class<?> c = new GrammarClassLoader().define(name, code);
+            ret = (CompiledGrammar) c.getConstructor(Characters[].class)
+                .newInstance((Object) chars);
+        } catch (NoSuchMethodException | InstantiationException
+            | IllegalAccessException | InvocationTargetException e) {
+            throw new GrappaException("cannot instantiate compiled grammar",
+                e);
+        }
+
+        ret.setEntries(entries);
+        return ret;
+    }
+
+    private MethodNode generateConstructor()
+    {
+        final MethodNode method = new MethodNode(ACC_PUBLIC, "<init>",
+            sig(void.class, Characters[].class), null, null);
+        final CodeBlock block = CodeBlock.newCodeBlock();
+
+        block.aload(0)
+            .invokespecial(p(CompiledGrammar.class), "<init>",
+                sig(void.class));
+
+        for (int i = 0; i < constantList.size(); i++)
+            block.aload(0)
+                .aload(1)
+                .pushInt(i)
+                .aaload()
+                .putfield(className, "chars" + i, ci(Characters.class));
+
+        block.voidreturn();
+
+        method.instructions.add(block.getInstructionList());
+        return method;
+    }
+
+    /*
+     * Entry point dispatch: a switch over the entry number
+     */
+    private MethodNode generateMatch()
+    {
+        final MethodNode method = new MethodNode(ACC_PUBLIC + ACC_FINAL,
+            "match", sig(int.class, int.class, InputBuffer.class, int.class),
+            null, null);
+        final CodeBlock block = CodeBlock.newCodeBlock();
+        final int nrEntries = entryList.size();
+
+        if (nrEntries > 0) {
+            final LabelNode noEntry = new LabelNode();
+            final LabelNode[] cases = new LabelNode[nrEntries];
+
+            for (int i = 0; i < nrEntries; i++)
+                cases[i] = new LabelNode();
+
+            block.iload(1).tableswitch(0, nrEntries - 1, noEntry, cases);
+
+            for (int i = 0; i < nrEntries; i++)
+                block.label(cases[i])
+                    .aload(0)
+                    .aload(2)
+                    .iload(3)
+                    .invokevirtual(className,
+                        "rule" + methods.get(entryList.get(i)), RULE_DESC)
+                    .ireturn();
+
+            block.label(noEntry);
+        }
+
+        block.iconst_m1().ireturn();
+
+        method.instructions.add(block.getInstructionList());
+        return method;
+    }
+
+    private MethodNode generateRule(final int index)
+    {
+        final MethodNode method = new MethodNode(ACC_PRIVATE + ACC_FINAL,
+            "rule" + index, RULE_DESC, null, null);
+        final CodeBlock block = CodeBlock.newCodeBlock();
+        final LabelNode failure = new LabelNode();
+
+        nextSlot = FIRST_FREE_SLOT;
+        generateBody(block, methodList.get(index), failure);
+
+        block.iload(INDEX_SLOT)
+            .ireturn()
+            .label(failure)
+            .iconst_m1()
+            .ireturn();
+
+        method.instructions.add(block.getInstructionList());
+        return method;
+    }
+
+    /*
+     * Generate the code for a matcher. On entry, the current index is in
+     * INDEX_SLOT; on success, the code falls through with the new index in
+     * INDEX_SLOT; on failure, it jumps to the failure label, and the content of
+     * INDEX_SLOT is undefined: it is up to the code it jumps to to restore it
+     * if needed.
+     */
+    private void generate(final CodeBlock block, final Matcher matcher,
+        final LabelNode failure)
+    {
+        final Integer method = methods.get(matcher);
+
+        if (method == null) {
+            generateBody(block, matcher, failure);
+            return;
+        }
+
+        block.aload(0)
+            .aload(BUFFER_SLOT)
+            .iload(INDEX_SLOT)
+            .invokevirtual(className, "rule" + method, RULE_DESC)
+            .dup()
+            .istore(INDEX_SLOT)
+            .iflt(failure);
+    }
+
+    private void generateBody(final CodeBlock block, final Matcher matcher,
+        final LabelNode failure)
+    {
+        if (matcher instanceof CharMatcher) {
+            loadChar(block);
+            block.pushInt(((CharMatcher) matcher).getCharacter())
+                .if_icmpne(failure);
+            advance(block, 1);
+        } else if (matcher instanceof CharIgnoreCaseMatcher) {
+            generateCharIgnoreCase(block, (CharIgnoreCaseMatcher) matcher,
+                failure);
+        } else if (matcher instanceof CharRangeMatcher) {
+            generateCharRange(block, (CharRangeMatcher) matcher, failure);
+        } else if (matcher instanceof AnyOfMatcher) {
+            block.aload(0)
+                .getfield(className, "chars" + constantFor(matcher),
+                    ci(Characters.class));
+            loadChar(block);
+            block.invokevirtual(CHARACTERS, "contains",
+                sig(boolean.class, char.class))
+                .ifeq(failure);
+            advance(block, 1);
+        } else if (matcher instanceof AnyMatcher) {
+            loadCodePoint(block);
+            block.iconst_m1().if_icmpeq(failure);
+            advance(block, 1);
+        } else if (matcher instanceof EndOfInputMatcher) {
+            loadCodePoint(block);
+            block.iconst_m1().if_icmpne(failure);
+        } else if (matcher instanceof StringMatcher) {
+            generateString(block, ((StringMatcher) matcher).getString(),
+                false, failure);
+        } else if (matcher instanceof StringIgnoreCaseMatcher) {
+            generateString(block,
+                ((StringIgnoreCaseMatcher) matcher).getString(), true, failure);
+        } else if (matcher instanceof NothingMatcher) {
+            block.go_to(failure);
+        } else if (matcher instanceof SequenceMatcher) {
+            for (final Matcher child: childrenOf(matcher))
+                generate(block, child, failure);
+        } else if (matcher instanceof FirstOfMatcher) {
+            generateFirstOf(block, matcher, failure);
+        } else if (matcher instanceof OptionalMatcher) {
+            generateOptional(block, matcher);
+        } else if (matcher instanceof RepeatMatcher) {
+            generateRepeat(block, (RepeatMatcher) matcher, failure);
+        } else if (matcher instanceof TestMatcher) {
+            final int saved = saveIndex(block);
+            generate(block, childrenOf(matcher).get(0), failure);
+            restoreIndex(block, saved);
+        } else if (matcher instanceof TestNotMatcher) {
+            final int saved = saveIndex(block);
+            final LabelNode success = new LabelNode();
+            generate(block, childrenOf(matcher).get(0), success);
+            block.go_to(failure).label(success);
+            restoreIndex(block, saved);
+        }
+        // EmptyMatcher: nothing to do
+    }
+
+    private void generateCharIgnoreCase(final CodeBlock block,
+        final CharIgnoreCaseMatcher matcher, final LabelNode failure)
+    {
+        final int slot = nextSlot++;
+        final LabelNode success = new LabelNode();
+
+        loadChar(block);
+        block.istore(slot)
+            .iload(slot)
+            .pushInt(matcher.getLowerBound())
+            .if_icmpeq(success)
+            .iload(slot)
+            .pushInt(matcher.getUpperBound())
+            .if_icmpne(failure)
+            .label(success);
+        advance(block, 1);
+    }
+
+    private void generateCharRange(final CodeBlock block,
+        final CharRangeMatcher matcher, final LabelNode failure)
+    {
+        final int slot = nextSlot++;
+
+        loadChar(block);
+        block.istore(slot)
+            .iload(slot)
+            .pushInt(matcher.getLowerBound())
+            .if_icmplt(failure)
+            .iload(slot)
+            .pushInt(matcher.getUpperBound())
+            .if_icmpgt(failure);
+        advance(block, 1);
+    }
+
+    private void generateString(final CodeBlock block, final String string,
+        final boolean ignoreCase, final LabelNode failure)
+    {
+        block.aload(BUFFER_SLOT)
+            .iload(INDEX_SLOT)
+            .ldc(string)
+            .pushBoolean(ignoreCase)
+            .invokestatic(BUFFERS, "regionMatches", sig(boolean.class,
+                InputBuffer.class, int.class, CharSequence.class,
+                boolean.class))
+            .ifeq(failure);
+        advance(block, string.length());
+    }
+
+    private void generateFirstOf(final CodeBlock block, final Matcher matcher,
+        final LabelNode failure)
+    {
+        final List<Matcher> children = childrenOf(matcher);
+        final int last = children.size() - 1;
+        final int saved = saveIndex(block);
+        final LabelNode success = new LabelNode();
+        LabelNode next;
+
+        for (int i = 0; i < last; i++) {
+            next = new LabelNode();
+            generate(block, children.get(i), next);
+            block.go_to(success).label(next);
+            restoreIndex(block, saved);
+        }
+
+        generate(block, children.get(last), failure);
+        block.label(success);
+    }
+
+    private void generateOptional(final CodeBlock block, final Matcher matcher)
+    {
+        final int saved = saveIndex(block);
+        final LabelNode failure = new LabelNode();
+        final LabelNode done = new LabelNode();
+
+        generate(block, childrenOf(matcher).get(0), failure);
+        block.go_to(done).label(failure);
+        restoreIndex(block, saved);
+        block.label(done);
+    }
+
+    private void generateRepeat(final CodeBlock block,
+        final RepeatMatcher matcher, final LabelNode failure)
+    {
+        final int minCycles = matcher.getMinCycles();
+        final int maxCycles = matcher.getMaxCycles();
+        final int cycles = nextSlot++;
+        final int saved = nextSlot++;
+        final LabelNode loop = new LabelNode();
+        final LabelNode progress = new LabelNode();
+        final LabelNode stop = new LabelNode();
+        final LabelNode done = new LabelNode();
+
+        block.iconst_0().istore(cycles).label(loop);
+
+        if (maxCycles != Integer.MAX_VALUE)
+            block.iload(cycles).pushInt(maxCycles).if_icmpge(done);
+
+        // A ScanningRepeatMatcher never reads past the end of input
+        if (matcher instanceof ScanningRepeatMatcher) {
+            final LabelNode notEoi = new LabelNode();
+            loadChar(block);
+            block.pushInt(Chars.EOI).if_icmpne(notEoi);
+            loadCodePoint(block);
+            block.iconst_m1().if_icmpeq(done).label(notEoi);
+        }
+
+        block.iload(INDEX_SLOT).istore(saved);
+        generate(block, childrenOf(matcher).get(0), stop);
+
+        block.iload(INDEX_SLOT)
+            .iload(saved)
+            .if_icmpne(progress)
+            .newobj(p(GrappaException.class))
+            .dup()
+            .ldc(EMPTY_CYCLE)
+            .invokespecial(p(GrappaException.class), "<init>",
+                sig(void.class, String.class))
+            .athrow()
+            .label(progress)
+            .iinc(cycles, 1)
+            .go_to(loop)
+            .label(stop);
+
+        restoreIndex(block, saved);
+        block.label(done);
+
+        if (minCycles > 0)
+            block.iload(cycles).pushInt(minCycles).if_icmplt(failure);
+    }
+
+    private static void loadChar(final CodeBlock block)
+    {
+        block.aload(BUFFER_SLOT)
+            .iload(INDEX_SLOT)
+            .invokeinterface(BUFFER, "charAt", sig(char.class, int.class));
+    }
+
+    private static void loadCodePoint(final CodeBlock block)
+    {
+        block.aload(BUFFER_SLOT)
+            .iload(INDEX_SLOT)
+            .invokeinterface(BUFFER, "codePointAt", sig(int.class, int.class));
+    }
+
+    private static void advance(final CodeBlock block, final int delta)
+    {
+        if (delta <= Short.MAX_VALUE)
+            block.iinc(INDEX_SLOT, delta);
+        else
+            block.iload(INDEX_SLOT).pushInt(delta).iadd().istore(INDEX_SLOT);
+    }
+
+    private int saveIndex(final CodeBlock block)
+    {
+        final int slot = nextSlot++;
+        block.iload(INDEX_SLOT).istore(slot);
+        return slot;
+    }
+
+    private static void restoreIndex(final CodeBlock block, final int slot)
+    {
+        block.iload(slot).istore(INDEX_SLOT);
+    }
+
+    private int constantFor(final Matcher matcher)
+    {
+        Integer ret = constants.get(matcher);
+        if (ret == null) {
+            ret = constantList.size();
+            constants.put(matcher, ret);
+            constantList.add(((AnyOfMatcher) matcher).getCharacters());
+        }
+        return ret;
+    }
+
+    private static List<Matcher> collect(final Matcher root)
+    {
+        final Set<Matcher> seen
+            = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+        final List<Matcher> ret = new ArrayList<>();
+        final Deque<Matcher> queue = new ArrayDeque<>();
+
+        queue.add(root);
+        seen.add(root);
+
+        Matcher matcher;
+
+        while (!queue.isEmpty()) {
+            matcher = queue.remove();
+            ret.add(matcher);
+            for (final Matcher child: childrenOf(matcher))
+                if (seen.add(child))
+                    queue.add(child);
+        }
+
+        return ret;
+    }
+
+    private static List<Matcher> childrenOf(final Matcher matcher)
+    {
+        final List<Matcher> children = matcher.getChildren();
+        final List<Matcher> ret = new ArrayList<>(children.size());
+        for (final Matcher child: children)
+            ret.add(ProxyMatcher.unwrap(child));
+        return ret;
+    }
+
+    private static boolean isSupported(final Matcher matcher)
+    {
+        return isInlined(matcher)
+            || matcher instanceof SequenceMatcher
+            || matcher instanceof FirstOfMatcher
+            || matcher instanceof OptionalMatcher
+            || matcher instanceof RepeatMatcher
+            || matcher instanceof TestMatcher
+            || matcher instanceof TestNotMatcher;
+    }
+
+    /*
+     * Terminals are always inlined, unless they are entry points
+     */
+    private static boolean isInlined(final Matcher matcher)
+    {
+        return matcher.getType() == MatcherType.TERMINAL && (
+            matcher instanceof CharMatcher
+            || matcher instanceof CharIgnoreCaseMatcher
+            || matcher instanceof CharRangeMatcher
+            || matcher instanceof AnyOfMatcher
+            || matcher instanceof AnyMatcher
+            || matcher instanceof EndOfInputMatcher
+            || matcher instanceof StringMatcher
+            || matcher instanceof StringIgnoreCaseMatcher
+            || matcher instanceof EmptyMatcher
+            || matcher instanceof NothingMatcher
+        );
+    }
+
+    private static final class GrammarClassLoader
+        extends ClassLoader
+    {
+        private GrammarClassLoader()
+        {
+            super(GrammarCompiler.class.getClassLoader());
+        }
+
+        private Class<?> define(final String name, final byte[] code)
+        {
+            return defineClass(name, code, 0, code.length);
+        }
+    }
+}
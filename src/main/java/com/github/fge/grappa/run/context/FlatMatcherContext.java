@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.context;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.exceptions.InvalidGrammarException;
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link MatcherContext} keeping the state of all levels in flat arrays
+ *
+ * <p>Unlike {@link DefaultMatcherContext}, where each level is a separate
+ * object holding its own state and a link to its parent, the match state of
+ * all levels (start index, current index, matcher, error flag) is held in
+ * parallel arrays indexed by level, shared by all levels of a parsing run.
+ * </p>
+ *
+ * <p>Since matchers expect a context object for each level they run at, each
+ * level has an instance of this class; however, such an instance only holds
+ * the shared state and its level, and it is created only once, the first time
+ * a level is reached.</p>
+ *
+ * <p>Whether a level is in a predicate is tracked by counting, for each level,
+ * how many predicates are running at this level and below; {@link
+ * #inPredicate()} therefore does not need to walk the parent levels.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
+public final class FlatMatcherContext<V>
+    implements MatcherContext<V>
+{
+    private static final Joiner JOINER = Joiner.on('/');
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Levels<V> levels;
+    private final int level;
+
+    /**
+     * Create a new root context
+     *
+     * @param inputBuffer the InputBuffer for the parsing run
+     * @param valueStack the ValueStack instance to use for the parsing run
+     * @param matchHandler the MatcherHandler to use for the parsing run
+     * @param matcher the root matcher
+     */
+    public FlatMatcherContext(@Nonnull final InputBuffer inputBuffer,
+        @Nonnull final ValueStack<V> valueStack,
+        @Nonnull final MatchHandler matchHandler,
+        @Nonnull final Matcher matcher)
+    {
+        levels = new Levels<>(
+            Objects.requireNonNull(inputBuffer, "inputBuffer"),
+            Objects.requireNonNull(valueStack, "valueStack"),
+            Objects.requireNonNull(matchHandler, "matchHandler"), this);
+        level = 0;
+        levels.matchers[0] = ProxyMatcher.unwrap(
+            Objects.requireNonNull(matcher, "matcher"));
+    }
+
+    private FlatMatcherContext(final Levels<V> levels, final int level)
+    {
+        this.levels = levels;
+        this.level = level;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getPath();
+    }
+
+    @Override
+    public MatcherContext<V> getParent()
+    {
+        return level == 0 ? null : levels.contexts[level - 1];
+    }
+
+    @Nonnull
+    @Override
+    public InputBuffer getInputBuffer()
+    {
+        return levels.inputBuffer;
+    }
+
+    @Override
+    public int getStartIndex()
+    {
+        return levels.startIndices[level];
+    }
+
+    @Override
+    public Matcher getMatcher()
+    {
+        return levels.matchers[level];
+    }
+
+    @Override
+    public char getCurrentChar()
+    {
+        return levels.inputBuffer.charAt(levels.currentIndices[level]);
+    }
+
+    @Override
+    public int getCurrentCodePoint()
+    {
+        return levels.inputBuffer.codePointAt(levels.currentIndices[level]);
+    }
+
+    @Override
+    public int getCurrentIndex()
+    {
+        return levels.currentIndices[level];
+    }
+
+    @Override
+    public int getLevel()
+    {
+        return level;
+    }
+
+    @Override
+    public boolean inPredicate()
+    {
+        return levels.predicates[level] > 0;
+    }
+
+    @Override
+    public boolean hasError()
+    {
+        return levels.errors[level];
+    }
+
+    @Override
+    public String getMatch()
+    {
+        final int sub = level + 1;
+        return levels.inputBuffer.extract(levels.startIndices[sub],
+            levels.currentIndices[sub]);
+    }
+
+    @Override
+    public char getFirstMatchChar()
+    {
+        final int sub = level + 1;
+        final int index = levels.startIndices[sub];
+        if (levels.currentIndices[sub] > index)
+            return levels.inputBuffer.charAt(index);
+
+        throw new InvalidGrammarException("getFirstMatchChar called "
+            + "but previous rule did not match anything");
+    }
+
+    @Override
+    public int getMatchStartIndex()
+    {
+        return levels.startIndices[level + 1];
+    }
+
+    @Override
+    public int getMatchEndIndex()
+    {
+        return levels.currentIndices[level + 1];
+    }
+
+    @Override
+    public int getMatchLength()
+    {
+        final int sub = level + 1;
+        return levels.currentIndices[sub] - levels.startIndices[sub];
+    }
+
+    @Override
+    public Position getPosition()
+    {
+        return levels.inputBuffer.getPosition(levels.currentIndices[level]);
+    }
+
+    @Override
+    public IndexRange getMatchRange()
+    {
+        final int sub = level + 1;
+        return new IndexRange(levels.startIndices[sub],
+            levels.currentIndices[sub]);
+    }
+
+    @Override
+    public ValueStack<V> getValueStack()
+    {
+        return levels.valueStack;
+    }
+
+    @Override
+    public void setMatcher(final Matcher matcher)
+    {
+        levels.matchers[level] = matcher;
+    }
+
+    @Override
+    public void setStartIndex(final int startIndex)
+    {
+        Preconditions.checkArgument(startIndex >= 0);
+        levels.startIndices[level] = startIndex;
+    }
+
+    @Override
+    public void setCurrentIndex(final int currentIndex)
+    {
+        Preconditions.checkArgument(currentIndex >= 0);
+        levels.currentIndices[level] = currentIndex;
+    }
+
+    @Override
+    public void advanceIndex(final int delta)
+    {
+        levels.currentIndices[level] += delta;
+    }
+
+    @Override
+    public MatcherContext<V> getBasicSubContext()
+    {
+        return levels.ensureLevel(level + 1);
+    }
+
+    @Override
+    public MatcherContext<V> getSubContext(final Matcher matcher)
+    {
+        final int sub = level + 1;
+        final FlatMatcherContext<V> ret = levels.ensureLevel(sub);
+        final int index = levels.currentIndices[level];
+        levels.matchers[sub] = matcher;
+        levels.startIndices[sub] = index;
+        levels.currentIndices[sub] = index;
+        levels.errors[sub] = false;
+        return ret;
+    }
+
+    @Override
+    public boolean runMatcher()
+    {
+        final Levels<V> l = levels;
+        final Matcher matcher = l.matchers[level];
+
+        try {
+            int predicates = level == 0 ? 0 : l.predicates[level - 1];
+            if (matcher.getType() == MatcherType.PREDICATE)
+                predicates++;
+            l.predicates[level] = predicates;
+
+            final boolean ret = l.matchHandler.match(this);
+            // Retire this level
+            l.matchers[level] = null;
+            if (ret && level > 0)
+                l.currentIndices[level - 1] = l.currentIndices[level];
+            return ret;
+        } catch (GrappaException e) {
+            throw e; // don't wrap, just bubble up
+        } catch (Throwable e) {
+            final String msg = String.format(
+                "exception thrown when parsing %s '%s' at input position %s",
+                matcher instanceof ActionMatcher ? "action" : "rule", getPath(),
+                l.inputBuffer.getPosition(l.currentIndices[level]));
+            throw new GrappaException(msg, e);
+        }
+    }
+
+    private String getPath()
+    {
+        final List<String> list = new ArrayList<>(level + 1);
+
+        Matcher matcher;
+
+        for (int i = 0; i <= level; i++) {
+            matcher = levels.matchers[i];
+            if (matcher != null)
+                list.add(matcher.toString());
+        }
+
+        return JOINER.join(list);
+    }
+
+    /*
+     * The state shared by all levels of a parsing run
+     */
+    private static final class Levels<V>
+    {
+        private final InputBuffer inputBuffer;
+        private final ValueStack<V> valueStack;
+        private final MatchHandler matchHandler;
+
+        private FlatMatcherContext<V>[] contexts;
+        private int[] startIndices = new int[INITIAL_CAPACITY];
+        private int[] currentIndices = new int[INITIAL_CAPACITY];
+        private int[] predicates = new int[INITIAL_CAPACITY];
+        private Matcher[] matchers = new Matcher[INITIAL_CAPACITY];
+        private boolean[] errors = new boolean[INITIAL_CAPACITY];
+
+        /*
+         * Number of levels for which a context has been created
+         */
+        private int size = 1;
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Levels(final InputBuffer inputBuffer,
+            final ValueStack<V> valueStack, final MatchHandler matchHandler,
+            final FlatMatcherContext<V> root)
+        {
+            this.inputBuffer = inputBuffer;
+            this.valueStack = valueStack;
+            this.matchHandler = matchHandler;
+            contexts = new FlatMatcherContext[INITIAL_CAPACITY];
+            contexts[0] = root;
+        }
+
+        private FlatMatcherContext<V> ensureLevel(final int level)
+        {
+            if (level < size)
+                return contexts[level];
+
+            if (level == contexts.length)
+                grow();
+
+            final FlatMatcherContext<V> ret
+                = new FlatMatcherContext<>(this, level);
+            contexts[level] = ret;
+            size = level + 1;
+            return ret;
+        }
+
+        private void grow()
+        {
+            final int capacity = contexts.length << 1;
+
+            contexts = Arrays.copyOf(contexts, capacity);
+            startIndices = Arrays.copyOf(startIndices, capacity);
+            currentIndices = Arrays.copyOf(currentIndices, capacity);
+            predicates = Arrays.copyOf(predicates, capacity);
+            matchers = Arrays.copyOf(matchers, capacity);
+            errors = Arrays.copyOf(errors, capacity);
+        }
+    }
+}
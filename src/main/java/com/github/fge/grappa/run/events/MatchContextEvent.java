@@ -18,9 +18,18 @@ package com.github.fge.grappa.run.events;
 
 import com.github.fge.grappa.run.context.MatcherContext;
 
+/**
+ * Base class for events relating to a {@link MatcherContext}
+ *
+ * <p>Parse runners may reuse instances of these events from one match to the
+ * next; listeners should therefore not retain them after they have handled
+ * them.</p>
+ *
+ * @param <V> type parameter of the value stack
+ */
 public abstract class MatchContextEvent<V>
 {
-    protected final MatcherContext<V> context;
+    protected MatcherContext<V> context;
 
     protected MatchContextEvent(final MatcherContext<V> context)
     {
@@ -31,4 +40,16 @@ public abstract class MatchContextEvent<V>
     {
         return context;
     }
+
+    /**
+     * Set the context of this event
+     *
+     * <p>This is used by parse runners to reuse event instances.</p>
+     *
+     * @param context the context
+     */
+    public final void setContext(final MatcherContext<V> context)
+    {
+        this.context = context;
+    }
 }
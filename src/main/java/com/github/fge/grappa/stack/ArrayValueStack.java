@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.UnmodifiableIterator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A {@link ValueStack} backed by a growable array
+ *
+ * <p>Unlike {@link DefaultValueStack}, the top of the stack is the
+ * <em>last</em> element of the array; this means pushing, popping, peeking
+ * and poking at the top of the stack are O(1) operations. Operations at a given
+ * depth only ever move the elements above that depth, and {@link #swap(int)}
+ * only touches the elements it reverses.</p>
+ *
+ * <p>Snapshots are still full copies of the stack contents.</p>
+ *
+ * @param <V> type parameter of this stack's values
+ */
+@ParametersAreNonnullByDefault
+public final class ArrayValueStack<V>
+    extends ValueStackBase<V>
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] elements;
+    private int size = 0;
+
+    public ArrayValueStack()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ArrayValueStack(final int initialCapacity)
+    {
+        Preconditions.checkArgument(initialCapacity > 0,
+            "initial capacity must be strictly positive");
+        elements = new Object[initialCapacity];
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    @Nonnull
+    @Override
+    public Object takeSnapshot()
+    {
+        return new Snapshot(Arrays.copyOf(elements, size));
+    }
+
+    @Override
+    public void restoreSnapshot(final Object snapshot)
+    {
+        Objects.requireNonNull(snapshot);
+        Preconditions.checkState(snapshot.getClass() == Snapshot.class);
+        final Object[] saved = ((Snapshot) snapshot).elements;
+        final int savedSize = saved.length;
+
+        ensureCapacity(savedSize);
+        System.arraycopy(saved, 0, elements, 0, savedSize);
+        if (savedSize < size)
+            Arrays.fill(elements, savedSize, size, null);
+        size = savedSize;
+    }
+
+    @Override
+    protected void doPush(final int down, final V value)
+    {
+        ensureCapacity(size + 1);
+        final int index = size - down;
+        System.arraycopy(elements, index, elements, index + 1, down);
+        elements[index] = value;
+        size++;
+    }
+
+    @Nonnull
+    @Override
+    protected V doPop(final int down)
+    {
+        final int index = size - 1 - down;
+        final V ret = elementAt(index);
+        System.arraycopy(elements, index + 1, elements, index, down);
+        elements[--size] = null;
+        return ret;
+    }
+
+    @Nonnull
+    @Override
+    protected V doPeek(final int down)
+    {
+        return elementAt(size - 1 - down);
+    }
+
+    @Override
+    protected void doPoke(final int down, final V value)
+    {
+        elements[size - 1 - down] = value;
+    }
+
+    @Override
+    protected void doDup()
+    {
+        ensureCapacity(size + 1);
+        elements[size] = elements[size - 1];
+        size++;
+    }
+
+    @Override
+    protected void doSwap(final int n)
+    {
+        int low = size - n;
+        int high = size - 1;
+        Object tmp;
+
+        while (low < high) {
+            tmp = elements[low];
+            elements[low++] = elements[high];
+            elements[high--] = tmp;
+        }
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        return new UnmodifiableIterator<V>()
+        {
+            private int index = size;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index > 0;
+            }
+
+            @Override
+            public V next()
+            {
+                if (index == 0)
+                    throw new NoSuchElementException();
+                return elementAt(--index);
+            }
+        };
+    }
+
+    @Nonnull
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder("[");
+
+        for (int index = size - 1; index >= 0; index--) {
+            sb.append(elements[index]);
+            if (index > 0)
+                sb.append(", ");
+        }
+
+        return sb.append(']').toString();
+    }
+
+    @Override
+    protected void checkIndex(final int index)
+    {
+        Preconditions.checkState(index < size, "not enough elements in stack");
+    }
+
+    @SuppressWarnings("unchecked")
+    private V elementAt(final int index)
+    {
+        return (V) elements[index];
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        final int length = elements.length;
+        if (capacity <= length)
+            return;
+        elements = Arrays.copyOf(elements, Math.max(capacity, length << 1));
+    }
+
+    private static final class Snapshot
+    {
+        private final Object[] elements;
+
+        private Snapshot(final Object[] elements)
+        {
+            this.elements = elements;
+        }
+    }
+}
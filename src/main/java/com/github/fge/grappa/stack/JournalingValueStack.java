@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.UnmodifiableIterator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A {@link ValueStack} with constant time snapshots
+ *
+ * <p>This stack records every modifying operation in an undo journal. A
+ * snapshot is only a mark into this journal; restoring a snapshot undoes, in
+ * reverse order, all operations recorded since the mark was taken. The cost of
+ * a snapshot is therefore constant, and the cost of a restore is proportional
+ * to the number of operations undone.</p>
+ *
+ * <p>As with {@link ArrayValueStack}, the top of the stack is the last element
+ * of the backing array.</p>
+ *
+ * <p>Snapshots must be restored in the reverse order of which they were taken
+ * (which is what all matchers do); restoring a snapshot invalidates all
+ * snapshots taken after it, and an {@link IllegalStateException} is thrown if
+ * such an invalidated snapshot is restored.</p>
+ *
+ * <p>The journal is trimmed by a restore, and emptied as soon as no snapshot
+ * is outstanding, that is, when all snapshots taken have been either restored
+ * or released (see {@link #releaseSnapshot(Object)}); it therefore only grows
+ * with the number of stack operations performed under the outermost
+ * outstanding snapshot. Note that a snapshot which is neither restored nor
+ * released prevents the journal from being emptied.</p>
+ *
+ * @param <V> type parameter of this stack's values
+ */
+@ParametersAreNonnullByDefault
+public final class JournalingValueStack<V>
+    extends ValueStackBase<V>
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int PUSH = 0;
+    private static final int POP = 1;
+    private static final int POKE = 2;
+    private static final int DUP = 3;
+    private static final int SWAP = 4;
+    private static final int CLEAR = 5;
+
+    private Object[] elements = new Object[DEFAULT_CAPACITY];
+    private int size = 0;
+
+    /*
+     * The journal: operation, argument (index or count) and value (removed or
+     * overwritten value, if any) of each recorded operation.
+     *
+     * Each entry also has a serial number so that we can detect whether the
+     * entry right before a mark is still the one it was when the mark was
+     * taken.
+     */
+    private int[] operations = new int[DEFAULT_CAPACITY];
+    private int[] arguments = new int[DEFAULT_CAPACITY];
+    private Object[] values = new Object[DEFAULT_CAPACITY];
+    private int[] serials = new int[DEFAULT_CAPACITY];
+    private int journalSize = 0;
+    private int nextSerial = 1;
+
+    /*
+     * Serial of marks taken while the journal is empty; it changes each time
+     * the journal is emptied, so that such marks taken before that are
+     * detected as invalid.
+     */
+    private int emptySerial = 0;
+
+    /*
+     * Number of snapshots taken and neither restored nor released yet
+     */
+    private int outstanding = 0;
+
+    private Mark lastMark = null;
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        if (size == 0)
+            return;
+        record(CLEAR, size, Arrays.copyOf(elements, size));
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    @Nonnull
+    @Override
+    public Object takeSnapshot()
+    {
+        outstanding++;
+        final Mark mark = lastMark;
+        if (mark != null && mark.position == journalSize && isValid(mark))
+            return mark;
+        final int serial = journalSize == 0 ? emptySerial
+            : serials[journalSize - 1];
+        lastMark = new Mark(this, journalSize, serial);
+        return lastMark;
+    }
+
+    @Override
+    public void restoreSnapshot(final Object snapshot)
+    {
+        final Mark mark = checkMark(snapshot);
+        Preconditions.checkState(isValid(mark),
+            "snapshot has been invalidated by the restore of an older one");
+
+        final int position = mark.position;
+        while (journalSize > position)
+            undo(--journalSize);
+
+        if (outstanding > 0)
+            outstanding--;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>When the last outstanding snapshot is released, the journal is
+     * emptied; all snapshots taken so far then become invalid.</p>
+     *
+     * @param snapshot a snapshot object previously returned by {@link
+     * #takeSnapshot()}
+     */
+    @Override
+    public void releaseSnapshot(final Object snapshot)
+    {
+        checkMark(snapshot);
+
+        if (outstanding == 0 || --outstanding > 0)
+            return;
+
+        Arrays.fill(values, 0, journalSize, null);
+        journalSize = 0;
+        emptySerial = nextSerial++;
+        lastMark = null;
+    }
+
+    @Override
+    protected void doPush(final int down, final V value)
+    {
+        insert(down, value);
+        record(PUSH, down, null);
+    }
+
+    @Nonnull
+    @Override
+    protected V doPop(final int down)
+    {
+        final V ret = remove(down);
+        record(POP, down, ret);
+        return ret;
+    }
+
+    @Nonnull
+    @Override
+    protected V doPeek(final int down)
+    {
+        return elementAt(size - 1 - down);
+    }
+
+    @Override
+    protected void doPoke(final int down, final V value)
+    {
+        final int index = size - 1 - down;
+        record(POKE, down, elements[index]);
+        elements[index] = value;
+    }
+
+    @Override
+    protected void doDup()
+    {
+        ensureCapacity(size + 1);
+        elements[size] = elements[size - 1];
+        size++;
+        record(DUP, 0, null);
+    }
+
+    @Override
+    protected void doSwap(final int n)
+    {
+        reverse(n);
+        record(SWAP, n, null);
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        return new UnmodifiableIterator<V>()
+        {
+            private int index = size;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index > 0;
+            }
+
+            @Override
+            public V next()
+            {
+                if (index == 0)
+                    throw new NoSuchElementException();
+                return elementAt(--index);
+            }
+        };
+    }
+
+    @Nonnull
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder("[");
+
+        for (int index = size - 1; index >= 0; index--) {
+            sb.append(elements[index]);
+            if (index > 0)
+                sb.append(", ");
+        }
+
+        return sb.append(']').toString();
+    }
+
+    @VisibleForTesting
+    int getJournalSize()
+    {
+        return journalSize;
+    }
+
+    @Override
+    protected void checkIndex(final int index)
+    {
+        Preconditions.checkState(index < size, "not enough elements in stack");
+    }
+
+    private Mark checkMark(final Object snapshot)
+    {
+        Objects.requireNonNull(snapshot);
+        Preconditions.checkState(snapshot.getClass() == Mark.class);
+        final Mark mark = (Mark) snapshot;
+        Preconditions.checkState(mark.stack == this,
+            "snapshot was not taken from this stack");
+        return mark;
+    }
+
+    private boolean isValid(final Mark mark)
+    {
+        final int position = mark.position;
+        if (position > journalSize)
+            return false;
+        return position == 0 ? mark.serial == emptySerial
+            : serials[position - 1] == mark.serial;
+    }
+
+    private void record(final int operation, final int argument,
+        final Object value)
+    {
+        if (journalSize == operations.length) {
+            final int newLength = journalSize << 1;
+            operations = Arrays.copyOf(operations, newLength);
+            arguments = Arrays.copyOf(arguments, newLength);
+            values = Arrays.copyOf(values, newLength);
+            serials = Arrays.copyOf(serials, newLength);
+        }
+        operations[journalSize] = operation;
+        arguments[journalSize] = argument;
+        values[journalSize] = value;
+        serials[journalSize] = nextSerial++;
+        journalSize++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void undo(final int entry)
+    {
+        final int argument = arguments[entry];
+        final Object value = values[entry];
+        values[entry] = null;
+
+        switch (operations[entry]) {
+            case PUSH:
+                remove(argument);
+                break;
+            case POP:
+                insert(argument, (V) value);
+                break;
+            case POKE:
+                elements[size - 1 - argument] = value;
+                break;
+            case DUP:
+                elements[--size] = null;
+                break;
+            case SWAP:
+                reverse(argument);
+                break;
+            case CLEAR:
+                ensureCapacity(argument);
+                System.arraycopy(value, 0, elements, 0, argument);
+                size = argument;
+                break;
+            default:
+                throw new IllegalStateException("unknown journal operation");
+        }
+    }
+
+    private void insert(final int down, final V value)
+    {
+        ensureCapacity(size + 1);
+        final int index = size - down;
+        System.arraycopy(elements, index, elements, index + 1, down);
+        elements[index] = value;
+        size++;
+    }
+
+    private V remove(final int down)
+    {
+        final int index = size - 1 - down;
+        final V ret = elementAt(index);
+        System.arraycopy(elements, index + 1, elements, index, down);
+        elements[--size] = null;
+        return ret;
+    }
+
+    private void reverse(final int n)
+    {
+        int low = size - n;
+        int high = size - 1;
+        Object tmp;
+
+        while (low < high) {
+            tmp = elements[low];
+            elements[low++] = elements[high];
+            elements[high--] = tmp;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V elementAt(final int index)
+    {
+        return (V) elements[index];
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        final int length = elements.length;
+        if (capacity <= length)
+            return;
+        elements = Arrays.copyOf(elements, Math.max(capacity, length << 1));
+    }
+
+    private static final class Mark
+    {
+        private final JournalingValueStack<?> stack;
+        private final int position;
+        private final int serial;
+
+        private Mark(final JournalingValueStack<?> stack, final int position,
+            final int serial)
+        {
+            this.stack = stack;
+            this.position = position;
+            this.serial = serial;
+        }
+    }
+}
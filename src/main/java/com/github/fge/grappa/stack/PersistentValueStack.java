@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.UnmodifiableIterator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A {@link ValueStack} backed by an immutable linked list
+ *
+ * <p>The stack contents are a chain of immutable nodes, the head of which is
+ * the top of the stack; modifying operations create new nodes for the
+ * elements they touch and share the rest of the chain. A snapshot is therefore
+ * the current head node, and restoring a snapshot is a reference assignment.
+ * </p>
+ *
+ * <p>Unlike snapshots of other implementations, snapshots of this stack can be
+ * restored any number of times, in any order.</p>
+ *
+ * <p>Operations at the top of the stack are O(1); operations at a given depth
+ * need to copy the nodes above that depth.</p>
+ *
+ * @param <V> type parameter of this stack's values
+ */
+@ParametersAreNonnullByDefault
+public final class PersistentValueStack<V>
+    extends ValueStackBase<V>
+{
+    private static final Node EMPTY = new Node(null, null);
+
+    private Node head = EMPTY;
+
+    @Override
+    public boolean isEmpty()
+    {
+        return head == EMPTY;
+    }
+
+    @Override
+    public int size()
+    {
+        return head.size;
+    }
+
+    @Override
+    public void clear()
+    {
+        head = EMPTY;
+    }
+
+    @Nonnull
+    @Override
+    public Object takeSnapshot()
+    {
+        return head;
+    }
+
+    @Override
+    public void restoreSnapshot(final Object snapshot)
+    {
+        Objects.requireNonNull(snapshot);
+        Preconditions.checkState(snapshot.getClass() == Node.class);
+        head = (Node) snapshot;
+    }
+
+    @Override
+    protected void doPush(final int down, final V value)
+    {
+        if (down == 0) {
+            head = new Node(value, head);
+            return;
+        }
+
+        final Object[] above = new Object[down];
+        Node node = head;
+
+        for (int i = 0; i < down; i++) {
+            above[i] = node.value;
+            node = node.next;
+        }
+
+        head = rebuild(above, new Node(value, node));
+    }
+
+    @Nonnull
+    @Override
+    protected V doPop(final int down)
+    {
+        if (down == 0) {
+            final V ret = valueOf(head);
+            head = head.next;
+            return ret;
+        }
+
+        final Object[] above = new Object[down];
+        Node node = head;
+
+        for (int i = 0; i < down; i++) {
+            above[i] = node.value;
+            node = node.next;
+        }
+
+        final V ret = valueOf(node);
+        head = rebuild(above, node.next);
+        return ret;
+    }
+
+    @Nonnull
+    @Override
+    protected V doPeek(final int down)
+    {
+        Node node = head;
+        for (int i = 0; i < down; i++)
+            node = node.next;
+        return valueOf(node);
+    }
+
+    @Override
+    protected void doPoke(final int down, final V value)
+    {
+        final Object[] above = new Object[down];
+        Node node = head;
+
+        for (int i = 0; i < down; i++) {
+            above[i] = node.value;
+            node = node.next;
+        }
+
+        head = rebuild(above, new Node(value, node.next));
+    }
+
+    @Override
+    protected void doDup()
+    {
+        head = new Node(head.value, head);
+    }
+
+    @Override
+    protected void doSwap(final int n)
+    {
+        final Object[] values = new Object[n];
+        Node node = head;
+
+        for (int i = 0; i < n; i++) {
+            values[i] = node.value;
+            node = node.next;
+        }
+
+        /*
+         * Pushing the values back onto the rest of the chain in the order we
+         * collected them reverses them
+         */
+        for (int i = 0; i < n; i++)
+            node = new Node(values[i], node);
+
+        head = node;
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        return new UnmodifiableIterator<V>()
+        {
+            private Node node = head;
+
+            @Override
+            public boolean hasNext()
+            {
+                return node != EMPTY;
+            }
+
+            @Override
+            public V next()
+            {
+                if (node == EMPTY)
+                    throw new NoSuchElementException();
+                final V ret = valueOf(node);
+                node = node.next;
+                return ret;
+            }
+        };
+    }
+
+    @Nonnull
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder("[");
+
+        for (Node node = head; node != EMPTY; node = node.next) {
+            sb.append(node.value);
+            if (node.next != EMPTY)
+                sb.append(", ");
+        }
+
+        return sb.append(']').toString();
+    }
+
+    @Override
+    protected void checkIndex(final int index)
+    {
+        Preconditions.checkState(index < head.size,
+            "not enough elements in stack");
+    }
+
+    /*
+     * Rebuild the top of the stack, given the values above the tail in
+     * top-to-bottom order
+     */
+    private static Node rebuild(final Object[] above, final Node tail)
+    {
+        Node node = tail;
+        for (int i = above.length - 1; i >= 0; i--)
+            node = new Node(above[i], node);
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueOf(final Node node)
+    {
+        return (V) node.value;
+    }
+
+    private static final class Node
+    {
+        private final Object value;
+        private final Node next;
+        private final int size;
+
+        private Node(final Object value, final Node next)
+        {
+            this.value = value;
+            this.next = next;
+            size = next == null ? 0 : next.size + 1;
+        }
+    }
+}
@@ -76,6 +76,19 @@ public interface ValueStack<V>
      */
     void restoreSnapshot(Object snapshot);
 
+    /**
+     * Signals that a snapshot previously returned by {@link #takeSnapshot()}
+     * will not be restored
+     *
+     * <p>Matchers call this method when they are done with a snapshot which
+     * they did not restore; implementations may then discard the state kept
+     * in order to restore it.</p>
+     *
+     * @param snapshot a snapshot object previously returned by {@link
+     * #takeSnapshot()}
+     */
+    void releaseSnapshot(Object snapshot);
+
     /**
      * Pushes the given value onto the stack. Equivalent to push(0, value).
      *
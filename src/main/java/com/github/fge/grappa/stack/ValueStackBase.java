@@ -29,6 +29,19 @@ import java.util.Objects;
 public abstract class ValueStackBase<V>
     implements ValueStack<V>
 {
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation does nothing.</p>
+     *
+     * @param snapshot a snapshot object previously returned by {@link
+     * #takeSnapshot()}
+     */
+    @Override
+    public void releaseSnapshot(final Object snapshot)
+    {
+    }
+
     @Override
     public final void push(final V value)
     {
@@ -16,37 +16,75 @@
 
 package com.github.fge.grappa.support;
 
+import com.google.common.base.Preconditions;
+
 import java.util.Arrays;
 import java.util.Objects;
 
 /**
- * An immutable, set-like aggregation of (relatively few) characters that allows
- * for an inverted semantic ("all chars except these few").
+ * An immutable, set-like aggregation of characters that allows for an inverted
+ * semantic ("all chars except these few").
+ *
+ * <p>Characters are stored as a sorted list of disjoint ranges, which means
+ * large sets of characters can be built efficiently using {@link #range(char,
+ * char)}. Membership of ASCII characters is also precomputed as a bitmap, so
+ * that {@link #contains(char)} is a single bit test for these; other
+ * characters are looked up using a binary search over the ranges.</p>
  */
-// TODO: replace with a sorted array
 public final class Characters
 {
-    private static final char[] NO_CHARS = new char[0];
+    private static final char[] NO_RANGES = new char[0];
+    private static final char[] ALL_RANGES = { 0, Character.MAX_VALUE };
+
+    private static final int ASCII_SIZE = 128;
 
     /**
      * The empty Characters set
      */
-    public static final Characters NONE = new Characters(false, NO_CHARS);
+    public static final Characters NONE = new Characters(false, NO_RANGES);
 
     /**
      * The Characters set including all character.
      */
-    public static final Characters ALL = new Characters(true, NO_CHARS);
+    public static final Characters ALL = new Characters(true, NO_RANGES);
 
     // if the set is subtractive its semantics change from "includes all
     // characters in the set" to "includes all characters not in the set"
     private final boolean subtractive;
-    private final char[] chars;
 
-    private Characters(final boolean subtractive, final char[] chars)
+    /*
+     * The characters in the set, as sorted, disjoint and non adjacent ranges:
+     * ranges[2 * n] is the first character of range n, and ranges[2 * n + 1]
+     * its last character.
+     */
+    private final char[] ranges;
+
+    /*
+     * Membership of ASCII characters, with the subtractive semantics already
+     * applied: bit n of asciiLow is set if character n is contained in this
+     * set, and so is bit n of asciiHigh for character n + 64.
+     */
+    private final long asciiLow;
+    private final long asciiHigh;
+
+    private Characters(final boolean subtractive, final char[] ranges)
     {
         this.subtractive = subtractive;
-        this.chars = Objects.requireNonNull(chars, "chars");
+        this.ranges = Objects.requireNonNull(ranges, "ranges");
+
+        long low = 0L;
+        long high = 0L;
+        int c;
+
+        for (int i = 0; i < ranges.length; i += 2)
+            for (c = ranges[i]; c <= ranges[i + 1] && c < ASCII_SIZE; c++)
+                if (c < 64)
+                    low |= 1L << c;
+                else
+                    high |= 1L << c;
+
+        asciiLow = subtractive ? ~low : low;
+        asciiHigh = subtractive ? ~high : high;
     }
 
     /**
@@ -61,11 +99,24 @@ public final class Characters
      * Returns the characters in this set, if it is additive.
      * If the set is subtractive the method returns the characters <b>not</b> in the set.
      *
+     * <p>The characters are returned in ascending order.</p>
+     *
      * @return the characters
      */
     public char[] getChars()
     {
-        return chars;
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2)
+            size += ranges[i + 1] - ranges[i] + 1;
+
+        final char[] ret = new char[size];
+        int index = 0;
+
+        for (int i = 0; i < ranges.length; i += 2)
+            for (int c = ranges[i]; c <= ranges[i + 1]; c++)
+                ret[index++] = (char) c;
+
+        return ret;
     }
 
     /**
@@ -76,7 +127,9 @@ public final class Characters
      */
     public Characters add(final char c)
     {
-        return subtractive ? removeFromChars(c) : addToChars(c);
+        final char[] range = { c, c };
+        return create(subtractive, subtractive ? difference(ranges, range)
+            : union(ranges, range));
     }
 
     /**
@@ -87,7 +140,9 @@ public final class Characters
      */
     public Characters remove(final char c)
     {
-        return subtractive ? addToChars(c) : removeFromChars(c);
+        final char[] range = { c, c };
+        return create(subtractive, subtractive ? union(ranges, range)
+            : difference(ranges, range));
     }
 
     /**
@@ -98,7 +153,11 @@ public final class Characters
      */
     public boolean contains(final char c)
     {
-        return indexOf(chars, c) == -1 ? subtractive : !subtractive;
+        if (c < 64)
+            return (asciiLow & 1L << c) != 0L;
+        if (c < ASCII_SIZE)
+            return (asciiHigh & 1L << c) != 0L;
+        return inRanges(c) != subtractive;
     }
 
     /**
@@ -111,14 +170,12 @@ public final class Characters
     public Characters add(final Characters other)
     {
         Objects.requireNonNull(other, "other");
-        if (!subtractive && !other.subtractive) {
-            return addToChars(other.chars);
-        }
-        if (subtractive && other.subtractive) {
-            return retainAllChars(other.chars);
-        }
-        return subtractive ? removeFromChars(other.chars)
-            : other.removeFromChars(chars);
+        if (!subtractive && !other.subtractive)
+            return create(false, union(ranges, other.ranges));
+        if (subtractive && other.subtractive)
+            return create(true, intersection(ranges, other.ranges));
+        return subtractive ? create(true, difference(ranges, other.ranges))
+            : create(true, difference(other.ranges, ranges));
     }
 
     /**
@@ -131,23 +188,36 @@ public final class Characters
     public Characters remove(final Characters other)
     {
         Objects.requireNonNull(other, "other");
-        if (!subtractive && !other.subtractive) {
-            return removeFromChars(other.chars);
-        }
-        if (subtractive && other.subtractive) {
-            return new Characters(false, other.removeFromChars(chars).chars);
-        }
-        return subtractive ? addToChars(other.chars)
-            : retainAllChars(other.chars);
+        if (!subtractive && !other.subtractive)
+            return create(false, difference(ranges, other.ranges));
+        if (subtractive && other.subtractive)
+            return create(false, difference(other.ranges, ranges));
+        return subtractive ? create(true, union(ranges, other.ranges))
+            : create(false, intersection(ranges, other.ranges));
     }
 
+    /**
+     * Returns a string representation of this set
+     *
+     * <p>Ranges of three characters or more are written as the first and last
+     * characters of the range separated by a dash.</p>
+     *
+     * @return a string representation
+     */
     @Override
     public String toString()
     {
         final StringBuilder sb = new StringBuilder();
         sb.append(subtractive ? "![" : "[");
-        for (final char c : chars) {
-            sb.append(Chars.escape(c));
+        char first, last;
+        for (int i = 0; i < ranges.length; i += 2) {
+            first = ranges[i];
+            last = ranges[i + 1];
+            sb.append(Chars.escape(first));
+            if (last - first > 1)
+                sb.append('-');
+            if (last != first)
+                sb.append(Chars.escape(last));
         }
         sb.append(']');
         return sb.toString();
@@ -161,97 +231,130 @@ public final class Characters
         if (!(o instanceof Characters))
             return false;
         final Characters that = (Characters) o;
-        return subtractive == that.subtractive && equivalent(chars, that.chars);
+        return subtractive == that.subtractive
+            && Arrays.equals(ranges, that.ranges);
     }
 
     @Override
     public int hashCode()
     {
-        return Arrays.hashCode(chars) + (subtractive ? 31 : 0);
+        return Arrays.hashCode(ranges) + (subtractive ? 31 : 0);
     }
 
-    private Characters addToChars(final char[] chs)
+    private boolean inRanges(final char c)
     {
-        Characters characters = this;
-        for (final char c : chs) {
-            characters = characters.addToChars(c);
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        int middle;
+
+        while (low <= high) {
+            middle = (low + high) >>> 1;
+            if (c < ranges[2 * middle])
+                high = middle - 1;
+            else if (c > ranges[2 * middle + 1])
+                low = middle + 1;
+            else
+                return true;
         }
-        return characters;
-    }
 
-    private Characters addToChars(final char c)
-    {
-        if (indexOf(chars, c) != -1)
-            return this;
-        final char[] newChars = new char[chars.length + 1];
-        System.arraycopy(chars, 0, newChars, 0, chars.length);
-        newChars[chars.length] = c;
-        return new Characters(subtractive, newChars);
+        return false;
     }
 
-    private Characters removeFromChars(final char[] chs)
+    /*
+     * Create an instance; a set containing all characters is represented as
+     * the inverse of the empty set, and the empty sets are the constants.
+     */
+    private static Characters create(final boolean subtractive,
+        final char[] ranges)
     {
-        Characters characters = this;
-        for (final char c : chs) {
-            characters = characters.removeFromChars(c);
-        }
-        return characters;
+        if (Arrays.equals(ranges, ALL_RANGES))
+            return subtractive ? NONE : ALL;
+        if (ranges.length == 0)
+            return subtractive ? ALL : NONE;
+        return new Characters(subtractive, ranges);
     }
 
-    private Characters removeFromChars(final char c)
+    /*
+     * Build the ranges for a set of characters, in any order and possibly
+     * with duplicates
+     */
+    private static char[] toRanges(final char[] chars)
     {
-        final int ix = indexOf(chars, c);
-        if (ix == -1)
-            return this;
-        if (chars.length == 1)
-            return subtractive ? Characters.ALL : Characters.NONE;
-        final char[] newChars = new char[chars.length - 1];
-        System.arraycopy(chars, 0, newChars, 0, ix);
-        System.arraycopy(chars, ix + 1, newChars, ix, chars.length - ix - 1);
-        return new Characters(subtractive, newChars);
+        final char[] sorted = chars.clone();
+        Arrays.sort(sorted);
+
+        final char[] ret = new char[2 * sorted.length];
+        int size = 0;
+
+        for (final char c: sorted)
+            if (size > 0 && c <= ret[size - 1] + 1) {
+                ret[size - 1] = c;
+            } else {
+                ret[size++] = c;
+                ret[size++] = c;
+            }
+
+        return Arrays.copyOf(ret, size);
     }
 
-    private Characters retainAllChars(final char[] chs)
+    private static char[] union(final char[] a, final char[] b)
     {
-        Characters characters = this;
-        for (final char c : chars) {
-            if (indexOf(chs, c) == -1) {
-                characters = characters.removeFromChars(c);
+        final char[] ret = new char[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        char first, last;
+
+        while (i < a.length || j < b.length) {
+            if (j == b.length || i < a.length && a[i] <= b[j]) {
+                first = a[i++];
+                last = a[i++];
+            } else {
+                first = b[j++];
+                last = b[j++];
+            }
+            if (size > 0 && first <= ret[size - 1] + 1) {
+                if (last > ret[size - 1])
+                    ret[size - 1] = last;
+            } else {
+                ret[size++] = first;
+                ret[size++] = last;
             }
         }
-        return characters;
+
+        return Arrays.copyOf(ret, size);
     }
 
-    private static int indexOf(final char[] chars, final char c)
+    private static char[] complement(final char[] a)
     {
-        for (int i = 0; i < chars.length; i++) {
-            if (chars[i] == c)
-                return i;
+        final char[] ret = new char[a.length + 2];
+        int size = 0;
+        int next = 0;
+
+        for (int i = 0; i < a.length; i += 2) {
+            if (a[i] > next) {
+                ret[size++] = (char) next;
+                ret[size++] = (char) (a[i] - 1);
+            }
+            next = a[i + 1] + 1;
+        }
+
+        if (next <= Character.MAX_VALUE) {
+            ret[size++] = (char) next;
+            ret[size++] = Character.MAX_VALUE;
         }
-        return -1;
+
+        return Arrays.copyOf(ret, size);
     }
 
-    // order independent Array.equals()
-    private static boolean equivalent(final char[] a, final char[] b)
+    private static char[] intersection(final char[] a, final char[] b)
     {
-        Objects.requireNonNull(a, "a");
-        Objects.requireNonNull(b, "b");
-        if (a == b)
-            return true;
-        final int length = a.length;
-        if (b.length != length)
-            return false;
+        return complement(union(complement(a), complement(b)));
+    }
 
-outer:
-        for (final char ac: a) {
-            for (int j = 0; j < length; j++) {
-                if (ac == b[j]) {
-                    continue outer;
-                }
-            }
-            return false;
-        }
-        return true;
+    private static char[] difference(final char[] a, final char[] b)
+    {
+        return intersection(a, complement(b));
     }
 
     /**
@@ -262,7 +365,7 @@ outer:
      */
     public static Characters of(final char c)
     {
-        return new Characters(false, new char[]{ c });
+        return new Characters(false, new char[]{ c, c });
     }
 
     /**
@@ -273,8 +376,7 @@ outer:
      */
     public static Characters of(final char... chars)
     {
-        return chars.length == 0 ? Characters.NONE
-            : new Characters(false, chars.clone());
+        return create(false, toRanges(chars));
     }
 
     /**
@@ -285,8 +387,30 @@ outer:
      */
     public static Characters of(final String chars)
     {
-        return chars.isEmpty() ? Characters.NONE
-            : new Characters(false, chars.toCharArray());
+        return create(false, toRanges(chars.toCharArray()));
+    }
+
+    /**
+     * Creates a new Characters instance containing a range of characters
+     *
+     * <p>Ranges can be combined with {@link #add(Characters)} and {@link
+     * #remove(Characters)}; for instance, this builds a set of all ASCII
+     * letters:</p>
+     *
+     * <pre>
+     *     Characters.range('a', 'z').add(Characters.range('A', 'Z'))
+     * </pre>
+     *
+     * @param first the first character of the range
+     * @param last the last character of the range (inclusive)
+     * @return a new Characters object
+     * @throws IllegalArgumentException last is lower than first
+     */
+    public static Characters range(final char first, final char last)
+    {
+        Preconditions.checkArgument(first <= last,
+            "last character of range is lower than the first");
+        return create(false, new char[]{ first, last });
     }
 
     /**
@@ -297,7 +421,7 @@ outer:
      */
     public static Characters allBut(final char c)
     {
-        return new Characters(true, new char[]{ c });
+        return new Characters(true, new char[]{ c, c });
     }
 
     /**
@@ -308,8 +432,7 @@ outer:
      */
     public static Characters allBut(final char... chars)
     {
-        return chars.length == 0 ? Characters.ALL
-            : new Characters(true, chars.clone());
+        return create(true, toRanges(chars));
     }
 
     /**
@@ -320,7 +443,24 @@ outer:
      */
     public static Characters allBut(final String chars)
     {
-        return chars.isEmpty() ? Characters.ALL
-            : new Characters(true, chars.toCharArray());
+        return create(true, toRanges(chars.toCharArray()));
+    }
+
+    /**
+     * Creates a new Characters instance containing all characters minus a
+     * range of characters
+     *
+     * @param first the first character of the range
+     * @param last the last character of the range (inclusive)
+     * @return a new Characters object
+     * @throws IllegalArgumentException last is lower than first
+     *
+     * @see #range(char, char)
+     */
+    public static Characters allButRange(final char first, final char last)
+    {
+        Preconditions.checkArgument(first <= last,
+            "last character of range is lower than the first");
+        return create(true, new char[]{ first, last });
     }
 }
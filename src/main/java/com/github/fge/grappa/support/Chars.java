@@ -57,4 +57,25 @@ public final class Chars
     {
         return Optional.fromNullable(ESCAPE_MAP.get(c)).or(String.valueOf(c));
     }
+
+    /**
+     * Compare two characters without regard to case
+     *
+     * <p>This uses the same algorithm as {@link
+     * String#equalsIgnoreCase(String)}: characters are equal if they are equal
+     * once converted to uppercase, or once converted to lowercase.</p>
+     *
+     * @param c1 the first character
+     * @param c2 the second character
+     * @return true if both characters are equal regardless of case
+     */
+    public static boolean equalsIgnoreCase(final char c1, final char c2)
+    {
+        if (c1 == c2)
+            return true;
+        final char u1 = Character.toUpperCase(c1);
+        final char u2 = Character.toUpperCase(c2);
+        return u1 == u2
+            || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+    }
 }
@@ -46,6 +46,12 @@ import java.util.Objects;
  * rule1()} running after {@code rule2()} will "see" this newly written value
  * (since values in Var objects are passed by reference).</p>
  *
+ * <p>By default, a Var is not thread safe: its value and frames are those of
+ * the last parsing run. Once {@link #share()} has been called (see {@link
+ * com.github.fge.grappa.Grappa#freeze(com.github.fge.grappa.rules.Rule)}),
+ * the value and frames are kept per thread, so that the rules using this Var
+ * can be run from several threads at once.</p>
+ *
  * @param <T> the type wrapped by this Var
  */
 public class Var<T>
@@ -55,6 +61,7 @@ public class Var<T>
     private final Deque<T> stack = Lists.newLinkedList();
     private int level;
     private String name;
+    private ThreadLocal<Frames<T>> frames = null;
 
     /**
      * Initializes a new Var with a null initial value.
@@ -116,7 +123,59 @@ public class Var<T>
      */
     public final int getLevel()
     {
-        return level;
+        return frames == null ? level : frames.get().level;
+    }
+
+    /**
+     * Keep the value and frames of this variable per thread from now on
+     *
+     * <p>The current value becomes the initial value in each thread. Calling
+     * this method more than once has no effect.</p>
+     *
+     * <p>Do not use manually!</p>
+     */
+    public final synchronized void share()
+    {
+        if (frames != null)
+            return;
+
+        final T initialValue = super.get();
+
+        frames = new ThreadLocal<Frames<T>>()
+        {
+            @Override
+            protected Frames<T> initialValue()
+            {
+                return new Frames<>(initialValue);
+            }
+        };
+    }
+
+    /**
+     * Tell whether the value and frames of this variable are kept per thread
+     *
+     * @return true if {@link #share()} has been called
+     */
+    public final boolean isShared()
+    {
+        return frames != null;
+    }
+
+    @Override
+    @Nullable
+    public final T get()
+    {
+        return frames == null ? super.get() : frames.get().value;
+    }
+
+    @Override
+    public final boolean set(@Nullable final T value)
+    {
+        if (frames == null)
+            return super.set(value);
+
+        frames.get().value = value;
+        return true;
     }
 
     /**
@@ -128,6 +187,9 @@ public class Var<T>
      */
     public final boolean enterFrame()
     {
+        if (frames != null)
+            return frames.get().enter(supplier.get());
+
         if (level++ > 0)
             stack.add(get());
         return set(supplier.get());
@@ -142,6 +204,9 @@ public class Var<T>
      */
     public final boolean exitFrame()
     {
+        if (frames != null)
+            return frames.get().exit();
+
         if (--level > 0)
             set(stack.removeLast());
         return true;
@@ -152,4 +217,34 @@ public class Var<T>
     {
         return Optional.fromNullable(name).or(super.toString());
     }
+
+    /*
+     * The value and frames of a shared variable, for one thread
+     */
+    private static final class Frames<T>
+    {
+        private final Deque<T> stack = Lists.newLinkedList();
+        private T value;
+        private int level;
+
+        private Frames(final T value)
+        {
+            this.value = value;
+        }
+
+        private boolean enter(final T newValue)
+        {
+            if (level++ > 0)
+                stack.add(value);
+            value = newValue;
+            return true;
+        }
+
+        private boolean exit()
+        {
+            if (--level > 0)
+                value = stack.removeLast();
+            return true;
+        }
+    }
 }
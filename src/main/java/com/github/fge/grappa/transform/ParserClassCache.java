@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import com.github.fge.grappa.transform.hash.ParserClassHasher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An on-disk cache of the classes generated for parser classes
+ *
+ * <p>Each entry of the cache is a directory named after the {@link
+ * ParserClassHasher hash} of a parser class, containing the bytecode of the
+ * extended parser class and of all of its action and var init classes. The
+ * names of these last classes include the hash of their instruction group, so
+ * an entry is keyed by both the parser bytecode and the content of each
+ * group.</p>
+ *
+ * <p>Entries are written to a temporary directory first, then renamed; several
+ * JVMs can therefore share the same cache directory.</p>
+ *
+ * <p>The cache is disabled by default. It can be enabled either using {@link
+ * com.github.fge.grappa.Grappa#setClassCacheDirectory(Path)} or by setting the
+ * {@value #DIRECTORY_PROPERTY} system property to the path of the cache
+ * directory.</p>
+ */
+public final class ParserClassCache
+{
+    /**
+     * System property used to enable the cache at startup
+     */
+    public static final String DIRECTORY_PROPERTY = "grappa.classCache";
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Path directory;
+
+    /**
+     * Create a cache from the {@value #DIRECTORY_PROPERTY} system property
+     *
+     * @return the cache, or null if the property is not set
+     */
+    @Nullable
+    public static ParserClassCache fromSystemProperties()
+    {
+        final String path = System.getProperty(DIRECTORY_PROPERTY);
+        return path == null ? null : new ParserClassCache(Paths.get(path));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param directory the cache directory; it is created if needed
+     */
+    public ParserClassCache(@Nonnull final Path directory)
+    {
+        this.directory = Objects.requireNonNull(directory, "directory");
+    }
+
+    @Nonnull
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Read an entry of the cache
+     *
+     * @param parserHash the hash of the parser class
+     * @return a map of binary class names to their bytecode, or null if there
+     * is no such entry
+     * @throws IOException failed to read the entry
+     */
+    @Nullable
+    public Map<String, byte[]> read(@Nonnull final String parserHash)
+        throws IOException
+    {
+        Objects.requireNonNull(parserHash, "parserHash");
+        final Path entry = directory.resolve(parserHash);
+
+        if (!Files.isDirectory(entry))
+            return null;
+
+        final Map<String, byte[]> ret = new LinkedHashMap<>();
+
+        String fileName;
+        String className;
+
+        try (
+            final DirectoryStream<Path> stream
+                = Files.newDirectoryStream(entry, '*' + CLASS_SUFFIX);
+        ) {
+            for (final Path path: stream) {
+                fileName = path.getFileName().toString();
+                className = fileName.substring(0,
+                    fileName.length() - CLASS_SUFFIX.length());
+                ret.put(className, Files.readAllBytes(path));
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Write an entry of the cache
+     *
+     * <p>If the entry already exists, it is left untouched.</p>
+     *
+     * @param parserHash the hash of the parser class
+     * @param classes a map of binary class names to their bytecode
+     * @throws IOException failed to write the entry
+     */
+    public void write(@Nonnull final String parserHash,
+        @Nonnull final Map<String, byte[]> classes)
+        throws IOException
+    {
+        Objects.requireNonNull(parserHash, "parserHash");
+        Objects.requireNonNull(classes, "classes");
+
+        final Path entry = directory.resolve(parserHash);
+        if (Files.isDirectory(entry))
+            return;
+
+        Files.createDirectories(directory);
+        final Path tmp = Files.createTempDirectory(directory, parserHash);
+
+        for (final Map.Entry<String, byte[]> classEntry: classes.entrySet())
+            Files.write(tmp.resolve(classEntry.getKey() + CLASS_SUFFIX),
+                classEntry.getValue());
+
+        try {
+            Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ignored) {
+            // another process wrote the same entry first
+            deleteEntry(tmp);
+        } catch (IOException e) {
+            // some file systems report DirectoryNotEmptyException instead
+            deleteEntry(tmp);
+            if (!Files.isDirectory(entry))
+                throw e;
+        }
+    }
+
+    /**
+     * Delete an entry of the cache, if it exists
+     *
+     * @param parserHash the hash of the parser class
+     * @throws IOException failed to delete the entry
+     */
+    public void delete(@Nonnull final String parserHash)
+        throws IOException
+    {
+        Objects.requireNonNull(parserHash, "parserHash");
+        final Path entry = directory.resolve(parserHash);
+
+        if (Files.isDirectory(entry))
+            deleteEntry(entry);
+    }
+
+    private static void deleteEntry(final Path entry)
+        throws IOException
+    {
+        try (
+            final DirectoryStream<Path> stream = Files.newDirectoryStream(entry);
+        ) {
+            for (final Path path: stream)
+                Files.delete(path);
+        }
+        Files.delete(entry);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Ahead of time generation of parser classes
+ *
+ * <p>This class writes the extended parser class of a parser, along with all
+ * of its action and var init classes, as class files into a directory. When
+ * these class files are in the class path, {@link
+ * com.github.fge.grappa.Grappa#createParser(Class, Object...)} loads them
+ * instead of generating them, which saves the cost of the bytecode analysis at
+ * startup.</p>
+ *
+ * <p>The generated classes record a hash of the bytecode of the parser class
+ * (and its superclasses); if the parser class has changed since the classes
+ * were generated, they are ignored and generated again at runtime.</p>
+ *
+ * <p>Usage, from the command line:</p>
+ *
+ * <pre>
+ *     java -cp ... com.github.fge.grappa.transform.ParserClassWriter \
+ *         outputDirectory parserClass...
+ * </pre>
+ *
+ * <p>The output directory is typically the directory of the compiled classes
+ * of the project defining the parsers; see the {@code generateParsers} task in
+ * this project's build file.</p>
+ */
+public final class ParserClassWriter
+{
+    private ParserClassWriter()
+    {
+        throw new Error("nice try!");
+    }
+
+    public static void main(final String... args)
+        throws Exception
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: " + ParserClassWriter.class.getName()
+                + " outputDirectory parserClass...");
+            System.exit(2);
+        }
+
+        final Path directory = Paths.get(args[0]);
+        final ClassLoader classLoader
+            = Thread.currentThread().getContextClassLoader();
+
+        Class<?> parserClass;
+
+        for (int i = 1; i < args.length; i++) {
+            parserClass = Class.forName(args[i], false, classLoader);
+            for (final Path path: write(parserClass, directory))
+                System.out.println(path);
+        }
+    }
+
+    /**
+     * Write the generated classes of a parser class to a directory
+     *
+     * @param parserClass the parser class
+     * @param directory the base directory
+     * @return the list of written class files
+     * @throws Exception failed to generate or write the classes
+     *
+     * @see ParserTransformer#generateClasses(Class)
+     */
+    @Nonnull
+    public static List<Path> write(@Nonnull final Class<?> parserClass,
+        @Nonnull final Path directory)
+        throws Exception
+    {
+        Objects.requireNonNull(parserClass, "parserClass");
+        Objects.requireNonNull(directory, "directory");
+
+        final Map<String, byte[]> classes
+            = ParserTransformer.generateClasses(parserClass);
+        final List<Path> ret = new ArrayList<>(classes.size());
+
+        Path path;
+
+        for (final Map.Entry<String, byte[]> entry: classes.entrySet()) {
+            path = directory.resolve(entry.getKey().replace('.', '/')
+                + ".class");
+            Files.createDirectories(path.getParent());
+            Files.write(path, entry.getValue());
+            ret.add(path);
+        }
+
+        return ret;
+    }
+}
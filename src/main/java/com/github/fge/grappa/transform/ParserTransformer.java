@@ -16,15 +16,29 @@
 
 package com.github.fge.grappa.transform;
 
+import com.github.fge.grappa.transform.base.InstructionGroup;
 import com.github.fge.grappa.transform.base.ParserClassNode;
 import com.github.fge.grappa.transform.base.RuleMethod;
 import com.github.fge.grappa.transform.generate.ActionClassGenerator;
 import com.github.fge.grappa.transform.generate.ClassNodeInitializer;
 import com.github.fge.grappa.transform.generate.ConstructorGenerator;
 import com.github.fge.grappa.transform.generate.VarInitClassGenerator;
+import com.github.fge.grappa.transform.hash.ParserClassHasher;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.FieldNode;
 import com.github.fge.grappa.transform.process.BodyWithSuperCallReplacer;
 import com.github.fge.grappa.transform.process.CachingGenerator;
 import com.github.fge.grappa.transform.process.ImplicitActionsConverter;
@@ -39,36 +53,184 @@ import com.github.fge.grappa.transform.process.SuperCallRewriter;
 import com.github.fge.grappa.transform.process.UnusedLabelsRemover;
 import com.github.fge.grappa.transform.process.VarFramingGenerator;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static com.github.fge.grappa.misc.AsmUtils.findLoadedClass;
 import static com.github.fge.grappa.misc.AsmUtils.getExtendedParserClassName;
 import static com.github.fge.grappa.misc.AsmUtils.loadClass;
+import static com.github.fge.grappa.misc.AsmUtils.loadClassIfAbsent;
 
 public final class ParserTransformer
 {
+    /**
+     * Name of the static field of extended parser classes holding the hash of
+     * the parser class they were generated from
+     *
+     * <p>Only classes generated ahead of time, or stored in the on-disk cache,
+     * have this field.</p>
+     *
+     * @see ParserClassHasher
+     */
+    public static final String PARSER_HASH_FIELD = "$$parserHash";
+
+    private static volatile ParserClassCache classCache
+        = ParserClassCache.fromSystemProperties();
+
+    /*
+     * Below this number of rule methods, rule methods are processed
+     * sequentially
+     */
+    private static final int PARALLELISM_THRESHOLD = 16;
+
+    private static final ForkJoinPool PROCESSOR_POOL = new ForkJoinPool();
+
+    private static final ProcessorTimings TIMINGS = new ProcessorTimings();
+
+    /*
+     * Extended parser classes, by parser class
+     *
+     * The cache ensures that a given parser class is only transformed once,
+     * while distinct parser classes are transformed concurrently. Values are
+     * weak since an extended class references its parser class; it is kept
+     * reachable by its class loader anyway.
+     */
+    private static final LoadingCache<Class<?>, Class<?>> EXTENDED_CLASSES
+        = CacheBuilder.newBuilder().weakKeys().weakValues()
+        .build(new CacheLoader<Class<?>, Class<?>>()
+        {
+            @Override
+            public Class<?> load(@Nonnull final Class<?> key)
+                throws Exception
+            {
+                return doTransformParser(key);
+            }
+        });
+
     private ParserTransformer()
     {
     }
 
-    // TODO: remove "synchronized" here
+    /**
+     * Set the on-disk cache of generated classes
+     *
+     * @param cache the cache; null disables caching
+     */
+    public static void setClassCache(@Nullable final ParserClassCache cache)
+    {
+        classCache = cache;
+    }
+
+    @Nullable
+    public static ParserClassCache getClassCache()
+    {
+        return classCache;
+    }
+
+    /**
+     * Get the time spent in each rule method processor
+     *
+     * @return the processor timings
+     */
+    @Nonnull
+    public static ProcessorTimings getProcessorTimings()
+    {
+        return TIMINGS;
+    }
+
+    /**
+     * Get the extended class of a parser class
+     *
+     * <p>This method is thread safe. Concurrent calls for the same parser class
+     * transform it only once; calls for distinct parser classes run in
+     * parallel.</p>
+     *
+     * @param parserClass the parser class
+     * @param <T> type of the parser class
+     * @return the extended parser class
+     * @throws Exception FIXME
+     */
     // TODO: move to Parboiled or the future Grappa class
-    public static synchronized <T> Class<? extends T> transformParser(
+    public static <T> Class<? extends T> transformParser(
         final Class<T> parserClass)
         throws Exception
     {
         Objects.requireNonNull(parserClass, "parserClass");
+
+        try {
+            return (Class<? extends T>) EXTENDED_CLASSES.get(parserClass);
+        } catch (ExecutionException | UncheckedExecutionException
+            | ExecutionError e) {
+            final Throwable cause = e.getCause();
+            Throwables.propagateIfPossible(cause, Exception.class);
+            throw e;
+        }
+    }
+
+    private static Class<?> doTransformParser(final Class<?> parserClass)
+        throws Exception
+    {
         // first check whether we did not already create and load the extension
         // of the given parser class
         final String name
             = getExtendedParserClassName(parserClass.getName());
         final Class<?> extendedClass
             = findLoadedClass(name,parserClass.getClassLoader());
-        final Class<?> ret = extendedClass != null
-            ? extendedClass
+        if (extendedClass != null)
+            return extendedClass;
+
+        // then whether it has been generated ahead of time
+        final Class<?> pregenerated = findPregeneratedClass(parserClass, name);
+        if (pregenerated != null)
+            return pregenerated;
+
+        // finally, in the on-disk cache, if any
+        final ParserClassCache cache = classCache;
+        return cache != null
+            ? extendParserClass(parserClass, name, cache)
             : extendParserClass(parserClass).getExtendedClass();
-        return (Class<? extends T>) ret;
+    }
+
+    /**
+     * Generate all classes needed by a transformed parser class
+     *
+     * <p>Unlike {@link #extendParserClass(Class)}, this method does not define
+     * the extended parser class; it returns the bytecode of this class along
+     * with the bytecode of all action and var init classes it uses, so that
+     * they can be written to disk.</p>
+     *
+     * <p>When the classes generated by this method are found in the class path
+     * of a parser class, {@link #transformParser(Class)} uses them instead of
+     * generating them again, provided that they were generated from the same
+     * parser class bytecode.</p>
+     *
+     * @param parserClass the parser class
+     * @return a map of binary class names to their bytecode; the first entry
+     * is the extended parser class
+     * @throws Exception FIXME
+     *
+     * @see ParserClassWriter
+     */
+    public static Map<String, byte[]> generateClasses(
+        final Class<?> parserClass)
+        throws Exception
+    {
+        Objects.requireNonNull(parserClass, "parserClass");
+        final ParserClassNode node = buildParserClass(parserClass,
+            ParserClassHasher.hash(parserClass), true);
+        writeParserClass(node);
+        return collectClasses(node);
     }
 
     /**
@@ -94,35 +256,180 @@ public final class ParserTransformer
     @VisibleForTesting
     public static ParserClassNode extendParserClass(final Class<?> parserClass)
         throws Exception
+    {
+        final ParserClassNode classNode = buildParserClass(parserClass, null,
+            false);
+        defineExtendedParserClass(classNode);
+        return classNode;
+    }
+
+    /*
+     * Hash a parser class for the cache or for a pregenerated class; null if
+     * the hash cannot be computed, in which case the parser class is neither
+     * looked up nor stored, but generated.
+     */
+    @Nullable
+    private static String hashOrNull(final Class<?> parserClass)
+    {
+        try {
+            return ParserClassHasher.hash(parserClass);
+        } catch (IOException | RuntimeException ignored) {
+            return null;
+        }
+    }
+
+    /*
+     * Extend a parser class using the on-disk cache: if an entry exists for
+     * the hash of the parser class, the classes are defined from it without
+     * running any transformation; otherwise they are generated, and the entry
+     * is written.
+     *
+     * An entry which cannot be read, or whose classes cannot be defined, is
+     * dropped, and the classes are generated as if there were no entry. If the
+     * parser class cannot be hashed, the cache is not used at all.
+     */
+    private static Class<?> extendParserClass(final Class<?> parserClass,
+        final String name, final ParserClassCache cache)
+        throws Exception
+    {
+        final String hash = hashOrNull(parserClass);
+
+        if (hash == null)
+            return extendParserClass(parserClass).getExtendedClass();
+
+        final ClassLoader classLoader = parserClass.getClassLoader();
+        Map<String, byte[]> cached;
+
+        try {
+            cached = cache.read(hash);
+        } catch (IOException ignored) {
+            cached = null;
+            dropCacheEntry(cache, hash);
+        }
+
+        if (cached != null) {
+            try {
+                if (cached.containsKey(name))
+                    return defineCachedClasses(name, cached, classLoader);
+            } catch (RuntimeException | LinkageError ignored) {
+                // bad bytecode; fall through
+            }
+            dropCacheEntry(cache, hash);
+        }
+
+        final ParserClassNode classNode = buildParserClass(parserClass, hash,
+            true);
+        defineExtendedParserClass(classNode);
+
+        try {
+            cache.write(hash, collectClasses(classNode));
+        } catch (IOException ignored) {
+            // the cache is only an optimization; the parser class is usable
+        }
+
+        return classNode.getExtendedClass();
+    }
+
+    private static void dropCacheEntry(final ParserClassCache cache,
+        final String hash)
+    {
+        try {
+            cache.delete(hash);
+        } catch (IOException ignored) {
+            // the entry will not be replaced; classes are generated anyway
+        }
+    }
+
+    private static Class<?> defineCachedClasses(final String name,
+        final Map<String, byte[]> classes, final ClassLoader classLoader)
+    {
+        String className;
+
+        // group classes first, unless a group with the same hash has already
+        // been loaded
+        for (final Map.Entry<String, byte[]> entry: classes.entrySet()) {
+            className = entry.getKey();
+            if (!className.equals(name))
+                loadClassIfAbsent(className, entry.getValue(), classLoader);
+        }
+
+        return loadClass(name, classes.get(name), classLoader);
+    }
+
+    /*
+     * Collect the bytecode of the extended parser class (first) and of all of
+     * the group classes built for it
+     */
+    private static Map<String, byte[]> collectClasses(
+        final ParserClassNode node)
+    {
+        final Map<String, byte[]> ret = new LinkedHashMap<>();
+        ret.put(node.name.replace('/', '.'), node.getClassCode());
+
+        byte[] code;
+
+        for (final RuleMethod method: node.getRuleMethods().values())
+            for (final InstructionGroup group: method.getGroups()) {
+                code = group.getGroupClassCode();
+                if (code != null)
+                    ret.put(group.getGroupClassType().getClassName(), code);
+            }
+
+        return ret;
+    }
+
+    private static ParserClassNode buildParserClass(final Class<?> parserClass,
+        @Nullable final String parserHash, final boolean forceCodeBuilding)
+        throws Exception
     {
         final ParserClassNode classNode = new ParserClassNode(parserClass);
         new ClassNodeInitializer().process(classNode);
-        runMethodTransformers(classNode);
+        runMethodTransformers(classNode, forceCodeBuilding);
         new ConstructorGenerator().process(classNode);
-        defineExtendedParserClass(classNode);
+        if (parserHash != null)
+            classNode.fields.add(new FieldNode(Opcodes.ACC_PUBLIC
+                + Opcodes.ACC_STATIC + Opcodes.ACC_FINAL + Opcodes.ACC_SYNTHETIC,
+                PARSER_HASH_FIELD, "Ljava/lang/String;", null, parserHash));
         return classNode;
     }
 
     // TODO: poor exception handling again
-    private static void runMethodTransformers(final ParserClassNode classNode)
+    private static void runMethodTransformers(final ParserClassNode classNode,
+        final boolean forceCodeBuilding)
         throws Exception
     {
-        final List<RuleMethodProcessor> methodProcessors
-            = createRuleMethodProcessors();
-
         // TODO: comment above may be right, but it's still dangerous
         // iterate through all rule methods
         // since the ruleMethods map on the classnode is a treemap we get the
         // methods sorted by name which puts all super methods first (since they
         // are prefixed with one or more '$')
-        for (final RuleMethod ruleMethod: classNode.getRuleMethods().values()) {
-            if (ruleMethod.hasDontExtend())
-                continue;
+        final List<RuleMethod> ruleMethods = new ArrayList<>();
 
-            for (final RuleMethodProcessor methodProcessor : methodProcessors)
-                if (methodProcessor.appliesTo(classNode, ruleMethod))
-                    methodProcessor.process(classNode, ruleMethod);
-        }
+        for (final RuleMethod ruleMethod: classNode.getRuleMethods().values())
+            if (!ruleMethod.hasDontExtend())
+                ruleMethods.add(ruleMethod);
+
+        /*
+         * First, the processors which only read and modify the rule method
+         * they process; rule methods can be processed in parallel here, and
+         * their order does not matter.
+         */
+        if (ruleMethods.size() < PARALLELISM_THRESHOLD)
+            for (final RuleMethod ruleMethod: ruleMethods)
+                runMethodProcessors(classNode, ruleMethod,
+                    createMethodLocalProcessors(forceCodeBuilding));
+        else
+            runMethodLocalProcessors(classNode, ruleMethods,
+                forceCodeBuilding);
+
+        /*
+         * Then the processors which look at other rule methods; they need super
+         * methods to be processed first, so they run sequentially, in order.
+         */
+        final List<RuleMethodProcessor> processors = createClassProcessors();
+
+        for (final RuleMethod ruleMethod: ruleMethods)
+            runMethodProcessors(classNode, ruleMethod, processors);
 
         for (final RuleMethod ruleMethod: classNode.getRuleMethods().values()) {
             if (!ruleMethod.isGenerationSkipped())
@@ -130,7 +437,54 @@ public final class ParserTransformer
         }
     }
 
-    private static List<RuleMethodProcessor> createRuleMethodProcessors()
+    private static void runMethodLocalProcessors(
+        final ParserClassNode classNode, final List<RuleMethod> ruleMethods,
+        final boolean forceCodeBuilding)
+        throws Exception
+    {
+        final List<Callable<Void>> tasks = new ArrayList<>(ruleMethods.size());
+
+        for (final RuleMethod ruleMethod: ruleMethods)
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                    throws Exception
+                {
+                    // some processors have state: one instance per task
+                    runMethodProcessors(classNode, ruleMethod,
+                        createMethodLocalProcessors(forceCodeBuilding));
+                    return null;
+                }
+            });
+
+        for (final Future<Void> future: PROCESSOR_POOL.invokeAll(tasks))
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                Throwables.propagateIfPossible(cause, Exception.class);
+                throw e;
+            }
+    }
+
+    private static void runMethodProcessors(final ParserClassNode classNode,
+        final RuleMethod ruleMethod, final List<RuleMethodProcessor> processors)
+        throws Exception
+    {
+        long start;
+
+        for (final RuleMethodProcessor processor: processors) {
+            if (!processor.appliesTo(classNode, ruleMethod))
+                continue;
+            start = System.nanoTime();
+            processor.process(classNode, ruleMethod);
+            TIMINGS.add(processor, System.nanoTime() - start);
+        }
+    }
+
+    private static List<RuleMethodProcessor> createMethodLocalProcessors(
+        final boolean forceCodeBuilding)
     {
         return ImmutableList.of(
             new UnusedLabelsRemover(),
@@ -139,8 +493,14 @@ public final class ParserTransformer
             new ImplicitActionsConverter(),
             new InstructionGroupCreator(),
             new InstructionGroupPreparer(),
-            new ActionClassGenerator(false),
-            new VarInitClassGenerator(false),
+            new ActionClassGenerator(forceCodeBuilding),
+            new VarInitClassGenerator(forceCodeBuilding)
+        );
+    }
+
+    private static List<RuleMethodProcessor> createClassProcessors()
+    {
+        return ImmutableList.of(
             new RuleMethodRewriter(),
             new SuperCallRewriter(),
             new BodyWithSuperCallReplacer(),
@@ -151,13 +511,66 @@ public final class ParserTransformer
     }
 
     private static void defineExtendedParserClass(final ParserClassNode node)
+    {
+        writeParserClass(node);
+        final Class<?> extendedClass  = loadClass(node.name.replace('/', '.'),
+            node.getClassCode(), node.getParentClass().getClassLoader());
+        node.setExtendedClass(extendedClass);
+    }
+
+    private static void writeParserClass(final ParserClassNode node)
     {
         final ClassWriter classWriter
             = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
         node.accept(classWriter);
         node.setClassCode(classWriter.toByteArray());
-        final Class<?> extendedClass  = loadClass(node.name.replace('/', '.'),
-            node.getClassCode(), node.getParentClass().getClassLoader());
-        node.setExtendedClass(extendedClass);
+    }
+
+    /*
+     * Look for an extended parser class generated ahead of time in the class
+     * path of the parser class; it is only used if it has been generated from
+     * the same parser class bytecode. The parser class is only hashed if
+     * such a class exists, and is treated as absent if it cannot be hashed.
+     */
+    private static Class<?> findPregeneratedClass(final Class<?> parserClass,
+        final String name)
+        throws IOException, ClassNotFoundException
+    {
+        final ClassLoader classLoader = parserClass.getClassLoader();
+        final String resource = name.replace('.', '/') + ".class";
+        final byte[] code;
+
+        try (
+            final InputStream in = classLoader.getResourceAsStream(resource);
+        ) {
+            if (in == null)
+                return null;
+            code = ByteStreams.toByteArray(in);
+        }
+
+        final String hash = hashOrNull(parserClass);
+        if (hash == null || !hash.equals(readParserHash(code)))
+            return null;
+
+        return Class.forName(name, true, classLoader);
+    }
+
+    private static String readParserHash(final byte[] code)
+    {
+        final String[] ret = new String[1];
+
+        new ClassReader(code).accept(new ClassVisitor(Opcodes.ASM5)
+        {
+            @Override
+            public FieldVisitor visitField(final int access, final String name,
+                final String desc, final String signature, final Object value)
+            {
+                if (PARSER_HASH_FIELD.equals(name))
+                    ret[0] = (String) value;
+                return null;
+            }
+        }, ClassReader.SKIP_CODE);
+
+        return ret[0];
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import com.github.fge.grappa.transform.process.RuleMethodProcessor;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cumulative time spent in each {@link RuleMethodProcessor}
+ *
+ * <p>Times are summed over all rule methods of all parser classes transformed
+ * since the JVM started (or since the last {@link #reset()}); when rule
+ * methods are processed in parallel, this is the sum of the time spent in each
+ * thread.</p>
+ *
+ * <p>This class is thread safe.</p>
+ *
+ * @see ParserTransformer#getProcessorTimings()
+ */
+public final class ProcessorTimings
+{
+    private final ConcurrentMap<Class<?>, AtomicLong> nanos
+        = new ConcurrentHashMap<>();
+
+    ProcessorTimings()
+    {
+    }
+
+    void add(final RuleMethodProcessor processor, final long elapsedNanos)
+    {
+        final Class<?> key = processor.getClass();
+
+        AtomicLong total = nanos.get(key);
+        if (total == null) {
+            final AtomicLong newTotal = new AtomicLong();
+            total = nanos.putIfAbsent(key, newTotal);
+            if (total == null)
+                total = newTotal;
+        }
+
+        total.addAndGet(elapsedNanos);
+    }
+
+    /**
+     * Get the time spent in a processor
+     *
+     * @param processorClass the class of the processor
+     * @param unit the time unit
+     * @return the time spent, in the given unit
+     */
+    public long getTime(@Nonnull final Class<? extends RuleMethodProcessor>
+        processorClass, @Nonnull final TimeUnit unit)
+    {
+        final AtomicLong total = nanos.get(processorClass);
+        return total == null ? 0L : unit.convert(total.get(),
+            TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the times spent in all processors which have run, in nanoseconds
+     *
+     * @return an immutable map of processor classes to times
+     */
+    @Nonnull
+    public Map<Class<?>, Long> getNanos()
+    {
+        final ImmutableMap.Builder<Class<?>, Long> builder
+            = ImmutableMap.builder();
+
+        for (final Map.Entry<Class<?>, AtomicLong> entry: nanos.entrySet())
+            builder.put(entry.getKey(), entry.getValue().get());
+
+        return builder.build();
+    }
+
+    /**
+     * Reset all times to 0
+     */
+    public void reset()
+    {
+        nanos.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for (final Map.Entry<Class<?>, Long> entry: getNanos().entrySet())
+            sb.append(entry.getKey().getSimpleName()).append(": ")
+                .append(TimeUnit.NANOSECONDS.toMicros(entry.getValue()))
+                .append(" us\n");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform.hash;
+
+import com.github.fge.grappa.transform.ParserTransformer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Hash of the bytecode a transformed parser class is generated from
+ *
+ * <p>The hash covers the class files of the parser class and of all of its
+ * superclasses (which includes the classes of this library the parser
+ * inherits from), as well as the class files of the classes generating the
+ * bytecode (the {@code com.github.fge.grappa.transform} package and its
+ * subpackages). Two parser classes with the same hash therefore give the same
+ * generated classes, even across versions of this library.</p>
+ */
+public final class ParserClassHasher
+{
+    private static final BaseEncoding BASE_ENCODING
+        = BaseEncoding.base32().omitPadding();
+    private static final HashFunction SHA1 = Hashing.sha1();
+
+    private static final String GENERATOR_PACKAGE
+        = "com/github/fge/grappa/transform/";
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    /*
+     * Hash of the class files of the generator package; computed once
+     */
+    private static byte[] generatorHash = null;
+
+    private ParserClassHasher()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Compute the hash of a parser class
+     *
+     * @param parserClass the parser class
+     * @return the hash, as a string
+     * @throws IOException the class file of the parser class, of one of its
+     * superclasses, or of the generator classes, cannot be read
+     */
+    @Nonnull
+    public static String hash(@Nonnull final Class<?> parserClass)
+        throws IOException
+    {
+        Objects.requireNonNull(parserClass, "parserClass");
+        final Hasher hasher = SHA1.newHasher();
+
+        hasher.putBytes(getGeneratorHash());
+
+        for (Class<?> c = parserClass; c != Object.class;
+            c = c.getSuperclass()) {
+            hasher.putUnencodedChars(c.getName());
+            hasher.putBytes(readClassFile(c));
+        }
+
+        return BASE_ENCODING.encode(hasher.hash().asBytes());
+    }
+
+    private static synchronized byte[] getGeneratorHash()
+        throws IOException
+    {
+        if (generatorHash == null) {
+            final Hasher hasher = SHA1.newHasher();
+            for (final Map.Entry<String, byte[]> entry:
+                readGeneratorClassFiles().entrySet()) {
+                hasher.putUnencodedChars(entry.getKey());
+                hasher.putBytes(entry.getValue());
+            }
+            generatorHash = hasher.hash().asBytes();
+        }
+
+        return generatorHash;
+    }
+
+    /*
+     * Read the class files of the generator package, from the directory or
+     * the jar this class is loaded from; entries are sorted by name.
+     *
+     * If classes are loaded from somewhere else, or if the jar URL does not
+     * give a jar connection, only the class files of the transformer and of
+     * this class are read.
+     */
+    @VisibleForTesting
+    static SortedMap<String, byte[]> readGeneratorClassFiles()
+        throws IOException
+    {
+        final String self = ParserClassHasher.class.getName()
+            .replace('.', '/') + CLASS_FILE_SUFFIX;
+        final URL url = ParserClassHasher.class.getResource('/' + self);
+
+        if (url == null)
+            throw new IOException("cannot find class file of "
+                + ParserClassHasher.class);
+
+        final String protocol = url.getProtocol();
+
+        if ("file".equals(protocol))
+            return readDirectory(url, self);
+
+        if ("jar".equals(protocol)) {
+            final URLConnection connection = url.openConnection();
+            if (connection instanceof JarURLConnection)
+                return readJar((JarURLConnection) connection);
+        }
+
+        final SortedMap<String, byte[]> ret = new TreeMap<>();
+        for (final Class<?> c: new Class<?>[] {
+            ParserTransformer.class, ParserClassHasher.class })
+            ret.put(c.getName(), readClassFile(c));
+        return ret;
+    }
+
+    private static SortedMap<String, byte[]> readDirectory(final URL url,
+        final String self)
+        throws IOException
+    {
+        Path root;
+
+        try {
+            root = Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("invalid class file URL " + url, e);
+        }
+
+        for (final String ignored: self.split("/"))
+            root = root.getParent();
+
+        final Path classRoot = root;
+        final SortedMap<String, byte[]> ret = new TreeMap<>();
+
+        Files.walkFileTree(classRoot.resolve(GENERATOR_PACKAGE),
+            new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult visitFile(final Path file,
+                    final BasicFileAttributes attrs)
+                    throws IOException
+                {
+                    final String name = classRoot.relativize(file).toString()
+                        .replace(File.separatorChar, '/');
+                    if (name.endsWith(CLASS_FILE_SUFFIX))
+                        ret.put(name, Files.readAllBytes(file));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+        return ret;
+    }
+
+    private static SortedMap<String, byte[]> readJar(
+        final JarURLConnection connection)
+        throws IOException
+    {
+        // We want a jar file of our own, which we can close
+        connection.setUseCaches(false);
+
+        final SortedMap<String, byte[]> ret = new TreeMap<>();
+
+        try (
+            final JarFile jarFile = connection.getJarFile();
+        ) {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            JarEntry entry;
+            String name;
+
+            while (entries.hasMoreElements()) {
+                entry = entries.nextElement();
+                name = entry.getName();
+                if (!name.startsWith(GENERATOR_PACKAGE)
+                    || !name.endsWith(CLASS_FILE_SUFFIX))
+                    continue;
+                try (
+                    final InputStream in = jarFile.getInputStream(entry);
+                ) {
+                    ret.put(name, ByteStreams.toByteArray(in));
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static byte[] readClassFile(final Class<?> c)
+        throws IOException
+    {
+        final String resource = '/' + c.getName().replace('.', '/') + ".class";
+
+        try (
+            final InputStream in = c.getResourceAsStream(resource);
+        ) {
+            if (in == null)
+                throw new IOException("cannot find class file of " + c);
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import java.util.HashMap;
 import java.util.Objects;
 
 import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_SYNCHRONIZED;
 import static org.objectweb.asm.Opcodes.ARETURN;
 
 /**
@@ -78,6 +79,10 @@ public final class CachingGenerator
         this.classNode = classNode;
         this.method = method;
         instructions = method.instructions;
+
+        // the cache (and the proxy stored in it while the rule is built) must
+        // not be seen by other threads until the rule is complete
+        method.access |= ACC_SYNCHRONIZED;
         retInsn = instructions.getLast();
 
         while (retInsn.getOpcode() != ARETURN)
@@ -81,16 +81,22 @@ public abstract class GroupClassGenerator
         final ClassLoader classLoader
             = classNode.getParentClass().getClassLoader();
 
-        final Class<?> groupClass;
-        synchronized (AsmUtils.class) {
-            groupClass = AsmUtils.findLoadedClass(className, classLoader);
-            if (groupClass == null || forceCodeBuilding) {
-                final byte[] groupClassCode = generateGroupClassCode(group);
-                group.setGroupClassCode(groupClassCode);
-                if (groupClass == null)
-                    AsmUtils.loadClass(className, groupClassCode, classLoader);
-            }
-        }
+        /*
+         * The group class name depends on the hash of the group; if a class
+         * with this name is already loaded, it has the same code.
+         *
+         * Another parser class may be generating the same group concurrently,
+         * which is why the class is only defined if still absent.
+         */
+        final Class<?> groupClass
+            = AsmUtils.findLoadedClass(className, classLoader);
+        if (groupClass != null && !forceCodeBuilding)
+            return;
+
+        final byte[] groupClassCode = generateGroupClassCode(group);
+        group.setGroupClassCode(groupClassCode);
+        if (groupClass == null)
+            AsmUtils.loadClassIfAbsent(className, groupClassCode, classLoader);
     }
 
     private void createGroupClassType(final InstructionGroup group)
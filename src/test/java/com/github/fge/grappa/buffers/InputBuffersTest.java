@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.BasicParseRunner;
+import com.github.fge.grappa.run.CompiledParseRunner;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class InputBuffersTest
+{
+    /*
+     * An input buffer which only implements the InputBuffer interface, as
+     * third party buffers written against earlier versions do
+     */
+    private static final class PlainInputBuffer
+        implements InputBuffer
+    {
+        private final InputBuffer delegate;
+
+        private PlainInputBuffer(final CharSequence input)
+        {
+            delegate = new CharSequenceInputBuffer(input);
+        }
+
+        @Override
+        public char charAt(final int index)
+        {
+            return delegate.charAt(index);
+        }
+
+        @Override
+        public int codePointAt(final int index)
+        {
+            return delegate.codePointAt(index);
+        }
+
+        @Override
+        public String extract(final int start, final int end)
+        {
+            return delegate.extract(start, end);
+        }
+
+        @Override
+        public String extract(final IndexRange range)
+        {
+            return delegate.extract(range);
+        }
+
+        @Override
+        public Position getPosition(final int index)
+        {
+            return delegate.getPosition(index);
+        }
+
+        @Override
+        public String extractLine(final int lineNumber)
+        {
+            return delegate.extractLine(lineNumber);
+        }
+
+        @Override
+        public IndexRange getLineRange(final int lineNumber)
+        {
+            return delegate.getLineRange(lineNumber);
+        }
+
+        @Override
+        public int getLineCount()
+        {
+            return delegate.getLineCount();
+        }
+
+        @Override
+        public int length()
+        {
+            return delegate.length();
+        }
+    }
+
+    static class WordsParser
+        extends BaseParser<Object>
+    {
+        Rule words()
+        {
+            return sequence(string("foo"), ' ', ignoreCase("bar"), EOI);
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> regionMatchesData()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { 0, "abc", false, true });
+        list.add(new Object[] { 0, "ABC", false, false });
+        list.add(new Object[] { 0, "ABC", true, true });
+        list.add(new Object[] { 5, "fgh", false, true });
+        list.add(new Object[] { 6, "ghi", false, false });
+        list.add(new Object[] { 8, "", false, true });
+        list.add(new Object[] { 9, "a", false, false });
+        list.add(new Object[] { 2, new StringBuilder("cDe"), true, true });
+        list.add(new Object[] { 2, new StringBuilder("cDe"), false, false });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "regionMatchesData")
+    public void regionMatchesWorksWithAllBuffers(final int index,
+        final CharSequence needle, final boolean ignoreCase,
+        final boolean expected)
+    {
+        final InputBuffer buffer = new CharSequenceInputBuffer("abcdefgh");
+        final InputBuffer plain = new PlainInputBuffer("abcdefgh");
+
+        assertThat(InputBuffers.regionMatches(buffer, index, needle,
+            ignoreCase)).isEqualTo(expected);
+        assertThat(InputBuffers.regionMatches(plain, index, needle,
+            ignoreCase)).isEqualTo(expected);
+    }
+
+    @Test
+    public void stringRulesMatchBuffersWithoutRegionMatches()
+    {
+        final WordsParser parser = Grappa.createParser(WordsParser.class);
+        final Rule rule = parser.words();
+
+        assertThat(new BasicParseRunner<>(rule)
+            .run(new PlainInputBuffer("foo BaR")).isSuccess()).isTrue();
+        assertThat(new BasicParseRunner<>(rule)
+            .run(new PlainInputBuffer("Foo bar")).isSuccess()).isFalse();
+        assertThat(new CompiledParseRunner<>(rule)
+            .run(new PlainInputBuffer("foo BaR")).isSuccess()).isTrue();
+        assertThat(new CompiledParseRunner<>(rule)
+            .run(new PlainInputBuffer("Foo bar")).isSuccess()).isFalse();
+    }
+}
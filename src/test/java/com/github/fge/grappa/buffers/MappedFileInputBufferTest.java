@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.BasicParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.support.IndexRange;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MappedFileInputBufferTest
+{
+    private static final String UTF8_TEXT = "héllo, wörld\r\n"
+        + "日本語 😀😁 end\n\n"
+        + Strings.repeat("ab👍cé", 40) + '\n'
+        + "last line";
+
+    private static final String LATIN1_TEXT = "café\nnaïve\r\n"
+        + Strings.repeat("xÿ", 100);
+
+    static class WordsParser
+        extends BaseParser<Object>
+    {
+        Rule words()
+        {
+            return sequence(oneOrMore(sequence(word(), push(match())),
+                optional(anyOf(" \n"))), EOI);
+        }
+
+        Rule word()
+        {
+            return oneOrMore(noneOf(" \n"));
+        }
+    }
+
+    private Path dir;
+
+    @BeforeClass
+    public void createDirectory()
+        throws IOException
+    {
+        dir = Files.createTempDirectory("grappa-test");
+    }
+
+    @AfterClass
+    public void deleteDirectory()
+        throws IOException
+    {
+        try (
+            final DirectoryStream<Path> stream
+                = Files.newDirectoryStream(dir);
+        ) {
+            for (final Path path: stream)
+                Files.delete(path);
+        }
+        Files.delete(dir);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getContents()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        for (final int chunkShift: new int[] { 30, 3 }) {
+            list.add(new Object[] { "", StandardCharsets.UTF_8, chunkShift });
+            list.add(new Object[] { UTF8_TEXT, StandardCharsets.UTF_8,
+                chunkShift });
+            list.add(new Object[] { LATIN1_TEXT, StandardCharsets.ISO_8859_1,
+                chunkShift });
+            list.add(new Object[] { "plain\nascii\n", StandardCharsets.US_ASCII,
+                chunkShift });
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getContents")
+    public void mappedBufferIsTheSameAsCharSequenceBuffer(final String text,
+        final Charset charset, final int chunkShift)
+        throws IOException
+    {
+        final InputBuffer expected = new CharSequenceInputBuffer(text);
+        final RegionMatchingInputBuffer actual
+            = new MappedFileInputBuffer(write(text, charset), charset,
+            chunkShift);
+
+        final int length = text.length();
+
+        assertThat(actual.length()).isEqualTo(length);
+        assertThat(actual.getLineCount()).isEqualTo(expected.getLineCount());
+
+        for (int index = 0; index <= length; index++) {
+            assertThat(actual.charAt(index)).as("char at %d", index)
+                .isEqualTo(expected.charAt(index));
+            assertThat(actual.codePointAt(index)).as("code point at %d", index)
+                .isEqualTo(expected.codePointAt(index));
+            assertThat(actual.getPosition(index)).as("position of %d", index)
+                .isEqualTo(expected.getPosition(index));
+        }
+
+        /*
+         * Backwards, to check that the cursor is correctly reset
+         */
+        for (int index = length - 1; index >= 0; index--)
+            assertThat(actual.charAt(index)).as("char at %d", index)
+                .isEqualTo(expected.charAt(index));
+
+        for (int start = 0; start < length; start += 7)
+            for (int end = start; end <= length + 1; end += 11) {
+                assertThat(actual.extract(start, end))
+                    .isEqualTo(expected.extract(start, end));
+                assertThat(actual.regionMatches(start,
+                    text.substring(start, Math.min(end, length)).toUpperCase(),
+                    true)).isTrue();
+            }
+
+        IndexRange range;
+
+        for (int line = 1; line <= expected.getLineCount(); line++) {
+            range = expected.getLineRange(line);
+            assertThat(actual.getLineRange(line)).isEqualTo(range);
+            if (!range.isEmpty())
+                assertThat(actual.extractLine(line))
+                    .isEqualTo(expected.extractLine(line));
+        }
+    }
+
+    @Test
+    public void regionMatchesComparesCharacters()
+        throws IOException
+    {
+        final RegionMatchingInputBuffer buffer = new MappedFileInputBuffer(
+            write(UTF8_TEXT, StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+
+        assertThat(buffer.regionMatches(1, "éllo", false)).isTrue();
+        assertThat(buffer.regionMatches(1, "ÉLLO", false)).isFalse();
+        assertThat(buffer.regionMatches(1, "ÉLLO", true)).isTrue();
+        assertThat(buffer.regionMatches(UTF8_TEXT.length() - 4, "line!",
+            false)).isFalse();
+    }
+
+    @Test
+    public void malformedSequencesAreReplaced()
+        throws IOException
+    {
+        final Path path = dir.resolve("malformed");
+        Files.write(path, new byte[] { 'a', (byte) 0xc3, 'b', (byte) 0xed,
+            (byte) 0xa0, (byte) 0x80, (byte) 0xf0, (byte) 0x9f });
+
+        final InputBuffer buffer
+            = new MappedFileInputBuffer(path, StandardCharsets.UTF_8);
+
+        assertThat(buffer.extract(0, buffer.length()))
+            .isEqualTo("a�b�����");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unsupportedCharsetsAreRejected()
+        throws IOException
+    {
+        new MappedFileInputBuffer(write("", StandardCharsets.UTF_16),
+            StandardCharsets.UTF_16);
+    }
+
+    @Test
+    public void mappedFilesCanBeParsed()
+        throws IOException
+    {
+        final WordsParser parser = Grappa.createParser(WordsParser.class);
+        final InputBuffer buffer = new MappedFileInputBuffer(
+            write("été 😀\nfin", StandardCharsets.UTF_8),
+            StandardCharsets.UTF_8);
+
+        final ParsingResult<Object> result
+            = new BasicParseRunner<>(parser.words()).run(buffer);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("fin", "😀",
+            "été");
+    }
+
+    private Path write(final String text, final Charset charset)
+        throws IOException
+    {
+        final Path path = Files.createTempFile(dir, "buffer", ".txt");
+        Files.write(path, text.getBytes(charset));
+        return path;
+    }
+}
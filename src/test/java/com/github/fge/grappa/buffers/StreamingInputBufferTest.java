@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.BasicParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class StreamingInputBufferTest
+{
+    static class RecordsParser
+        extends BaseParser<Object>
+    {
+        Rule records()
+        {
+            return sequence(zeroOrMore(record(), commitInput()), EOI);
+        }
+
+        Rule record()
+        {
+            return sequence(oneOrMore(firstOf("ab", noneOf("\n"))),
+                push(match()), '\n');
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getTexts()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "" });
+        list.add(new Object[] { "hello" });
+        list.add(new Object[] { "hello\r\nworld\n\nwith 😀 emoji\n" });
+        list.add(new Object[] { "a longer line, spanning several chunks\n"
+            + "another one\nand a last one" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getTexts")
+    public void streamingBufferIsTheSameAsCharSequenceBuffer(
+        final String text)
+    {
+        final InputBuffer expected = new CharSequenceInputBuffer(text);
+        final RegionMatchingInputBuffer actual
+            = new StreamingInputBuffer(new StringReader(text), 2);
+        final int length = text.length();
+
+        for (int index = 0; index <= length; index++) {
+            assertThat(actual.charAt(index)).as("char at %d", index)
+                .isEqualTo(expected.charAt(index));
+            assertThat(actual.codePointAt(index)).as("code point at %d", index)
+                .isEqualTo(expected.codePointAt(index));
+            assertThat(actual.getPosition(index)).as("position of %d", index)
+                .isEqualTo(expected.getPosition(index));
+        }
+
+        for (int start = 0; start < length; start += 3)
+            for (int end = start; end <= length + 1; end += 5) {
+                assertThat(actual.extract(start, end))
+                    .isEqualTo(expected.extract(start, end));
+                assertThat(actual.regionMatches(start,
+                    expected.extract(start, end), false)).isTrue();
+            }
+
+        IndexRange range;
+
+        for (int line = 1; line <= expected.getLineCount(); line++) {
+            range = expected.getLineRange(line);
+            assertThat(actual.getLineRange(line)).isEqualTo(range);
+            if (!range.isEmpty())
+                assertThat(actual.extractLine(line))
+                    .isEqualTo(expected.extractLine(line));
+        }
+
+        assertThat(actual.getLineCount()).isEqualTo(expected.getLineCount());
+        assertThat(actual.length()).isEqualTo(length);
+    }
+
+    @Test
+    public void inputIsReadOnlyWhenNeeded()
+    {
+        final StreamingInputBuffer buffer
+            = new StreamingInputBuffer(new StringReader("abcdefgh"), 2);
+
+        assertThat(buffer.regionMatches(0, "abc", false)).isTrue();
+        buffer.commit(3);
+
+        try {
+            buffer.commit(7);
+            fail("No exception thrown!");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void inputBelowCommitPointIsDiscarded()
+    {
+        final StreamingInputBuffer buffer
+            = new StreamingInputBuffer(new StringReader("ab\ncd\nef\ngh"), 1);
+
+        assertThat(buffer.charAt(8)).isEqualTo('\n');
+        buffer.commit(7);
+
+        assertThat(buffer.extract(6, 11)).isEqualTo("ef\ngh");
+        assertThat(buffer.getPosition(7)).isEqualTo(new Position(3, 2));
+        assertThat(buffer.extractLine(4)).isEqualTo("gh");
+
+        try {
+            buffer.charAt(5);
+            fail("No exception thrown!");
+        } catch (IllegalStateException ignored) {
+        }
+
+        try {
+            buffer.getLineRange(2);
+            fail("No exception thrown!");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void recordStreamsCanBeParsed()
+    {
+        final RecordsParser parser = Grappa.createParser(RecordsParser.class);
+        final StringBuilder sb = new StringBuilder();
+        final int nrRecords = 1000;
+
+        for (int i = 0; i < nrRecords; i++)
+            sb.append("record ").append(i).append('\n');
+
+        final StreamingInputBuffer buffer = new StreamingInputBuffer(
+            Channels.newChannel(new ByteArrayInputStream(
+                sb.toString().getBytes(StandardCharsets.UTF_8))),
+            StandardCharsets.UTF_8);
+
+        final ParsingResult<Object> result
+            = new BasicParseRunner<>(parser.records()).run(buffer);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).hasSize(nrRecords);
+        assertThat(result.getTopStackValue())
+            .isEqualTo("record " + (nrRecords - 1));
+
+        try {
+            buffer.charAt(0);
+            fail("No exception thrown!");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
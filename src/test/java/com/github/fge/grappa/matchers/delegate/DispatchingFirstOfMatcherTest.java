@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.delegate;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunnerListener;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.events.PreMatchEvent;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class DispatchingFirstOfMatcherTest
+{
+    static class DispatchingParser
+        extends BaseParser<Object>
+    {
+        int count = 0;
+
+        Rule value()
+        {
+            return sequence(
+                firstOf(
+                    sequence(ACTION(increment()), 'x', push("action")),
+                    sequence(number(), push("number")),
+                    sequence(word(), push("word")),
+                    sequence('é', push("non ascii")),
+                    sequence(optional('-'), '!', push("bang"))
+                ),
+                EOI
+            );
+        }
+
+        Rule number()
+        {
+            return oneOrMore(digit());
+        }
+
+        Rule word()
+        {
+            return oneOrMore(charRange('a', 'z'));
+        }
+
+        boolean increment()
+        {
+            count++;
+            return true;
+        }
+    }
+
+    private static final class CountingListener
+        extends ParseRunnerListener<Object>
+    {
+        private int wordAttempts = 0;
+
+        @Override
+        public void beforeMatch(final PreMatchEvent<Object> event)
+        {
+            if ("word".equals(event.getContext().getMatcher().getLabel()))
+                wordAttempts++;
+        }
+    }
+
+    @Test
+    public void firstOfRulesAreDispatching()
+    {
+        final DispatchingParser parser
+            = Grappa.createParser(DispatchingParser.class);
+
+        assertThat(parser.firstOf('a', 'b'))
+            .isInstanceOf(DispatchingFirstOfMatcher.class);
+    }
+
+    @Test
+    public void dispatchingPreservesOrderedChoice()
+    {
+        final DispatchingParser parser
+            = Grappa.createParser(DispatchingParser.class);
+        final Rule rule = parser.value();
+
+        assertThat(parse(rule, "x")).isEqualTo("action");
+        assertThat(parse(rule, "42")).isEqualTo("number");
+        assertThat(parse(rule, "foo")).isEqualTo("word");
+        assertThat(parse(rule, "é")).isEqualTo("non ascii");
+        assertThat(parse(rule, "!")).isEqualTo("bang");
+        assertThat(parse(rule, "-!")).isEqualTo("bang");
+        assertThat(parse(rule, "?")).isNull();
+    }
+
+    @Test
+    public void alternativesStartingWithActionsAreAlwaysTried()
+    {
+        final DispatchingParser parser
+            = Grappa.createParser(DispatchingParser.class);
+        final Rule rule = parser.value();
+
+        parse(rule, "42");
+        parse(rule, "é");
+
+        assertThat(parser.count).isEqualTo(2);
+    }
+
+    @Test
+    public void alternativesWhichCannotMatchAreSkipped()
+    {
+        final DispatchingParser parser
+            = Grappa.createParser(DispatchingParser.class);
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.value());
+        final CountingListener listener = new CountingListener();
+
+        runner.registerListener(listener);
+
+        assertThat(runner.run("42").isSuccess()).isTrue();
+        assertThat(runner.run("!").isSuccess()).isTrue();
+        assertThat(listener.wordAttempts).isEqualTo(0);
+
+        assertThat(runner.run("foo").isSuccess()).isTrue();
+        assertThat(listener.wordAttempts).isEqualTo(1);
+    }
+
+    @Test
+    public void caseInsensitiveAlternativesMatchAsWithoutDispatching()
+    {
+        final DispatchingParser parser
+            = Grappa.createParser(DispatchingParser.class);
+        // U+017F and U+0131 are case insensitively equal to 's' and 'i'
+        final Rule[] rules = parser.toRules(parser.ignoreCase("\u017fa"),
+            parser.ignoreCase("\u0131a"), "xy");
+        final Rule dispatching = new DispatchingFirstOfMatcher(rules);
+        final Rule plain = new FirstOfMatcher(rules);
+
+        for (final String input: new String[] { "sa", "SA", "ia", "IA",
+            "\u017fa", "\u0131a", "xy", "ya" })
+            assertThat(matches(dispatching, input)).as(input)
+                .isEqualTo(matches(plain, input));
+
+        assertThat(matches(dispatching, "sa")).isTrue();
+        assertThat(matches(dispatching, "ia")).isTrue();
+    }
+
+    private static boolean matches(final Rule rule, final String input)
+    {
+        return new ListeningParseRunner<>(rule).run(input).isSuccess();
+    }
+
+    private static Object parse(final Rule rule, final String input)
+    {
+        final ParsingResult<Object> result
+            = new ListeningParseRunner<>(rule).run(input);
+        return result.isSuccess() ? result.getTopStackValue() : null;
+    }
+}
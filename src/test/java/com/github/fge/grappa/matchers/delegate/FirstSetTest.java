@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.delegate;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Characters;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class FirstSetTest
+{
+    static class FirstSetParser
+        extends BaseParser<Object>
+    {
+        Rule expression()
+        {
+            return firstOf(sequence('(', expression(), ')'), oneOrMore(digit()));
+        }
+
+        Rule leftRecursive()
+        {
+            return sequence(optional('x'), firstOf(leftRecursive(), 'y'));
+        }
+
+        Rule leadingAction()
+        {
+            return sequence(ACTION(true), 'a');
+        }
+
+        Rule trailingAction()
+        {
+            return sequence('a', ACTION(true));
+        }
+    }
+
+    private final FirstSetParser parser
+        = Grappa.createParser(FirstSetParser.class);
+
+    @Test
+    public void singleCharacterRules()
+    {
+        assertFirstSet(parser.ch('a'), Characters.of('a'), false);
+        assertFirstSet(parser.ignoreCase('a'), Characters.of("aA"), false);
+        assertFirstSet(parser.digit(), Characters.range('0', '9'), false);
+        assertFirstSet(parser.anyOf("ab!"), Characters.of("ab!"), false);
+    }
+
+    @Test
+    public void stringRules()
+    {
+        assertFirstSet(parser.string("foo"), Characters.of('f'), false);
+
+        final FirstSet firstSet = firstSetOf(parser.ignoreCase("foo"));
+        assertThat(firstSet.isNullable()).isFalse();
+        assertThat(firstSet.mayMatch('f')).isTrue();
+        assertThat(firstSet.mayMatch('F')).isTrue();
+        assertThat(firstSet.mayMatch('g')).isFalse();
+        assertThat(firstSet.mayMatch('é')).isTrue();
+    }
+
+    @Test
+    public void compositeRules()
+    {
+        assertFirstSet(parser.optional('a'), Characters.of('a'), true);
+        assertFirstSet(parser.oneOrMore('a'), Characters.of('a'), false);
+        assertFirstSet(parser.zeroOrMore('a'), Characters.of('a'), true);
+        assertFirstSet(parser.sequence(parser.optional('-'), parser.digit()),
+            Characters.of('-').add(Characters.range('0', '9')), false);
+        assertFirstSet(parser.sequence(parser.optional('-'),
+            parser.optional('+')), Characters.of("-+"), true);
+        assertFirstSet(parser.firstOf('a', parser.sequence('b', 'c')),
+            Characters.of("ab"), false);
+        assertFirstSet(parser.firstOf('a', parser.empty()), Characters.of('a'),
+            true);
+        assertFirstSet(parser.join('a').using(',').min(1), Characters.of('a'),
+            false);
+        assertFirstSet(parser.join('a').using(',').min(0), Characters.of('a'),
+            true);
+    }
+
+    @Test
+    public void predicatesDoNotConsumeButTestTheCurrentCharacter()
+    {
+        assertFirstSet(parser.sequence(parser.test('a'), 'b'),
+            Characters.of("ab"), false);
+        assertFirstSet(parser.sequence(parser.testNot('a'), 'b'),
+            Characters.of("ab"), false);
+    }
+
+    @Test
+    public void actionsCanStartWithAnything()
+    {
+        assertThat(firstSetOf(parser.leadingAction()).mayMatch('b')).isTrue();
+        assertFirstSet(parser.trailingAction(), Characters.of('a'), false);
+    }
+
+    @Test
+    public void recursiveRules()
+    {
+        assertFirstSet(parser.expression(),
+            Characters.of('(').add(Characters.range('0', '9')), false);
+        assertThat(firstSetOf(parser.leftRecursive()).mayMatch('z')).isTrue();
+    }
+
+    private static FirstSet firstSetOf(final Rule rule)
+    {
+        return FirstSet.of((Matcher) rule);
+    }
+
+    private static void assertFirstSet(final Rule rule,
+        final Characters chars, final boolean nullable)
+    {
+        final FirstSet firstSet = firstSetOf(rule);
+        assertThat(firstSet.getChars()).as("characters").isEqualTo(chars);
+        assertThat(firstSet.isNullable()).as("nullable").isEqualTo(nullable);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.repeat;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.AnyMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.ListeningParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.util.MatcherContextBuilder;
+import com.github.fge.grappa.util.SimpleMatchHandler;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ScanningRepeatMatcherTest
+{
+    private static final String INPUT = "abbabaabab;";
+
+    static class TestScanningParser
+        extends ListeningParser<Object>
+    {
+        protected final RepeatMatcherBuilder builder = repeat(anyOf("ab"));
+
+        Rule identifier()
+        {
+            return sequence(
+                sequence(
+                    firstOf(charRange('a', 'z'), '_'),
+                    zeroOrMore(firstOf(charRange('a', 'z'), digit(), '_'))
+                ),
+                push(match())
+            );
+        }
+
+        Rule identifiers()
+        {
+            return sequence(
+                zeroOrMore(' '),
+                identifier(),
+                zeroOrMore(oneOrMore(' '), identifier()),
+                zeroOrMore(' '),
+                EOI
+            );
+        }
+    }
+
+    private final TestScanningParser parser
+        = Grappa.createParser(TestScanningParser.class);
+
+    private final MatcherContextBuilder builder = new MatcherContextBuilder();
+
+    @DataProvider
+    public Iterator<Object[]> getSingleCharRules()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { parser.ch('a') });
+        list.add(new Object[] { parser.ignoreCase('a') });
+        list.add(new Object[] { parser.charRange('a', 'z') });
+        list.add(new Object[] { parser.anyOf("abc") });
+        list.add(new Object[] { parser.noneOf("abc") });
+        list.add(new Object[] { new AnyMatcher() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getSingleCharRules")
+    public void scanningMatcherIsUsedForSingleCharRules(final Rule rule)
+    {
+        assertThat(parser.zeroOrMore(rule))
+            .isInstanceOf(ScanningRepeatMatcher.class);
+        assertThat(parser.oneOrMore(rule))
+            .isInstanceOf(ScanningRepeatMatcher.class);
+        assertThat(parser.repeat(rule).times(2, 4))
+            .isInstanceOf(ScanningRepeatMatcher.class);
+    }
+
+    @Test
+    public void scanningMatcherIsNotUsedForOtherRules()
+    {
+        assertThat(parser.zeroOrMore("ab"))
+            .isNotInstanceOf(ScanningRepeatMatcher.class);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getMatchData()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { Range.atLeast(0), true, 10 });
+        list.add(new Object[] { Range.atLeast(10), true, 10 });
+        list.add(new Object[] { Range.atLeast(11), false, 0 });
+        list.add(new Object[] { Range.atMost(4), true, 4 });
+        list.add(new Object[] { Range.singleton(7), true, 7 });
+        list.add(new Object[] { Range.singleton(12), false, 0 });
+        list.add(new Object[] { Range.closed(2, 9), true, 9 });
+        list.add(new Object[] { Range.closed(2, 20), true, 10 });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getMatchData")
+    public void scanningMatcherMatchesCorrectly(final Range<Integer> range,
+        final boolean match, final int index)
+    {
+        final Matcher matcher = (Matcher) parser.builder.range(range);
+        final MatcherContext<Object> context = builder.withInput(INPUT)
+            .withMatcher(matcher).build();
+
+        assertThat(matcher).isInstanceOf(ScanningRepeatMatcher.class);
+        assertThat(SimpleMatchHandler.INSTANCE.match(context))
+            .as("match/no match is correct").isEqualTo(match);
+        assertThat(context.getCurrentIndex()).as("index is correct after match")
+            .isEqualTo(index);
+    }
+
+    @Test
+    public void scanningMatcherWorksWithinFullParse()
+    {
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.identifiers());
+        final ParsingResult<Object> result
+            = runner.run("  foo  _bar2 b4z_   ");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("b4z_", "_bar2",
+            "foo");
+        assertThat(runner.run("foo 2bar").isSuccess()).isFalse();
+    }
+}
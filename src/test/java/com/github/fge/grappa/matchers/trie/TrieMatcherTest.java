@@ -16,6 +16,10 @@
 
 package com.github.fge.grappa.matchers.trie;
 
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.BasicParseRunner;
 import com.github.fge.grappa.util.MatcherContextBuilder;
 import com.google.common.collect.Lists;
 import org.assertj.core.api.SoftAssertions;
@@ -26,6 +30,8 @@ import org.testng.annotations.Test;
 import java.util.Iterator;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 public final class TrieMatcherTest
 {
     private static final String[] KEYWORDS = {
@@ -39,6 +45,20 @@ public final class TrieMatcherTest
         "volatile", "while", "false", "null", "true"
     };
 
+    static class KeywordParser
+        extends BaseParser<Object>
+    {
+        Rule keyword(final Trie trie)
+        {
+            return sequence(trie(trie), EOI);
+        }
+
+        Rule keywordIgnoreCase(final Trie trie)
+        {
+            return sequence(trieIgnoreCase(trie), EOI);
+        }
+    }
+
     private final TrieMatcher matcher;
 
     public TrieMatcherTest()
@@ -97,6 +117,19 @@ public final class TrieMatcherTest
         context = builder.withInput(input).build();
         list.add(new Object[] { context, matched, index });
 
+        // No match on first character, and empty input
+        input = "xyz";
+        matched = false;
+        index = 0;
+        context = builder.withInput(input).build();
+        list.add(new Object[] { context, matched, index });
+
+        input = "";
+        matched = false;
+        index = 0;
+        context = builder.withInput(input).build();
+        list.add(new Object[] { context, matched, index });
+
         // Match at index 0, even with trainling text...
         input = "instanceof Integer";
         matched = true;
@@ -121,4 +154,41 @@ public final class TrieMatcherTest
 
         soft.assertAll();
     }
+
+    @DataProvider
+    public Iterator<Object[]> getPrebuiltTries()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        TrieBuilder builder;
+
+        builder = Trie.newBuilder();
+        for (final String keyword: KEYWORDS)
+            builder.addWord(keyword);
+        list.add(new Object[] { builder.build() });
+
+        builder = Trie.newBuilder().compact();
+        for (final String keyword: KEYWORDS)
+            builder.addWord(keyword);
+        list.add(new Object[] { builder.build() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getPrebuiltTries")
+    public void grammarsCanUsePrebuiltTries(final Trie trie)
+    {
+        final KeywordParser parser = Grappa.createParser(KeywordParser.class);
+        final Rule rule = parser.keyword(trie);
+        final Rule ignoreCase = parser.keywordIgnoreCase(trie);
+
+        assertThat(new BasicParseRunner<>(rule).run("instanceof").isSuccess())
+            .isTrue();
+        assertThat(new BasicParseRunner<>(rule).run("instance").isSuccess())
+            .isFalse();
+        assertThat(new BasicParseRunner<>(rule).run("Final").isSuccess())
+            .isFalse();
+        assertThat(new BasicParseRunner<>(ignoreCase).run("Final")
+            .isSuccess()).isTrue();
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.trie;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class TrieTest
+{
+    private static final String[] WORDS = {
+        "do", "double", "done", "don't", "dose", "dot", "dote", "dove", "dow",
+        "doze", "dozen", "dox", "doa", "doc", "dog", "doh", "doi", "doj",
+        "ça", "çà", "Été", "étage", "été", "über", "Über", "中文"
+    };
+
+    private final Trie nodes;
+    private final Trie table;
+
+    public TrieTest()
+    {
+        final TrieBuilder nodesBuilder = Trie.newBuilder();
+        final TrieBuilder tableBuilder = Trie.newBuilder().compact();
+
+        for (final String word: WORDS) {
+            nodesBuilder.addWord(word);
+            tableBuilder.addWord(word);
+        }
+
+        final Random random = new Random(0L);
+        final StringBuilder sb = new StringBuilder();
+        String word;
+
+        for (int i = 0; i < 500; i++) {
+            sb.setLength(0);
+            for (int j = random.nextInt(8); j >= 0; j--)
+                sb.append((char) ('A' + random.nextInt(58)));
+            word = sb.toString();
+            nodesBuilder.addWord(word);
+            tableBuilder.addWord(word);
+        }
+
+        nodes = nodesBuilder.build();
+        table = tableBuilder.build();
+    }
+
+    @Test
+    public void compactTrieHasSameCounters()
+    {
+        assertThat(table.getNrWords()).isEqualTo(nodes.getNrWords());
+        assertThat(table.getMaxLength()).isEqualTo(nodes.getMaxLength());
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getNeedles()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        for (final String word: WORDS) {
+            list.add(new Object[] { word });
+            list.add(new Object[] { word + "xyz" });
+            list.add(new Object[] { word.toUpperCase() });
+            list.add(new Object[] { word.substring(0, word.length() - 1) });
+        }
+
+        list.add(new Object[] { "" });
+        list.add(new Object[] { "中" });
+        list.add(new Object[] { "中文字" });
+
+        final Random random = new Random(1L);
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 200; i++) {
+            sb.setLength(0);
+            for (int j = random.nextInt(10); j >= 0; j--)
+                sb.append((char) ('A' + random.nextInt(58)));
+            list.add(new Object[] { sb.toString() });
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getNeedles")
+    public void compactTrieSearchesStringsLikeNodes(final String needle)
+    {
+        assertThat(table.search(needle, false))
+            .isEqualTo(nodes.search(needle, false));
+        assertThat(table.search(needle, true))
+            .isEqualTo(nodes.search(needle, true));
+    }
+
+    @Test(dataProvider = "getNeedles")
+    public void compactTrieSearchesBuffersLikeNodes(final String needle)
+    {
+        final InputBuffer buffer = new CharSequenceInputBuffer("_" + needle);
+
+        assertThat(table.search(buffer, 1, false))
+            .isEqualTo(nodes.search(buffer, 1, false));
+        assertThat(table.search(buffer, 1, true))
+            .isEqualTo(nodes.search(buffer, 1, true));
+    }
+
+    @Test
+    public void compactTrieFindsLongestMatch()
+    {
+        final TrieBuilder builder = Trie.newBuilder().compact();
+        for (final String word: WORDS)
+            builder.addWord(word);
+        final Trie trie = builder.build();
+
+        assertThat(trie.search("dozens", false)).isEqualTo(5);
+        assertThat(trie.search("DOZENS", true)).isEqualTo(5);
+        assertThat(trie.search("étages", false)).isEqualTo(5);
+        assertThat(trie.search("ÉTÉ", true)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.wrap;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.annotations.Label;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ProxyEliminatorTest
+{
+    static class NestingParser
+        extends BaseParser<Object>
+    {
+        Rule root()
+        {
+            return sequence(nested(), EOI);
+        }
+
+        @Label("nested")
+        Rule nested()
+        {
+            return sequence('(', join(word()).using(',').min(1),
+                optional(nested()), test(')'), ')');
+        }
+
+        Rule word()
+        {
+            return firstOf(oneOrMore(charRange('a', 'z')), nested());
+        }
+    }
+
+    @Test
+    public void parseRunnersRemoveProxies()
+    {
+        final NestingParser parser = Grappa.createParser(NestingParser.class);
+        final Rule rule = parser.root();
+
+        assertThat(findProxies((Matcher) rule)).isNotEmpty();
+
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(rule);
+
+        assertThat(runner.run("(a,(b)(c))").isSuccess()).isTrue();
+        assertThat(runner.run("(a,(b)(c)").isSuccess()).isFalse();
+        assertThat(findProxies((Matcher) rule)).isEmpty();
+    }
+
+    @Test
+    public void pendingLabelsAreApplied()
+    {
+        final NestingParser parser = Grappa.createParser(NestingParser.class);
+        final Matcher root
+            = ProxyEliminator.eliminate((Matcher) parser.root());
+
+        final List<String> labels = new ArrayList<>();
+        for (final Matcher child: root.getChildren())
+            labels.add(child.getLabel());
+
+        assertThat(labels).containsExactly("nested", "EOF");
+
+        final Matcher nested = root.getChildren().get(0);
+        final Matcher optional = nested.getChildren().get(2);
+
+        assertThat(optional.getChildren().get(0)).isSameAs(nested);
+    }
+
+    @Test
+    public void eliminationIsIdempotent()
+    {
+        final NestingParser parser = Grappa.createParser(NestingParser.class);
+        final Matcher root = (Matcher) parser.root();
+
+        final Matcher first = ProxyEliminator.eliminate(root);
+        final Matcher second = ProxyEliminator.eliminate(root);
+
+        assertThat(second).isSameAs(first);
+        assertThat(findProxies(first)).isEmpty();
+    }
+
+    private static List<Matcher> findProxies(final Matcher root)
+    {
+        final Set<Matcher> visited
+            = Collections.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+        final List<Matcher> ret = new ArrayList<>();
+
+        toVisit.add(root);
+
+        Matcher matcher;
+
+        while (!toVisit.isEmpty()) {
+            matcher = toVisit.pop();
+            if (!visited.add(matcher))
+                continue;
+            if (matcher instanceof ProxyMatcher) {
+                ret.add(matcher);
+                toVisit.push(ProxyMatcher.unwrap(matcher));
+                continue;
+            }
+            if (matcher instanceof VarFramingMatcher) {
+                toVisit.push(((VarFramingMatcher) matcher).getInner());
+                continue;
+            }
+            for (final Matcher child: matcher.getChildren())
+                toVisit.push(child);
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.misc;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Action;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.context.Context;
+import com.github.fge.grappa.run.context.ContextAware;
+import com.github.fge.grappa.support.Var;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.fge.grappa.util.CustomAssertions.shouldHaveThrown;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class RuleGraphFreezerTest
+{
+    private static final int NR_THREADS = 8;
+    private static final int NR_RUNS = 200;
+
+    /*
+     * Sums all numbers in nested lists; each list keeps its partial sum in a
+     * Var, so concurrent runs need per thread frames
+     */
+    static class SumParser
+        extends BaseParser<Integer>
+    {
+        Rule root()
+        {
+            return sequence(list(), EOI);
+        }
+
+        Rule list()
+        {
+            final Var<Integer> sum = new Var<>(0);
+            return sequence('[',
+                optional(element(sum), zeroOrMore(',', element(sum))),
+                ']', push(sum.get()));
+        }
+
+        Rule element(final Var<Integer> sum)
+        {
+            return sequence(firstOf(number(), list()),
+                sum.set(sum.get() + pop()));
+        }
+
+        Rule number()
+        {
+            return sequence(oneOrMore(digit()),
+                push(Integer.parseInt(match())));
+        }
+    }
+
+    /*
+     * An action keeping its context in itself
+     */
+    static final class ContextAwareAction
+        implements Action<Integer>, ContextAware<Integer>
+    {
+        private Context<Integer> context;
+
+        @Override
+        public void setContext(final Context<Integer> context)
+        {
+            this.context = context;
+        }
+
+        @Override
+        public boolean run(final Context<Integer> context)
+        {
+            return this.context == context;
+        }
+    }
+
+    static class ContextAwareParser
+        extends BaseParser<Integer>
+    {
+        Rule root()
+        {
+            return sequence('a', new ContextAwareAction());
+        }
+    }
+
+    @Test
+    public void frozenRulesHaveNoProxies()
+    {
+        final SumParser parser = Grappa.createParser(SumParser.class);
+        final Rule rule = Grappa.freeze(parser.root());
+
+        assertThat(rule).isNotInstanceOf(ProxyMatcher.class);
+        assertThat(ProxyMatcher.unwrap((Matcher) rule)).isSameAs(rule);
+    }
+
+    @Test
+    public void frozenRulesCanBeSharedByThreads()
+        throws Exception
+    {
+        final SumParser parser = Grappa.createParser(SumParser.class);
+        final Rule rule = Grappa.freeze(parser.root());
+
+        final ExecutorService executor
+            = Executors.newFixedThreadPool(NR_THREADS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<Future<Integer>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < NR_THREADS; i++) {
+                final long seed = i;
+                futures.add(executor.submit(new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                        throws Exception
+                    {
+                        latch.await();
+                        return runAll(rule, seed);
+                    }
+                }));
+            }
+
+            latch.countDown();
+
+            for (final Future<Integer> future: futures)
+                assertThat(future.get()).as("successful runs")
+                    .isEqualTo(NR_RUNS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void contextAwareActionsAreRejected()
+    {
+        final ContextAwareParser parser
+            = Grappa.createParser(ContextAwareParser.class);
+
+        try {
+            Grappa.freeze(parser.root());
+            shouldHaveThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage())
+                .contains(ContextAwareAction.class.getName());
+        }
+    }
+
+    private static int runAll(final Rule rule, final long seed)
+    {
+        final Random random = new Random(seed);
+        final StringBuilder sb = new StringBuilder();
+
+        int ok = 0;
+        int expected;
+        ParsingResult<Integer> result;
+
+        for (int i = 0; i < NR_RUNS; i++) {
+            sb.setLength(0);
+            expected = appendList(sb, random, 0);
+            result = new ListeningParseRunner<Integer>(rule).run(sb);
+            if (result.isSuccess()
+                && result.getTopStackValue() == expected)
+                ok++;
+        }
+
+        return ok;
+    }
+
+    private static int appendList(final StringBuilder sb, final Random random,
+        final int depth)
+    {
+        final int size = random.nextInt(4);
+        int sum = 0;
+        int n;
+
+        sb.append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(',');
+            if (depth < 3 && random.nextBoolean()) {
+                sum += appendList(sb, random, depth + 1);
+            } else {
+                n = random.nextInt(1000);
+                sb.append(n);
+                sum += n;
+            }
+        }
+        sb.append(']');
+
+        return sum;
+    }
+}
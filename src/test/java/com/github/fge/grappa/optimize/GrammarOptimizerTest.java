@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.optimize;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.collect.Lists;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class GrammarOptimizerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule root()
+        {
+            return sequence(spacing(),
+                join(token()).using(whitespace()).min(0), spacing(), EOI);
+        }
+
+        Rule token()
+        {
+            return firstOf(
+                sequence(keyword(), push(match())),
+                sequence(comment(), push("comment")),
+                sequence('a', 'b', '!', push(match())),
+                sequence(identifier(), push(match())),
+                sequence(number(), push(match())),
+                firstOf(sequence(operator(), push(match())),
+                    sequence(bracket(), push(match())))
+            );
+        }
+
+        /*
+         * "do" is a prefix of "double", which comes after it: these two cannot
+         * be in the same trie
+         */
+        Rule keyword()
+        {
+            return sequence(firstOf(kwDo(), kwDouble(),
+                firstOf(kwIf(), kwElse()), kwWhile()), testNot(identChar()));
+        }
+
+        Rule kwDo()
+        {
+            return string("do");
+        }
+
+        Rule kwDouble()
+        {
+            return string("double");
+        }
+
+        Rule kwIf()
+        {
+            return string("if");
+        }
+
+        Rule kwElse()
+        {
+            return string("else");
+        }
+
+        Rule kwWhile()
+        {
+            return string("while");
+        }
+
+        Rule identChar()
+        {
+            return firstOf(charRange('a', 'z'), charRange('A', 'Z'), '_',
+                charRange('0', '9'));
+        }
+
+        Rule identifier()
+        {
+            return sequence(firstOf(charRange('a', 'z'), '_'),
+                zeroOrMore(identChar()));
+        }
+
+        Rule number()
+        {
+            return sequence(optional('-'), oneOrMore(digit()),
+                optional(sequence('.', oneOrMore(digit()))));
+        }
+
+        Rule comment()
+        {
+            return sequence(sequence('/', '*',
+                zeroOrMore(sequence(testNot(sequence('*', '/')), ANY))),
+                '*', '/');
+        }
+
+        Rule operator()
+        {
+            return firstOf(sequence('<', '='), sequence('>', '='),
+                sequence('=', '='), '<', '>', '=');
+        }
+
+        Rule bracket()
+        {
+            return firstOf(firstOf('(', ')'), firstOf('[', ']'),
+                anyOf("{}"));
+        }
+
+        Rule spacing()
+        {
+            return zeroOrMore(anyOf(" \t\n"));
+        }
+
+        Rule whitespace()
+        {
+            return oneOrMore(anyOf(" \t\n"));
+        }
+    }
+
+    private OptimizationReport report;
+
+    @BeforeClass
+    public void optimize()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        report = GrammarOptimizer.optimize(parser.root());
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "" });
+        list.add(new Object[] { "if else while do" });
+        list.add(new Object[] { "double doubles dot" });
+        list.add(new Object[] { "ab! ab abc" });
+        list.add(new Object[] { "/* a comment */ x_1 /* unterminated" });
+        list.add(new Object[] { "-12.5 <= 3 == x < y >= z = 2" });
+        list.add(new Object[] { "( [ ] ) {}" });
+        list.add(new Object[] { "1 + 2" });
+        list.add(new Object[] { "elsewhere while_ /**/" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void optimizedGrammarGivesTheSameResults(final String input)
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ParsingResult<Object> expected
+            = new ListeningParseRunner<>(parser.root()).run(input);
+        final ParsingResult<Object> actual
+            = new ListeningParseRunner<>(report.getRule()).run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void allOptimizationsAreApplied()
+    {
+        for (final Optimization optimization: Optimization.values())
+            assertThat(report.getCount(optimization)).as(optimization.name())
+                .isGreaterThan(0);
+
+        assertThat(report.getChanges()).hasSize(report.getTotalCount());
+    }
+
+    @Test
+    public void labelsOfReplacedRulesAreKept()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final Matcher identChar = (Matcher) GrammarOptimizer
+            .optimize(parser.identChar()).getRule();
+
+        assertThat(identChar).isInstanceOf(AnyOfMatcher.class);
+        assertThat(identChar.getLabel()).isEqualTo("identChar");
+    }
+
+    @Test
+    public void matchersBeforeActionsAreKept()
+    {
+        final ParsingResult<Object> result
+            = new ListeningParseRunner<>(report.getRule()).run("ab!");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getTopStackValue()).isEqualTo("!");
+    }
+}
@@ -18,6 +18,7 @@ package com.github.fge.grappa.parsers;
 
 import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
 import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.buffers.RegionMatchingInputBuffer;
 import com.github.fge.grappa.support.Chars;
 import com.github.fge.grappa.support.Position;
 import org.testng.annotations.DataProvider;
@@ -34,7 +35,7 @@ import static org.testng.Assert.assertEquals;
 public final class CharSequenceInputBufferTest
 {
     private static final String UNICODE_STRING = "abf\uD800zdji\uD800\uDD41";
-    private static final InputBuffer UNICODE_BUFFER
+    private static final RegionMatchingInputBuffer UNICODE_BUFFER
         = new CharSequenceInputBuffer(UNICODE_STRING);
 
     @Test
@@ -133,4 +134,48 @@ public final class CharSequenceInputBufferTest
             assertThat(e).hasMessage("index is negative");
         }
     }
+
+    @DataProvider
+    public Iterator<Object[]> regionMatchesData()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { 0, "abc", false, true });
+        list.add(new Object[] { 0, "ABC", false, false });
+        list.add(new Object[] { 0, "ABC", true, true });
+        list.add(new Object[] { 5, "fgh", false, true });
+        list.add(new Object[] { 6, "ghi", false, false });
+        list.add(new Object[] { 8, "", false, true });
+        list.add(new Object[] { 9, "a", false, false });
+        list.add(new Object[] { 2, new StringBuilder("cDe"), true, true });
+        list.add(new Object[] { 2, new StringBuilder("cDe"), false, false });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "regionMatchesData")
+    public void regionMatchesWorks(final int index, final CharSequence needle,
+        final boolean ignoreCase, final boolean expected)
+    {
+        final RegionMatchingInputBuffer buf
+            = new CharSequenceInputBuffer("abcdefgh");
+        final RegionMatchingInputBuffer buf2
+            = new CharSequenceInputBuffer(new StringBuilder("abcdefgh"));
+
+        assertThat(buf.regionMatches(index, needle, ignoreCase))
+            .isEqualTo(expected);
+        assertThat(buf2.regionMatches(index, needle, ignoreCase))
+            .isEqualTo(expected);
+    }
+
+    @Test
+    public void regionMatchesThrowsIAEOnNegativeIndex()
+    {
+        try {
+            UNICODE_BUFFER.regionMatches(-1, "a", false);
+            shouldHaveThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessage("index is negative");
+        }
+    }
 }
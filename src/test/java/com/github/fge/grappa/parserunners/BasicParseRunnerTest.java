@@ -18,11 +18,18 @@ package com.github.fge.grappa.parserunners;
 
 import com.github.fge.grappa.parsers.BaseParser;
 import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.BasicParseRunner;
 import com.github.fge.grappa.run.ListeningParseRunner;
 import com.github.fge.grappa.run.ParseRunner;
 import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.Iterator;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public final class BasicParseRunnerTest
@@ -34,6 +41,14 @@ public final class BasicParseRunnerTest
         {
             return oneOrMore('a');
         }
+
+        Rule values()
+        {
+            return sequence(oneOrMore(firstOf(
+                sequence(oneOrMore(digit()), push(match())),
+                sequence(test('a'), oneOrMore('a'), push(match()))
+            ), optional(',')), EOI);
+        }
     }
 
     private final SimpleParser parser
@@ -46,5 +61,33 @@ public final class BasicParseRunnerTest
     {
         assertThat(runner.run("bbb").isSuccess()).as("errors are reported")
             .isFalse();
+        assertThat(new BasicParseRunner<>(parser.rule()).run("bbb")
+            .isSuccess()).as("errors are reported").isFalse();
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "" });
+        list.add(new Object[] { "12" });
+        list.add(new Object[] { "aa,1,a" });
+        list.add(new Object[] { "aa,b" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void runnersWithoutListenersGiveTheSameResults(final String input)
+    {
+        final ParsingResult<Object> expected
+            = new BasicParseRunner<>(parser.values()).run(input);
+        final ParsingResult<Object> actual
+            = new ListeningParseRunner<>(parser.values()).run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
     }
 }
@@ -17,12 +17,14 @@
 package com.github.fge.grappa.run;
 
 import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.run.events.MatchFailureEvent;
 import com.github.fge.grappa.run.events.MatchSuccessEvent;
 import com.github.fge.grappa.run.events.PostParseEvent;
 import com.github.fge.grappa.run.events.PreMatchEvent;
 import com.github.fge.grappa.run.events.PreParseEvent;
+import com.google.common.eventbus.Subscribe;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import com.github.fge.grappa.run.context.MatcherContext;
@@ -30,12 +32,15 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public final class EventBasedParseRunnerTest
@@ -134,4 +139,96 @@ public final class EventBasedParseRunnerTest
         assertThat(preMatch.getValue().getContext()).isSameAs(context);
         assertThat(postMatch.getValue().getContext()).isSameAs(context);
     }
+
+    @Test
+    public void ownSubscribersOfListenersAreStillCalled()
+    {
+        final SubscribingListener subscribing = new SubscribingListener();
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(matcher);
+
+        runner.registerListener(subscribing);
+
+        when(context.getMatcher()).thenReturn(matcher);
+        when(matcher.match(context)).thenReturn(true);
+
+        assertThat(runner.match(context)).isTrue();
+        assertThat(subscribing.preMatches).isEqualTo(1);
+        assertThat(subscribing.subscribed).isEqualTo(1);
+    }
+
+    @Test
+    public void listenerErrorsAreReported()
+    {
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(matcher);
+
+        runner.registerListener(new ParseRunnerListener<Object>()
+        {
+            @Override
+            public void beforeMatch(final PreMatchEvent<Object> event)
+            {
+                throw new IllegalStateException();
+            }
+        });
+
+        when(context.getMatcher()).thenReturn(matcher);
+
+        try {
+            runner.match(context);
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getCause())
+                .isExactlyInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void listenerErrorsDoNotStopOtherListeners()
+    {
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(matcher);
+        final ParseRunnerListener<Object> other
+            = spy(new ParseRunnerListener<>());
+
+        runner.registerListener(new ParseRunnerListener<Object>()
+        {
+            @Override
+            public void beforeMatch(final PreMatchEvent<Object> event)
+            {
+                throw new AssertionError();
+            }
+        });
+        runner.registerListener(other);
+
+        when(context.getMatcher()).thenReturn(matcher);
+
+        try {
+            runner.match(context);
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getCause()).isExactlyInstanceOf(AssertionError.class);
+        }
+
+        verify(other).beforeMatch(any(PreMatchEvent.class));
+    }
+
+    private static final class SubscribingListener
+        extends ParseRunnerListener<Object>
+    {
+        private int preMatches = 0;
+        private int subscribed = 0;
+
+        @Override
+        public void beforeMatch(final PreMatchEvent<Object> event)
+        {
+            preMatches++;
+        }
+
+        @Subscribe
+        public void onPreMatch(final PreMatchEvent<Object> event)
+        {
+            subscribed++;
+        }
+    }
 }
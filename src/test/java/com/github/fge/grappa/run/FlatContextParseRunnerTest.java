@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class FlatContextParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule root()
+        {
+            return sequence(value(), EOI);
+        }
+
+        Rule value()
+        {
+            return firstOf(
+                sequence('(', value(), ')', push("parens")),
+                sequence(test(digit(), digit()), oneOrMore(digit()),
+                    push(match())),
+                sequence(testNot(digit()), oneOrMore(charRange('a', 'z')),
+                    push(match()), push(inPredicate())),
+                sequence(test(sequence(digit(), inPredicate())), digit(),
+                    push(match()))
+            );
+        }
+
+        Rule failing()
+        {
+            return sequence('x', failingAction());
+        }
+
+        boolean failingAction()
+        {
+            throw new IllegalStateException("oops");
+        }
+    }
+
+    private final TestParser parser = Grappa.createParser(TestParser.class);
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "" });
+        list.add(new Object[] { "12" });
+        list.add(new Object[] { "3" });
+        list.add(new Object[] { "abc" });
+        list.add(new Object[] { "((1))" });
+        list.add(new Object[] { "((1)" });
+        list.add(new Object[] { "(a1)" });
+        list.add(new Object[] { Strings.repeat("(", 200) + "42"
+            + Strings.repeat(")", 200) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void flatContextRunnerGivesTheSameResults(final String input)
+    {
+        final ParsingResult<Object> expected
+            = new ListeningParseRunner<>(parser.root()).run(input);
+        final ParsingResult<Object> actual
+            = new FlatContextParseRunner<>(parser.root()).run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void exceptionsInActionsAreReportedWithThePath()
+    {
+        final ParseRunner<Object> runner
+            = new FlatContextParseRunner<>(parser.failing());
+
+        try {
+            runner.run("x");
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getMessage()).startsWith("exception thrown when "
+                + "parsing action 'failing/");
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Var;
+import com.github.fge.grappa.stack.ArrayValueStack;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MemoizingParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Integer>
+    {
+        int count = 0;
+
+        Rule root()
+        {
+            return sequence(expr(), zeroOrMore(increment()), EOI);
+        }
+
+        Rule expr()
+        {
+            return firstOf(
+                sequence(term(), '+', expr(), push(pop() + pop())),
+                sequence(term(), '-', expr(), push(-pop() + pop())),
+                sequence(test(term(), '*'), term(), '*', expr(),
+                    push(pop() * pop())),
+                term()
+            );
+        }
+
+        Rule sum()
+        {
+            return sequence(firstOf(
+                sequence(digits(), '+', digits()),
+                sequence(digits(), '-', digits()),
+                digits()
+            ), EOI);
+        }
+
+        Rule digits()
+        {
+            return oneOrMore(charRange('0', '9'));
+        }
+
+        Rule counted()
+        {
+            return firstOf(
+                sequence(counter(), '+', counter()),
+                sequence(counter(), '-', counter())
+            );
+        }
+
+        Rule counter()
+        {
+            return sequence(digits(), ACTION(countMatch()));
+        }
+
+        boolean countMatch()
+        {
+            count++;
+            return true;
+        }
+
+        Rule withVar()
+        {
+            final Var<String> var = new Var<>();
+            return firstOf(
+                sequence(digits(), var.set(match()), '+'),
+                sequence(digits(), var.set(match()), push(var.get().length()))
+            );
+        }
+
+        Rule term()
+        {
+            return sequence(oneOrMore(charRange('0', '9')),
+                push(Integer.parseInt(match())));
+        }
+
+        /*
+         * Not memoized: it reads a value which was on the stack before it
+         * started
+         */
+        Rule increment()
+        {
+            return sequence('!', push(pop() + 1));
+        }
+    }
+
+    private static final Supplier<ValueStack<Integer>> ARRAY_STACK
+        = new Supplier<ValueStack<Integer>>()
+    {
+        @Override
+        public ValueStack<Integer> get()
+        {
+            return new ArrayValueStack<>();
+        }
+    };
+
+    private final TestParser parser = Grappa.createParser(TestParser.class);
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "1" });
+        list.add(new Object[] { "1+2" });
+        list.add(new Object[] { "12-3-4" });
+        list.add(new Object[] { "2*3+4" });
+        list.add(new Object[] { "2*3+4!!" });
+        list.add(new Object[] { "1+2-3*4+5!" });
+        list.add(new Object[] { "1+" });
+        list.add(new Object[] { "a" });
+        list.add(new Object[] { "" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void memoizingRunnerGivesTheSameResults(final String input)
+    {
+        final ParsingResult<Integer> expected
+            = new ListeningParseRunner<Integer>(parser.root()).run(input);
+
+        final List<ParseRunner<Integer>> runners
+            = ImmutableList.<ParseRunner<Integer>>of(
+            new MemoizingParseRunner<Integer>(parser.root()),
+            new MemoizingParseRunner<>(parser.root(), ARRAY_STACK),
+            new MemoizingParseRunner<Integer>(parser.root(),
+                ImmutableList.of(parser.term()), 1)
+        );
+
+        ParsingResult<Integer> actual;
+
+        for (final ParseRunner<Integer> runner: runners) {
+            actual = runner.run(input);
+            assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+            assertThat(actual.getValueStack())
+                .containsExactlyElementsOf(expected.getValueStack());
+        }
+    }
+
+    @Test
+    public void rematchesAreReplayed()
+    {
+        final MemoizingParseRunner<Integer> runner
+            = new MemoizingParseRunner<>(parser.root(),
+            ImmutableList.of(parser.term()),
+            MemoizingParseRunner.DEFAULT_MAX_ENTRIES);
+
+        final ParsingResult<Integer> result = runner.run("12-3");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly(9);
+        /*
+         * term() at index 0 is replayed by the second alternative of expr();
+         * term() at index 3 is replayed by the second and last alternatives of
+         * the nested expr() (the predicate of the third one is not memoized)
+         */
+        assertThat(runner.getMemoHits()).isEqualTo(3);
+
+        runner.run("12-3");
+        assertThat(runner.getMemoHits()).as("memo table is reset between runs")
+            .isEqualTo(3);
+    }
+
+    @Test
+    public void rulesWithoutActionsAreMemoizedByDefault()
+    {
+        final MemoizingParseRunner<Integer> runner
+            = new MemoizingParseRunner<>(parser.sum());
+
+        assertThat(runner.run("12-3").isSuccess()).isTrue();
+        // digits() at index 0 is replayed by the second alternative
+        assertThat(runner.getMemoHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void rulesWithActionsAreNotMemoizedByDefault()
+    {
+        final Rule rule = parser.counted();
+
+        new ListeningParseRunner<Integer>(rule).run("12-3");
+        final int expected = parser.count;
+
+        parser.count = 0;
+        new MemoizingParseRunner<Integer>(rule).run("12-3");
+
+        // counter() would be replayed, and its action skipped, were it memoized
+        assertThat(parser.count).isEqualTo(expected).isEqualTo(3);
+    }
+
+    @Test
+    public void rulesWithVarsAreNotMemoizedByDefault()
+    {
+        final MemoizingParseRunner<Integer> runner
+            = new MemoizingParseRunner<>(parser.withVar());
+
+        final ParsingResult<Integer> result = runner.run("123");
+
+        assertThat(result.getValueStack()).containsExactly(3);
+        // Only digits() is memoized
+        assertThat(runner.getMemoHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void onlySelectedRulesAreMemoized()
+    {
+        final MemoizingParseRunner<Integer> runner
+            = new MemoizingParseRunner<>(parser.root(),
+            ImmutableList.of(parser.expr()),
+            MemoizingParseRunner.DEFAULT_MAX_ENTRIES);
+
+        runner.run("12-3");
+
+        assertThat(runner.getMemoHits()).isEqualTo(0);
+        assertThat(runner.getMemoMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void rulesReadingThePreviousStackAreNotMemoized()
+    {
+        final MemoizingParseRunner<Integer> runner
+            = new MemoizingParseRunner<>(parser.root(),
+            ImmutableList.of(parser.increment()),
+            MemoizingParseRunner.DEFAULT_MAX_ENTRIES);
+
+        final ParsingResult<Integer> result = runner.run("1!!");
+
+        assertThat(result.getValueStack()).containsExactly(3);
+        assertThat(runner.getMemoHits()).isEqualTo(0);
+        /*
+         * Two successful matches, plus a failed one at the end of input, which
+         * is the only one recorded
+         */
+        assertThat(runner.getMemoMisses()).isEqualTo(3);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void maxEntriesMustBePositive()
+    {
+        new MemoizingParseRunner<Integer>(parser.root(),
+            ImmutableList.<Rule>of(), 0);
+    }
+}
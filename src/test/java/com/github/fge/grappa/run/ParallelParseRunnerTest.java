@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.MappedFileInputBuffer;
+import com.github.fge.grappa.buffers.StreamingInputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.IndexRange;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class ParallelParseRunnerTest
+{
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    static class CsvParser
+        extends BaseParser<String>
+    {
+        final AtomicInteger slowActions = new AtomicInteger();
+
+        Rule line()
+        {
+            return sequence(field(), zeroOrMore(',', field()), '\n');
+        }
+
+        Rule crlfLine()
+        {
+            return sequence(field(), zeroOrMore(',', field()), lineEnd());
+        }
+
+        Rule lineEnd()
+        {
+            return string("\r\n");
+        }
+
+        Rule field()
+        {
+            return firstOf(
+                sequence('"', zeroOrMore(noneOf("\"")), push(match()), '"'),
+                sequence(zeroOrMore(noneOf(",\r\n")), push(match()))
+            );
+        }
+
+        Rule maybeX()
+        {
+            return optional('x');
+        }
+
+        Rule slowLine()
+        {
+            return sequence(line(), ACTION(slowAction()));
+        }
+
+        boolean slowAction()
+        {
+            slowActions.incrementAndGet();
+            try {
+                TimeUnit.MILLISECONDS.sleep(1L);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+    }
+
+    private final CsvParser parser = Grappa.createParser(CsvParser.class);
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public void shutdownPool()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void delimitedRecordsAreMergedInOrder()
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int nrRecords = 1000;
+
+        for (int i = 0; i < nrRecords; i++)
+            sb.append(i).append(",record,").append(i * 2).append('\n');
+
+        final String input = sb.toString();
+        final ParallelParseRunner<String> runner = new ParallelParseRunner<>(
+            parser.line(), '\n', null, pool, MIN_CHUNK_SIZE);
+
+        final ParsingResult<String> result = runner.run(input);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(runner.getRecordCount()).isEqualTo(nrRecords);
+        assertThat(values(result)).isEqualTo(sequentialValues(input));
+    }
+
+    @Test
+    public void recordsCrossingChunksAreParsedAgain()
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int nrRecords = 500;
+
+        for (int i = 0; i < nrRecords; i++)
+            sb.append(i).append(",\"quoted\nover\nlines\",x\n");
+
+        final String input = sb.toString();
+        final ParallelParseRunner<String> runner = new ParallelParseRunner<>(
+            parser.line(), '\n', null, pool, MIN_CHUNK_SIZE);
+
+        final ParsingResult<String> result = runner.run(input);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(runner.getRecordCount()).isEqualTo(nrRecords);
+        assertThat(values(result)).isEqualTo(sequentialValues(input));
+    }
+
+    @Test
+    public void mappedFilesCanBeParsedInParallel()
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int nrRecords = 2000;
+
+        for (int i = 0; i < nrRecords; i++)
+            sb.append(i).append(",h\u00e9llo \u65e5\u672c\u8a9e ")
+                .append("\ud83d\ude00,\"qu\u00f6ted\n\u00ef\"\n");
+
+        final String input = sb.toString();
+        final Path path = Files.createTempFile("grappa", ".csv");
+
+        try {
+            Files.write(path, input.getBytes(StandardCharsets.UTF_8));
+            final ParallelParseRunner<String> runner
+                = new ParallelParseRunner<>(parser.line(), '\n', null, pool,
+                MIN_CHUNK_SIZE);
+
+            for (int i = 0; i < 10; i++) {
+                final ParsingResult<String> result = runner.run(
+                    new MappedFileInputBuffer(path, StandardCharsets.UTF_8));
+                assertThat(result.isSuccess()).isTrue();
+                assertThat(values(result))
+                    .isEqualTo(sequentialValues(input));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void streamingInputBuffersAreRejected()
+    {
+        new ParallelParseRunner<String>(parser.line(), '\n', pool)
+            .run(new StreamingInputBuffer(new StringReader("a\n")));
+    }
+
+    @Test
+    public void recordsCanBeSplitWithABoundaryRule()
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int nrRecords = 1000;
+
+        for (int i = 0; i < nrRecords; i++)
+            sb.append(i).append(",a\rb\r\n");
+
+        final ParallelParseRunner<String> runner = new ParallelParseRunner<>(
+            parser.crlfLine(), '\0', parser.lineEnd(), pool, MIN_CHUNK_SIZE);
+
+        final ParsingResult<String> result = runner.run(sb.toString());
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(runner.getRecordCount()).isEqualTo(0);
+
+        final String input = sb.toString().replace("\rb", "b");
+
+        assertThat(runner.run(input).isSuccess()).isTrue();
+        assertThat(runner.getRecordCount()).isEqualTo(nrRecords);
+
+        final List<String> values = values(runner.run(input));
+        assertThat(values).hasSize(2 * nrRecords);
+        assertThat(values.subList(2 * nrRecords - 2, 2 * nrRecords))
+            .containsExactly(String.valueOf(nrRecords - 1), "ab");
+    }
+
+    @Test
+    public void parsingStopsAtTheFirstFailingRecord()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 500; i++)
+            sb.append(i).append(",record\n");
+        sb.append("\"quoted\"junk,record\n");
+        for (int i = 0; i < 500; i++)
+            sb.append(i).append(",record\n");
+
+        final ParallelParseRunner<String> runner = new ParallelParseRunner<>(
+            parser.line(), '\n', null, pool, MIN_CHUNK_SIZE);
+
+        final ParsingResult<String> result = runner.run(sb.toString());
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(runner.getRecordCount()).isEqualTo(500);
+        assertThat(values(result)).hasSize(1000);
+
+        assertThat(runner.run("").isSuccess()).isTrue();
+        assertThat(runner.getRecordCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void noActionRunsOnceParsingHasStopped()
+        throws InterruptedException
+    {
+        final StringBuilder sb = new StringBuilder("\"quoted\"junk,record\n");
+        final int nrRecords = 2000;
+
+        for (int i = 0; i < nrRecords; i++)
+            sb.append(i).append(",record\n");
+
+        final ParallelParseRunner<String> runner = new ParallelParseRunner<>(
+            parser.slowLine(), '\n', null, pool, MIN_CHUNK_SIZE);
+
+        parser.slowActions.set(0);
+        assertThat(runner.run(sb.toString()).isSuccess()).isFalse();
+
+        final int actions = parser.slowActions.get();
+        assertThat(actions).as("discarded chunks stop between records")
+            .isLessThan(nrRecords / 2);
+
+        TimeUnit.MILLISECONDS.sleep(50L);
+        assertThat(parser.slowActions.get()).isEqualTo(actions);
+    }
+
+    @Test
+    public void recordsMustNotBeEmpty()
+    {
+        final ParallelParseRunner<String> runner = new ParallelParseRunner<>(
+            parser.maybeX(), 'x', null, pool, MIN_CHUNK_SIZE);
+
+        try {
+            runner.run("xxy");
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getMessage()).contains("matched no input");
+        }
+    }
+
+    private static List<String> values(final ParsingResult<String> result)
+    {
+        return Lists.reverse(Lists.newArrayList(result.getValueStack()));
+    }
+
+    private List<String> sequentialValues(final String input)
+    {
+        final List<String> ret = Lists.newArrayList();
+        final RecordParseRunner<String> runner = new RecordParseRunner<>(
+            parser.line(), new RecordHandler<String>()
+            {
+                @Override
+                public void handleRecord(final ValueStack<String> values,
+                    final IndexRange range)
+                {
+                    ret.addAll(Lists.reverse(ImmutableList.copyOf(values)));
+                }
+            });
+
+        assertThat(runner.run(input).isSuccess()).isTrue();
+        return ret;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.StreamingInputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.IndexRange;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class RecordParseRunnerTest
+{
+    static class CsvParser
+        extends BaseParser<String>
+    {
+        Rule line()
+        {
+            return sequence(field(), zeroOrMore(',', field()), '\n');
+        }
+
+        Rule field()
+        {
+            return sequence(zeroOrMore(noneOf(",\n")), push(match()));
+        }
+
+        Rule maybeX()
+        {
+            return optional('x');
+        }
+    }
+
+    private static final class CollectingHandler
+        implements RecordHandler<String>
+    {
+        private final List<List<String>> records = Lists.newArrayList();
+        private final List<IndexRange> ranges = Lists.newArrayList();
+
+        @Override
+        public void handleRecord(final ValueStack<String> values,
+            final IndexRange range)
+        {
+            records.add(Lists.reverse(ImmutableList.copyOf(values)));
+            ranges.add(range);
+        }
+    }
+
+    private final CsvParser parser = Grappa.createParser(CsvParser.class);
+
+    @Test
+    public void recordsAreHandledOneByOne()
+    {
+        final CollectingHandler handler = new CollectingHandler();
+        final RecordParseRunner<String> runner
+            = new RecordParseRunner<>(parser.line(), handler);
+
+        final ParsingResult<String> result = runner.run("a,b\n,c,\nd\n");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack().isEmpty()).isTrue();
+        assertThat(runner.getRecordCount()).isEqualTo(3);
+        assertThat(handler.records).containsExactly(
+            ImmutableList.of("a", "b"), ImmutableList.of("", "c", ""),
+            ImmutableList.of("d"));
+        assertThat(handler.ranges).containsExactly(new IndexRange(0, 4),
+            new IndexRange(4, 8), new IndexRange(8, 10));
+    }
+
+    @Test
+    public void parsingStopsAtTheFirstFailingRecord()
+    {
+        final CollectingHandler handler = new CollectingHandler();
+        final RecordParseRunner<String> runner
+            = new RecordParseRunner<>(parser.line(), handler);
+
+        final ParsingResult<String> result = runner.run("a\nb,c");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(runner.getRecordCount()).isEqualTo(1);
+        assertThat(handler.records)
+            .containsExactly(ImmutableList.of("a"));
+
+        assertThat(runner.run("").isSuccess()).isTrue();
+        assertThat(runner.getRecordCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void recordsMustNotBeEmpty()
+    {
+        final RecordParseRunner<String> runner = new RecordParseRunner<>(
+            parser.maybeX(), new CollectingHandler());
+
+        try {
+            runner.run("xxy");
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getMessage()).contains("matched no input");
+        }
+    }
+
+    @Test
+    public void streamingInputIsCommittedAfterEachRecord()
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int nrRecords = 5000;
+
+        for (int i = 0; i < nrRecords; i++)
+            sb.append(i).append(",record\n");
+
+        final StreamingInputBuffer buffer
+            = new StreamingInputBuffer(new StringReader(sb.toString()));
+        final CollectingHandler handler = new CollectingHandler();
+        final RecordParseRunner<String> runner
+            = new RecordParseRunner<>(parser.line(), handler);
+
+        assertThat(runner.run(buffer).isSuccess()).isTrue();
+        assertThat(handler.records).hasSize(nrRecords);
+        assertThat(handler.records.get(nrRecords - 1))
+            .containsExactly(String.valueOf(nrRecords - 1), "record");
+
+        try {
+            buffer.charAt(0);
+            fail("No exception thrown!");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.compiled;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.CompiledParseRunner;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class GrammarCompilerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        Rule root()
+        {
+            return sequence(spacing(), value(), spacing(), EOI);
+        }
+
+        Rule value()
+        {
+            return firstOf(
+                sequence(number(), push(match())),
+                sequence(string(), push(match())),
+                sequence(keyword(), push(match())),
+                sequence(parens(), push("parens")),
+                sequence(hex(), push(match())),
+                array()
+            );
+        }
+
+        Rule array()
+        {
+            return sequence('[', spacing(),
+                optional(value(), spacing(),
+                    zeroOrMore(',', spacing(), value(), spacing())),
+                ']', push("array"));
+        }
+
+        Rule number()
+        {
+            return sequence(
+                optional('-'),
+                firstOf('0', sequence(charRange('1', '9'), zeroOrMore(digit()))),
+                optional('.', oneOrMore(digit())),
+                optional(ignoreCase('e'), optional(anyOf("+-")),
+                    oneOrMore(digit()))
+            );
+        }
+
+        Rule string()
+        {
+            return sequence('"',
+                zeroOrMore(firstOf(sequence('\\', ANY), noneOf("\"\\"))), '"');
+        }
+
+        Rule keyword()
+        {
+            return sequence(firstOf(ignoreCase("true"), "false", "null"),
+                testNot(charRange('a', 'z')));
+        }
+
+        Rule parens()
+        {
+            return sequence('(', zeroOrMore(parens()), ')');
+        }
+
+        Rule hex()
+        {
+            return sequence(test('#'), '#',
+                repeat(firstOf(digit(), charRange('a', 'f'))).times(2, 4),
+                EMPTY);
+        }
+
+        Rule spacing()
+        {
+            return zeroOrMore(anyOf(" \t\n"));
+        }
+
+        Rule pureRoot()
+        {
+            return sequence(zeroOrMore(firstOf(number(), string(), parens(),
+                ' ', NOTHING)), EOI);
+        }
+
+        Rule emptyCycles()
+        {
+            return sequence('a', zeroOrMore(firstOf('b', EMPTY)));
+        }
+    }
+
+    private final TestParser parser = Grappa.createParser(TestParser.class);
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "0" });
+        list.add(new Object[] { "  -12.5e+3 " });
+        list.add(new Object[] { "01" });
+        list.add(new Object[] { "\"hello\\\" world\"" });
+        list.add(new Object[] { "\"unterminated" });
+        list.add(new Object[] { "TRUE" });
+        list.add(new Object[] { "trueish" });
+        list.add(new Object[] { "(()(()))" });
+        list.add(new Object[] { "(()" });
+        list.add(new Object[] { "#0a" });
+        list.add(new Object[] { "#0abcd" });
+        list.add(new Object[] { "#0abcde" });
+        list.add(new Object[] { "[1, \"a\", [null, (())], #ff ]" });
+        list.add(new Object[] { "[1,]" });
+        list.add(new Object[] { "" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void compiledRunnerGivesTheSameResults(final String input)
+    {
+        ParseRunner<Object> runner;
+
+        runner = new ListeningParseRunner<>(parser.root());
+        final ParsingResult<Object> expected = runner.run(input);
+
+        runner = new CompiledParseRunner<>(parser.root());
+        final ParsingResult<Object> actual = runner.run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void compiledPureGrammarGivesTheSameResults(final String input)
+    {
+        final Rule rule = parser.pureRoot();
+        final boolean expected
+            = new ListeningParseRunner<>(rule).run(input).isSuccess();
+        final CompiledGrammar grammar = GrammarCompiler.compile(rule);
+        final int entry = grammar.getEntry((Matcher) rule);
+
+        assertThat(entry).isNotEqualTo(-1);
+
+        final int endIndex = grammar.match(entry,
+            new CharSequenceInputBuffer(input), 0);
+
+        assertThat(endIndex != -1).isEqualTo(expected);
+        if (expected)
+            assertThat(endIndex).isEqualTo(input.length());
+    }
+
+    @Test
+    public void rulesWithActionsAreNotCompiled()
+    {
+        final CompiledGrammar grammar = GrammarCompiler.compile(parser.root());
+
+        assertThat(grammar.getEntry((Matcher) parser.root())).isEqualTo(-1);
+        assertThat(grammar.getEntry((Matcher) parser.array())).isEqualTo(-1);
+        assertThat(grammar.getEntry((Matcher) parser.number()))
+            .isNotEqualTo(-1);
+        assertThat(grammar.getEntry((Matcher) parser.spacing()))
+            .isNotEqualTo(-1);
+    }
+
+    @Test(expectedExceptions = GrappaException.class)
+    public void emptyCyclesAreDetected()
+    {
+        new CompiledParseRunner<>(parser.emptyCycles()).run("abc");
+    }
+}
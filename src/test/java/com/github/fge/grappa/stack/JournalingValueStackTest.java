@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+import org.assertj.core.api.SoftAssertions;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public final class JournalingValueStackTest
+    extends ValueStackTest
+{
+    @Override
+    protected ValueStack<Object> createStack()
+    {
+        return new JournalingValueStack<>();
+    }
+
+    @Test
+    public void allOperationsAreUndoneByRestore()
+    {
+        final ValueStack<Object> stack = createStack();
+        final SoftAssertions soft = new SoftAssertions();
+
+        stack.push(3);
+        stack.push(2);
+        stack.push(1);
+
+        final Object snapshot = stack.takeSnapshot();
+
+        stack.push(2, "inserted");
+        stack.pop(1);
+        stack.poke(1, "poked");
+        stack.dup();
+        stack.swap(3);
+        stack.clear();
+        stack.push("last");
+
+        stack.restoreSnapshot(snapshot);
+        soft.assertThat(stack).as("all modifications are undone")
+            .containsExactly(1, 2, 3);
+
+        stack.push(4);
+        soft.assertThat(stack).as("stack is usable after a restore")
+            .containsExactly(4, 1, 2, 3);
+
+        soft.assertAll();
+    }
+
+    @Test
+    public void nestedSnapshotsAreRestoredInOrder()
+    {
+        final ValueStack<Object> stack = createStack();
+        final SoftAssertions soft = new SoftAssertions();
+
+        stack.push(1);
+        final Object outer = stack.takeSnapshot();
+        stack.push(2);
+        final Object inner = stack.takeSnapshot();
+        stack.push(3);
+
+        stack.restoreSnapshot(inner);
+        soft.assertThat(stack).as("inner snapshot is restored")
+            .containsExactly(2, 1);
+
+        stack.restoreSnapshot(outer);
+        soft.assertThat(stack).as("outer snapshot is restored")
+            .containsExactly(1);
+
+        soft.assertAll();
+    }
+
+    @Test
+    public void snapshotWithoutModificationsIsReused()
+    {
+        final ValueStack<Object> stack = createStack();
+
+        stack.push(1);
+        final Object first = stack.takeSnapshot();
+        final Object second = stack.takeSnapshot();
+
+        assertThat(second).as("no new mark without modifications")
+            .isSameAs(first);
+    }
+
+    @Test
+    public void invalidatedSnapshotCannotBeRestored()
+    {
+        final ValueStack<Object> stack = createStack();
+
+        stack.push(1);
+        final Object outer = stack.takeSnapshot();
+        stack.push(2);
+        final Object inner = stack.takeSnapshot();
+
+        stack.restoreSnapshot(outer);
+        stack.push(3);
+        stack.push(4);
+
+        try {
+            stack.restoreSnapshot(inner);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void journalIsEmptiedWhenNoSnapshotIsOutstanding()
+    {
+        final JournalingValueStack<Object> stack = new JournalingValueStack<>();
+        final SoftAssertions soft = new SoftAssertions();
+
+        final Object outer = stack.takeSnapshot();
+        stack.push(1);
+        final Object inner = stack.takeSnapshot();
+        stack.push(2);
+        stack.pop();
+        stack.poke("poked");
+
+        stack.releaseSnapshot(inner);
+        soft.assertThat(stack.getJournalSize())
+            .as("journal is kept while a snapshot is outstanding")
+            .isEqualTo(4);
+
+        stack.releaseSnapshot(outer);
+        soft.assertThat(stack.getJournalSize())
+            .as("journal is emptied when the last snapshot is released")
+            .isEqualTo(0);
+        soft.assertThat(stack).as("stack is not modified")
+            .containsExactly("poked");
+
+        for (int i = 0; i < 1000; i++) {
+            final Object snapshot = stack.takeSnapshot();
+            stack.push(i);
+            stack.pop();
+            stack.releaseSnapshot(snapshot);
+        }
+        soft.assertThat(stack.getJournalSize())
+            .as("journal does not grow across released snapshots")
+            .isEqualTo(0);
+
+        soft.assertAll();
+    }
+
+    @Test
+    public void snapshotTakenBeforeJournalIsEmptiedIsInvalid()
+    {
+        final ValueStack<Object> stack = createStack();
+
+        final Object first = stack.takeSnapshot();
+        stack.releaseSnapshot(first);
+        final Object second = stack.takeSnapshot();
+        stack.push(1);
+        stack.releaseSnapshot(second);
+
+        try {
+            stack.restoreSnapshot(first);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void snapshotFromAnotherStackIsRejected()
+    {
+        final ValueStack<Object> stack = createStack();
+        final Object snapshot = createStack().takeSnapshot();
+
+        try {
+            stack.restoreSnapshot(snapshot);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
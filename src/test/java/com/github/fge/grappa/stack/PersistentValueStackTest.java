@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2014 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.stack;
+
+import org.assertj.core.api.SoftAssertions;
+import org.testng.annotations.Test;
+
+public final class PersistentValueStackTest
+    extends ValueStackTest
+{
+    @Override
+    protected ValueStack<Object> createStack()
+    {
+        return new PersistentValueStack<>();
+    }
+
+    @Test
+    public void snapshotsCanBeRestoredInAnyOrder()
+    {
+        final ValueStack<Object> stack = createStack();
+        final SoftAssertions soft = new SoftAssertions();
+
+        stack.push(1);
+        final Object first = stack.takeSnapshot();
+        stack.push(2);
+        stack.swap();
+        final Object second = stack.takeSnapshot();
+
+        stack.restoreSnapshot(first);
+        soft.assertThat(stack).as("first snapshot is restored")
+            .containsExactly(1);
+
+        stack.restoreSnapshot(second);
+        soft.assertThat(stack).as("second snapshot is restored")
+            .containsExactly(1, 2);
+
+        stack.poke(1, 3);
+        stack.restoreSnapshot(second);
+        soft.assertThat(stack).as("snapshots are not affected by modifications")
+            .containsExactly(1, 2);
+
+        soft.assertAll();
+    }
+}
@@ -56,4 +56,42 @@ public class CharactersTest {
         assertEquals(Characters.of('A', 'B').remove(Characters.allBut('B', 'C')), Characters.of('B'));
         assertEquals(Characters.allBut('A', 'B').remove(Characters.allBut('B', 'C')), Characters.of('C'));
     }
+
+    @Test
+    public void testRanges() {
+        assertEquals(Characters.of("cba").toString(), "[a-c]");
+        assertEquals(Characters.of("dcbaxz").toString(), "[a-dxz]");
+        assertEquals(Characters.of("cba"), Characters.range('a', 'c'));
+        assertEquals(Characters.allBut("ba").toString(), "![ab]");
+
+        assertEquals(Characters.range('a', 'z').remove(Characters.range('b', 'y')), Characters.of("az"));
+        assertEquals(Characters.range('a', 'm').add(Characters.range('n', 'z')), Characters.range('a', 'z'));
+        assertEquals(Characters.range('\u0000', '\uffff'), Characters.ALL);
+        assertEquals(Characters.allButRange('\u0000', '\uffff'), Characters.NONE);
+        assertEquals(Characters.ALL.remove(Characters.range('a', 'z')), Characters.allButRange('a', 'z'));
+        assertEquals(Characters.allButRange('a', 'z').add('q').remove('!').toString(), "![!a-pr-z]");
+        assertEquals(Characters.range('a', 'z').getChars(), "abcdefghijklmnopqrstuvwxyz".toCharArray());
+    }
+
+    @Test
+    public void testContains() {
+        final Characters letters = Characters.range('a', 'z')
+            .add(Characters.range('A', 'Z'))
+            .add(Characters.range('\u0391', '\u03c9'));
+        final Characters others = Characters.ALL.remove(letters);
+
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            final char c = (char) i;
+            final boolean letter = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '\u0391' && c <= '\u03c9';
+            assertEquals(letters.contains(c), letter);
+            assertEquals(others.contains(c), !letter);
+        }
+
+        final Characters some = Characters.of("\"\\\n\u00e9\u20ac");
+        assertEquals(some.contains('"'), true);
+        assertEquals(some.contains('\u20ac'), true);
+        assertEquals(some.contains('\u00e8'), false);
+        assertEquals(Characters.allBut("\"\\\n").contains('\\'), false);
+        assertEquals(Characters.allBut("\"\\\n").contains('\u00e8'), true);
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ConcurrentTransformTest
+{
+    private static final int NR_THREADS = 8;
+
+    static class WordParser
+        extends BaseParser<Object>
+    {
+        Rule rule()
+        {
+            return sequence(oneOrMore(charRange('a', 'z')), push(match()));
+        }
+    }
+
+    static class NumberParser
+        extends BaseParser<Object>
+    {
+        Rule rule()
+        {
+            return sequence(oneOrMore(charRange('0', '9')),
+                push(Integer.parseInt(match())));
+        }
+    }
+
+    /*
+     * Same action code as WordParser, hence the same group class
+     */
+    static class OtherWordParser
+        extends BaseParser<Object>
+    {
+        Rule rule()
+        {
+            return sequence(oneOrMore(charRange('A', 'Z')), push(match()));
+        }
+    }
+
+    static class SharedParser
+        extends BaseParser<Object>
+    {
+        Rule rule()
+        {
+            return sequence('(', zeroOrMore(rule()), ')', push(match()));
+        }
+    }
+
+    @Test
+    public void parsersAreCreatedInParallel()
+    {
+        final List<BaseParser<?>> parsers = Grappa.createParsers(
+            WordParser.class, NumberParser.class, OtherWordParser.class);
+
+        assertThat(parsers).hasSize(3);
+
+        final WordParser words = (WordParser) parsers.get(0);
+        final NumberParser numbers = (NumberParser) parsers.get(1);
+        final OtherWordParser otherWords = (OtherWordParser) parsers.get(2);
+
+        ParsingResult<Object> result;
+
+        result = new ListeningParseRunner<>(words.rule()).run("foo");
+        assertThat(result.getTopStackValue()).isEqualTo("foo");
+
+        result = new ListeningParseRunner<>(numbers.rule()).run("42");
+        assertThat(result.getTopStackValue()).isEqualTo(42);
+
+        result = new ListeningParseRunner<>(otherWords.rule()).run("BAR");
+        assertThat(result.getTopStackValue()).isEqualTo("BAR");
+    }
+
+    @Test
+    public void parserClassIsTransformedOnlyOnce()
+        throws Exception
+    {
+        final ExecutorService executor
+            = Executors.newFixedThreadPool(NR_THREADS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<Future<Class<?>>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < NR_THREADS; i++)
+                futures.add(executor.submit(new Callable<Class<?>>()
+                {
+                    @Override
+                    public Class<?> call()
+                        throws Exception
+                    {
+                        latch.await();
+                        return ParserTransformer.transformParser(
+                            SharedParser.class);
+                    }
+                }));
+
+            latch.countDown();
+
+            final Set<Class<?>> classes = new HashSet<>();
+            for (final Future<Class<?>> future: futures)
+                classes.add(future.get());
+
+            assertThat(classes).hasSize(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void nonParserClassesAreRejected()
+    {
+        Grappa.createParsers(WordParser.class, String.class);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.support.Var;
+import com.github.fge.grappa.transform.generate.ActionClassGenerator;
+import com.github.fge.grappa.transform.process.CachingGenerator;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * The parser below has enough rule methods for them to be processed in
+ * parallel
+ */
+public final class ParallelProcessingTest
+{
+    static class BaseCalculator
+        extends BaseParser<Integer>
+    {
+        Rule number()
+        {
+            return sequence(oneOrMore(digit()),
+                push(Integer.parseInt(match())));
+        }
+    }
+
+    static class Calculator
+        extends BaseCalculator
+    {
+        Rule root()
+        {
+            return sequence(spacing(), expression(), EOI);
+        }
+
+        Rule expression()
+        {
+            return sequence(term(), zeroOrMore(firstOf(plus(), minus())));
+        }
+
+        Rule plus()
+        {
+            return sequence(plusSign(), term(), push(pop() + pop()));
+        }
+
+        Rule minus()
+        {
+            final Var<Integer> right = new Var<>();
+            return sequence(minusSign(), term(), right.set(pop()),
+                push(pop() - right.get()));
+        }
+
+        Rule term()
+        {
+            return sequence(factor(), zeroOrMore(firstOf(times(), divide())));
+        }
+
+        Rule times()
+        {
+            return sequence(timesSign(), factor(), push(pop() * pop()));
+        }
+
+        Rule divide()
+        {
+            final Var<Integer> right = new Var<>();
+            return sequence(divideSign(), factor(), right.set(pop()),
+                push(pop() / right.get()));
+        }
+
+        Rule factor()
+        {
+            return firstOf(negated(), number(), parens());
+        }
+
+        Rule negated()
+        {
+            return sequence(minusSign(), factor(), push(-pop()));
+        }
+
+        Rule parens()
+        {
+            return sequence(open(), expression(), close());
+        }
+
+        @Override
+        Rule number()
+        {
+            return sequence(super.number(), spacing());
+        }
+
+        Rule plusSign()
+        {
+            return sequence('+', spacing());
+        }
+
+        Rule minusSign()
+        {
+            return sequence('-', spacing());
+        }
+
+        Rule timesSign()
+        {
+            return sequence('*', spacing());
+        }
+
+        Rule divideSign()
+        {
+            return sequence('/', spacing());
+        }
+
+        Rule open()
+        {
+            return sequence('(', spacing());
+        }
+
+        Rule close()
+        {
+            return sequence(')', spacing());
+        }
+
+        Rule spacing()
+        {
+            return zeroOrMore(anyOf(" \t"));
+        }
+    }
+
+    private final Calculator parser = Grappa.createParser(Calculator.class);
+
+    @DataProvider
+    public Iterator<Object[]> getExpressions()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "42", 42 });
+        list.add(new Object[] { "1 + 2 * 3", 7 });
+        list.add(new Object[] { "(1 + 2) * 3", 9 });
+        list.add(new Object[] { "10 - 4 - 3", 3 });
+        list.add(new Object[] { "-8 / 2 / 2", -2 });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getExpressions")
+    public void parallelProcessedParserWorks(final String input,
+        final int expected)
+    {
+        final ParsingResult<Integer> result
+            = new ListeningParseRunner<Integer>(parser.root()).run(input);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getTopStackValue()).isEqualTo(expected);
+    }
+
+    @Test
+    public void processorTimesAreRecorded()
+    {
+        final ProcessorTimings timings = ParserTransformer.getProcessorTimings();
+
+        assertThat(timings.getTime(ActionClassGenerator.class,
+            TimeUnit.NANOSECONDS)).isGreaterThan(0L);
+        assertThat(timings.getTime(CachingGenerator.class,
+            TimeUnit.NANOSECONDS)).isGreaterThan(0L);
+    }
+}
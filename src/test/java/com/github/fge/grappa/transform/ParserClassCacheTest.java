@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.misc.AsmUtils;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.transform.hash.ParserClassHasher;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ParserClassCacheTest
+{
+    static class CachedParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(oneOrMore(charRange('0', '9')),
+                push(Integer.parseInt(match())), '+',
+                oneOrMore(charRange('0', '9')),
+                push((Integer) pop() + Integer.parseInt(match())));
+        }
+    }
+
+    private static final String PARSER_NAME = CachedParser.class.getName();
+    private static final String EXTENDED_NAME
+        = AsmUtils.getExtendedParserClassName(PARSER_NAME);
+    private static final String MARKER_FIELD = "$$cached";
+
+    private ParserClassCache previous;
+    private Path directory;
+    private ParserClassCache cache;
+
+    @BeforeMethod
+    public void setCache()
+        throws IOException
+    {
+        previous = ParserTransformer.getClassCache();
+        directory = Files.createTempDirectory("grappa-cache");
+        cache = new ParserClassCache(directory.resolve("cache"));
+        ParserTransformer.setClassCache(cache);
+    }
+
+    @AfterMethod
+    public void resetCache()
+        throws IOException
+    {
+        ParserTransformer.setClassCache(previous);
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(final Path file,
+                final BasicFileAttributes attrs)
+                throws IOException
+            {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir,
+                final IOException exc)
+                throws IOException
+            {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void generatedClassesAreWrittenToTheCache()
+        throws Exception
+    {
+        createParser();
+
+        final Map<String, byte[]> classes
+            = cache.read(ParserClassHasher.hash(CachedParser.class));
+
+        assertThat(classes).isNotNull().containsKey(EXTENDED_NAME);
+        assertThat(classes.size()).as("action classes are cached")
+            .isGreaterThan(1);
+    }
+
+    @Test
+    public void cachedClassesAreUsed()
+        throws Exception
+    {
+        createParser();
+
+        final String hash = ParserClassHasher.hash(CachedParser.class);
+        final Path path = cache.getDirectory().resolve(hash)
+            .resolve(EXTENDED_NAME + ".class");
+        Files.write(path, addMarkerField(Files.readAllBytes(path)));
+
+        final Object parser = createParser();
+
+        assertThat(parser.getClass().getDeclaredField(MARKER_FIELD))
+            .isNotNull();
+
+        final ParsingResult<Object> result = parse(parser);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getTopStackValue()).isEqualTo(42);
+    }
+
+    @Test
+    public void cacheIsKeyedByParserHash()
+        throws Exception
+    {
+        cache.write("unrelated", Collections.singletonMap(EXTENDED_NAME,
+            new byte[0]));
+
+        final Object parser = createParser();
+
+        assertThat(parser.getClass().getName()).isEqualTo(EXTENDED_NAME);
+        assertThat(cache.read(ParserClassHasher.hash(CachedParser.class)))
+            .isNotNull();
+    }
+
+    @Test
+    public void badEntriesAreReplaced()
+        throws Exception
+    {
+        createParser();
+
+        final String hash = ParserClassHasher.hash(CachedParser.class);
+        final Path path = cache.getDirectory().resolve(hash)
+            .resolve(EXTENDED_NAME + ".class");
+        Files.write(path, new byte[] { 1, 2, 3 });
+
+        final Object parser = createParser();
+
+        assertThat(parser.getClass().getName()).isEqualTo(EXTENDED_NAME);
+        final byte[] code = cache.read(hash).get(EXTENDED_NAME);
+        assertThat(new ClassReader(code).getClassName())
+            .as("entry is written again")
+            .isEqualTo(EXTENDED_NAME.replace('.', '/'));
+    }
+
+    @Test
+    public void unreadableEntriesAreReplaced()
+        throws Exception
+    {
+        final String hash = ParserClassHasher.hash(CachedParser.class);
+        Files.createDirectories(cache.getDirectory().resolve(hash)
+            .resolve(EXTENDED_NAME + ".class"));
+
+        final Object parser = createParser();
+
+        assertThat(parser.getClass().getName()).isEqualTo(EXTENDED_NAME);
+        assertThat(cache.read(hash)).containsKey(EXTENDED_NAME);
+    }
+
+    @Test
+    public void parsersWhichCannotBeHashedAreNotCached()
+        throws Exception
+    {
+        final Object parser = createParser(new ParserClassLoader(PARSER_NAME,
+            directory.resolve("classes")).hideParserClassFile());
+
+        assertThat(parser.getClass().getName()).isEqualTo(EXTENDED_NAME);
+        assertThat(parse(parser).getTopStackValue()).isEqualTo(42);
+        assertThat(cache.read(ParserClassHasher.hash(CachedParser.class)))
+            .as("no entry is written").isNull();
+    }
+
+    @Test
+    public void parsersAreNotHashedWithoutCache()
+        throws Exception
+    {
+        ParserTransformer.setClassCache(null);
+
+        final Object parser = createParser(new ParserClassLoader(PARSER_NAME,
+            directory.resolve("classes")).hideParserClassFile());
+
+        assertThat(parse(parser).getTopStackValue()).isEqualTo(42);
+    }
+
+    /*
+     * Create the parser from a fresh class loader, as if it were a new JVM
+     */
+    private Object createParser()
+        throws ClassNotFoundException
+    {
+        return createParser(new ParserClassLoader(PARSER_NAME,
+            directory.resolve("classes")));
+    }
+
+    private static Object createParser(final ParserClassLoader classLoader)
+        throws ClassNotFoundException
+    {
+        final Class<?> parserClass = classLoader.loadClass(PARSER_NAME);
+
+        @SuppressWarnings("unchecked")
+        final Object ret = Grappa.createParser(
+            (Class<? extends BaseParser<Object>>) parserClass);
+        return ret;
+    }
+
+    private static ParsingResult<Object> parse(final Object parser)
+        throws Exception
+    {
+        final Method method = parser.getClass().getMethod("rule");
+        method.setAccessible(true);
+        final Rule rule = (Rule) method.invoke(parser);
+        return new ListeningParseRunner<>(rule).run("12+30");
+    }
+
+    private static byte[] addMarkerField(final byte[] code)
+    {
+        final ClassWriter writer = new ClassWriter(0);
+
+        new ClassReader(code).accept(new ClassVisitor(Opcodes.ASM5, writer)
+        {
+            @Override
+            public void visitEnd()
+            {
+                visitField(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC,
+                    MARKER_FIELD, "I", null, null).visitEnd();
+                super.visitEnd();
+            }
+        }, 0);
+
+        return writer.toByteArray();
+    }
+}
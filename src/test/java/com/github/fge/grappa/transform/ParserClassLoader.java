@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * A class loader loading a parser class, and all classes generated for it,
+ * itself; each instance therefore sees this parser class as never transformed
+ * before.
+ *
+ * Class files found in the given directory are used in priority; the names of
+ * these classes are recorded. The class file of the parser class can also be
+ * hidden, so that the parser class cannot be hashed.
+ */
+final class ParserClassLoader
+    extends ClassLoader
+{
+    private final String parserName;
+    private final Path directory;
+    private final Set<String> pregenerated = new HashSet<>();
+    private boolean hideParserClassFile = false;
+
+    ParserClassLoader(final String parserName, final Path directory)
+    {
+        super(ParserClassLoader.class.getClassLoader());
+        this.parserName = parserName;
+        this.directory = directory;
+    }
+
+    Set<String> getPregenerated()
+    {
+        return pregenerated;
+    }
+
+    ParserClassLoader hideParserClassFile()
+    {
+        hideParserClassFile = true;
+        return this;
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve)
+        throws ClassNotFoundException
+    {
+        if (!isOwnClass(name))
+            return super.loadClass(name, resolve);
+
+        synchronized (getClassLoadingLock(name)) {
+            final Class<?> c = findLoadedClass(name);
+            return c != null ? c : findClass(name);
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(final String name)
+        throws ClassNotFoundException
+    {
+        final String resource = name.replace('.', '/') + ".class";
+        final Path path = directory.resolve(resource);
+
+        try {
+            final byte[] code;
+            if (Files.exists(path)) {
+                code = Files.readAllBytes(path);
+                pregenerated.add(name);
+            } else {
+                code = readParentResource(resource);
+            }
+            return defineClass(name, code, 0, code.length);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    @Override
+    public URL getResource(final String name)
+    {
+        if (hideParserClassFile
+            && name.equals(parserName.replace('.', '/') + ".class"))
+            return null;
+        final Path path = directory.resolve(name);
+        if (!Files.exists(path))
+            return super.getResource(name);
+        try {
+            return path.toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean isOwnClass(final String name)
+    {
+        final String pkg = name.substring(0, name.lastIndexOf('.') + 1);
+        return name.startsWith(parserName)
+            || name.startsWith(pkg + "Action$")
+            || name.startsWith(pkg + "VarInit$");
+    }
+
+    private byte[] readParentResource(final String resource)
+        throws IOException
+    {
+        try (
+            final InputStream in = getParent().getResourceAsStream(resource);
+        ) {
+            if (in == null)
+                throw new IOException("resource not found: " + resource);
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
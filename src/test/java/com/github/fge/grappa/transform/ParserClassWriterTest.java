@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.misc.AsmUtils;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ParserClassWriterTest
+{
+    static class AotParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(oneOrMore(charRange('a', 'z')), push(match()),
+                ',', oneOrMore(charRange('0', '9')),
+                push(Integer.parseInt(match())));
+        }
+    }
+
+    private static final String PARSER_NAME = AotParser.class.getName();
+    private static final String EXTENDED_NAME
+        = AsmUtils.getExtendedParserClassName(PARSER_NAME);
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory()
+        throws IOException
+    {
+        directory = Files.createTempDirectory("grappa-aot");
+    }
+
+    @AfterMethod
+    public void deleteDirectory()
+        throws IOException
+    {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(final Path file,
+                final BasicFileAttributes attrs)
+                throws IOException
+            {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir,
+                final IOException exc)
+                throws IOException
+            {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void allClassesAreWritten()
+        throws Exception
+    {
+        final List<Path> paths = ParserClassWriter.write(AotParser.class,
+            directory);
+
+        final Path extended = directory.resolve(EXTENDED_NAME.replace('.', '/')
+            + ".class");
+
+        assertThat(paths).contains(extended);
+        for (final Path path: paths)
+            assertThat(path).exists();
+        assertThat(paths.size()).as("action classes are written")
+            .isGreaterThan(1);
+    }
+
+    @Test
+    public void pregeneratedClassesAreUsed()
+        throws Exception
+    {
+        ParserClassWriter.write(AotParser.class, directory);
+
+        final ParserClassLoader classLoader
+            = new ParserClassLoader(PARSER_NAME, directory);
+        final Class<?> parserClass = classLoader.loadClass(PARSER_NAME);
+
+        @SuppressWarnings("unchecked")
+        final Object parser = Grappa.createParser(
+            (Class<? extends BaseParser<Object>>) parserClass);
+
+        assertThat(parser.getClass().getName()).isEqualTo(EXTENDED_NAME);
+        assertThat(classLoader.getPregenerated()).contains(EXTENDED_NAME);
+
+        final Method method = parserClass.getMethod("rule");
+        method.setAccessible(true);
+        final Rule rule = (Rule) method.invoke(parser);
+        final ParsingResult<Object> result
+            = new ListeningParseRunner<>(rule).run("abc,42");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly(42, "abc");
+    }
+
+    @Test
+    public void outdatedClassesAreIgnored()
+        throws Exception
+    {
+        ParserClassWriter.write(AotParser.class, directory);
+
+        final Path extended = directory.resolve(EXTENDED_NAME.replace('.', '/')
+            + ".class");
+        Files.write(extended, changeParserHash(Files.readAllBytes(extended)));
+
+        final ParserClassLoader classLoader
+            = new ParserClassLoader(PARSER_NAME, directory);
+        final Class<?> parserClass = classLoader.loadClass(PARSER_NAME);
+
+        @SuppressWarnings("unchecked")
+        final Object parser = Grappa.createParser(
+            (Class<? extends BaseParser<Object>>) parserClass);
+
+        assertThat(parser.getClass().getName()).isEqualTo(EXTENDED_NAME);
+        assertThat(classLoader.getPregenerated()).doesNotContain(EXTENDED_NAME);
+    }
+
+    private static byte[] changeParserHash(final byte[] code)
+    {
+        final ClassWriter writer = new ClassWriter(0);
+
+        new ClassReader(code).accept(new ClassVisitor(Opcodes.ASM5, writer)
+        {
+            @Override
+            public FieldVisitor visitField(final int access, final String name,
+                final String desc, final String signature, final Object value)
+            {
+                final Object newValue
+                    = ParserTransformer.PARSER_HASH_FIELD.equals(name)
+                    ? "outdated" : value;
+                return super.visitField(access, name, desc, signature,
+                    newValue);
+            }
+        }, 0);
+
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.transform.hash;
+
+import com.github.fge.grappa.parsers.BaseParser;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.SortedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ParserClassHasherTest
+{
+    static class FirstParser
+        extends BaseParser<Object>
+    {
+    }
+
+    static class SecondParser
+        extends BaseParser<Object>
+    {
+    }
+
+    @Test
+    public void hashDependsOnTheParserClass()
+        throws IOException
+    {
+        final String hash = ParserClassHasher.hash(FirstParser.class);
+
+        assertThat(ParserClassHasher.hash(FirstParser.class)).isEqualTo(hash);
+        assertThat(ParserClassHasher.hash(SecondParser.class))
+            .isNotEqualTo(hash);
+    }
+
+    @Test
+    public void generatorClassesAreTheOnesOfTheTransformPackage()
+        throws IOException
+    {
+        final SortedMap<String, byte[]> classFiles
+            = ParserClassHasher.readGeneratorClassFiles();
+
+        assertThat(classFiles).containsKeys(
+            "com/github/fge/grappa/transform/ParserTransformer.class",
+            "com/github/fge/grappa/transform/hash/ParserClassHasher.class");
+
+        for (final String name: classFiles.keySet())
+            assertThat(name).startsWith("com/github/fge/grappa/transform/")
+                .endsWith(".class");
+    }
+}